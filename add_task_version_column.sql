@@ -0,0 +1,16 @@
+-- ================================================
+-- 添加版本号字段到tasks表（任务状态流转乐观锁）
+-- ================================================
+
+USE spring_boot_test;
+
+-- 1. 添加version字段（已有任务从0开始）
+ALTER TABLE tasks
+ADD COLUMN version INT NOT NULL DEFAULT 0 COMMENT '版本号(乐观锁)'
+AFTER completed_at;
+
+-- 2. 查看更新后的表结构
+DESC tasks;
+
+-- 完成！
+SELECT '数据库迁移完成！version字段已添加。' as message;
@@ -0,0 +1,32 @@
+package com.example.springboottest.DTO;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量审批请求DTO
+ */
+@Data
+public class BatchApprovalRequest {
+
+    @NotEmpty(message = "任务ID列表不能为空")
+    @Size(max = 500, message = "单次最多处理500个任务")
+    private List<Long> taskIds;
+
+    @NotBlank(message = "审批操作不能为空")
+    @Pattern(regexp = "APPROVE|REJECT", message = "审批操作只能是APPROVE或REJECT")
+    private String action;
+
+    /**
+     * 驳回到的节点顺序（各任务审批流不同，按顺序指定），为空时驳回到上一节点
+     */
+    private Integer rejectToNodeOrder;
+
+    @Size(max = 1000, message = "审批意见不能超过1000字符")
+    private String comment;
+}
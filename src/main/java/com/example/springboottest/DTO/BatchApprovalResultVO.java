@@ -0,0 +1,29 @@
+package com.example.springboottest.DTO;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 批量审批结果VO
+ */
+@Data
+public class BatchApprovalResultVO {
+
+    private Integer total;
+    private Integer successCount;
+    private Integer failureCount;
+    private List<Item> results;
+
+    /**
+     * 单个任务的处理结果
+     */
+    @Data
+    public static class Item {
+
+        private Long taskId;
+        private Boolean success;
+        private String message;
+        private ApprovalResultVO result;
+    }
+}
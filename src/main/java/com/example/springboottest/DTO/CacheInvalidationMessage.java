@@ -0,0 +1,24 @@
+package com.example.springboottest.DTO;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缓存失效消息（集群内广播）
+ * keys 为按缓存名分组的失效键，键带类型前缀编码（如 L:1、S:code_gender），保证各实例按原类型清除；
+ * cleared 为整体清空的缓存名
+ */
+@Data
+public class CacheInvalidationMessage {
+
+    /**
+     * 发送实例标识，实例忽略自己发出的消息
+     */
+    private String origin;
+
+    private Map<String, List<String>> keys;
+
+    private List<String> cleared;
+}
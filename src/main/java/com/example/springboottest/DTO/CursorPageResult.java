@@ -0,0 +1,23 @@
+package com.example.springboottest.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页结果DTO
+ * nextCursor 为下一页的续页令牌，hasMore 为 false 时为空；total 仅在请求时返回
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResult<T> {
+
+    private List<T> records;
+    private String nextCursor;
+    private Boolean hasMore;
+    private Integer size;
+    private Long total;
+}
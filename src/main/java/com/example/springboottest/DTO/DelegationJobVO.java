@@ -0,0 +1,41 @@
+package com.example.springboottest.DTO;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 批量委托任务进度VO
+ */
+@Data
+public class DelegationJobVO {
+
+    private String jobId;
+    private Long fromUserId;
+    private Long toUserId;
+
+    /**
+     * 状态：RUNNING、COMPLETED、FAILED
+     */
+    private String status;
+
+    /**
+     * 开始时可委托的待审批记录数
+     */
+    private Long total;
+
+    /**
+     * 已转交的记录数
+     */
+    private Long moved;
+
+    /**
+     * 处理时已被审批或转交而跳过的记录数
+     */
+    private Long skipped;
+
+    private Integer percent;
+    private String message;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,31 @@
+package com.example.springboottest.DTO;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+/**
+ * 批量委托请求DTO（把委托人的待审批全部转交给受托人）
+ */
+@Data
+public class DelegationRequest {
+
+    @NotNull(message = "委托人不能为空")
+    private Long fromUserId;
+
+    @NotNull(message = "受托人不能为空")
+    private Long toUserId;
+
+    /**
+     * 只委托指定审批流的任务，为空时不限
+     */
+    private Long flowId;
+
+    /**
+     * 只委托指定类型的任务，为空时不限
+     */
+    private String taskType;
+
+    @Size(max = 1000, message = "委托说明不能超过1000字符")
+    private String comment;
+}
@@ -0,0 +1,20 @@
+package com.example.springboottest.DTO;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 字典增量同步结果VO
+ * fullSync 为 true 时 dicts 是全部启用字典，客户端整体替换本地字典；
+ * 否则 dicts 只包含指定版本之后有变化的字典（含全部启用字典项），removedDictCodes 为已删除、停用或改名的旧编码。
+ * 客户端保存 version，下次请求时作为 since 传入
+ */
+@Data
+public class DictChangesVO {
+
+    private Long version;
+    private Boolean fullSync;
+    private List<DictResponse> dicts;
+    private List<String> removedDictCodes;
+}
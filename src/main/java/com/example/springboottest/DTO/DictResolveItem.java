@@ -0,0 +1,13 @@
+package com.example.springboottest.DTO;
+
+import lombok.Data;
+
+/**
+ * 字典标签解析请求项（字典编码 + 字典项值）
+ */
+@Data
+public class DictResolveItem {
+
+    private String dictCode;
+    private String itemValue;
+}
@@ -0,0 +1,32 @@
+package com.example.springboottest.DTO;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 待办变更消息（集群内广播）
+ * 编号由发布实例生成（实例标识-序号），各实例以同一编号推送，客户端可带该编号在任一实例续传
+ */
+@Data
+public class InboxEventMessage {
+
+    private String id;
+
+    /**
+     * 变更类型：ADDED、REMOVED、CHANGED
+     */
+    private String type;
+    private Long taskId;
+    private Long nodeId;
+
+    /**
+     * 受影响的审批人，为 null 表示全部在线用户
+     */
+    private List<Long> approverIds;
+
+    /**
+     * 变更时间（毫秒时间戳）
+     */
+    private Long occurredAt;
+}
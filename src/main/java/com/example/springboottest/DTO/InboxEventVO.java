@@ -0,0 +1,24 @@
+package com.example.springboottest.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 待办变更推送VO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InboxEventVO {
+
+    /**
+     * 变更类型：ADDED、REMOVED、CHANGED、RESYNC
+     */
+    private String type;
+    private Long taskId;
+    private Long nodeId;
+    private LocalDateTime occurredAt;
+}
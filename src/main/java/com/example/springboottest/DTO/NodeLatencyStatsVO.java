@@ -0,0 +1,21 @@
+package com.example.springboottest.DTO;
+
+import lombok.Data;
+
+/**
+ * 审批节点耗时统计VO（耗时单位毫秒，百分位为直方图桶上界）
+ */
+@Data
+public class NodeLatencyStatsVO {
+
+    private Long flowId;
+    private String flowName;
+    private Long nodeId;
+    private String nodeName;
+    private Integer nodeOrder;
+    private Long count;
+    private Long meanMs;
+    private Long p50Ms;
+    private Long p95Ms;
+    private Long p99Ms;
+}
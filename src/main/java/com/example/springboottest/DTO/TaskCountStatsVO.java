@@ -0,0 +1,25 @@
+package com.example.springboottest.DTO;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 任务数统计VO
+ */
+@Data
+public class TaskCountStatsVO {
+
+    private Long total;
+    private Map<String, Long> byStatus;
+    private Map<String, Long> byTaskType;
+    private Map<Integer, Long> byPriority;
+    private List<TaskCountVO> items;
+
+    /**
+     * 最近一次与数据库对账的时间
+     */
+    private LocalDateTime reconciledAt;
+}
@@ -0,0 +1,19 @@
+package com.example.springboottest.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 按状态、任务类型、优先级分组的任务数（任务类型为空记为""，优先级为空记为0）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskCountVO {
+
+    private String status;
+    private String taskType;
+    private Integer priority;
+    private Long count;
+}
@@ -0,0 +1,30 @@
+package com.example.springboottest.DTO;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 搜索索引变更消息（集群内广播）
+ * 各实例收到后自行分词并更新本地索引
+ */
+@Data
+public class TaskIndexMessage {
+
+    /**
+     * 变更类型：UPSERT、REMOVE、STATUS
+     */
+    private String type;
+    private Long taskId;
+
+    /**
+     * 移除的任务ID（REMOVE）
+     */
+    private List<Long> taskIds;
+
+    private String status;
+    private String taskType;
+    private Long creatorId;
+    private String title;
+    private String content;
+}
@@ -0,0 +1,22 @@
+package com.example.springboottest.DTO;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 任务搜索结果VO
+ * 分页字段与游标分页结果一致，另外返回全部命中任务按状态、任务类型的分面计数
+ */
+@Data
+public class TaskSearchResultVO {
+
+    private List<TaskVO> records;
+    private String nextCursor;
+    private Boolean hasMore;
+    private Integer size;
+    private Long total;
+    private Map<String, Long> statusFacets;
+    private Map<String, Long> taskTypeFacets;
+}
@@ -4,6 +4,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Spring Boot 主启动类
@@ -14,6 +15,7 @@ import org.springframework.context.annotation.EnableAspectJAutoProxy;
 @SpringBootApplication
 @EnableCaching  // 启用 Spring Cache 缓存功能
 @EnableAspectJAutoProxy
+@EnableScheduling  // 启用定时任务
 public class SpringBootTestApplication {
 
     public static void main(String[] args) {
@@ -35,6 +35,13 @@ public class ActiveMqConfig {
     public static final String FILE_UPLOAD_QUEUE = "file.upload.queue";
     public static final String FILE_PROCESS_QUEUE = "file.process.queue";
 
+    /**
+     * 主题名称常量
+     */
+    public static final String CACHE_INVALIDATION_TOPIC = "cache.invalidation.topic";
+    public static final String INBOX_EVENT_TOPIC = "inbox.event.topic";
+    public static final String TASK_INDEX_TOPIC = "task.index.topic";
+
     /**
      * 配置连接工厂
      */
@@ -81,6 +88,19 @@ public class ActiveMqConfig {
         factory.setConcurrency("3-10"); // 并发消费者数量
         return factory;
     }
+
+    /**
+     * 配置主题监听器容器工厂（发布订阅，每个实例一个消费者，保证按发送顺序处理）
+     */
+    @Bean
+    public DefaultJmsListenerContainerFactory topicListenerContainerFactory() {
+        DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory());
+        factory.setMessageConverter(jacksonJmsMessageConverter());
+        factory.setPubSubDomain(true);
+        factory.setConcurrency("1");
+        return factory;
+    }
 }
 
 
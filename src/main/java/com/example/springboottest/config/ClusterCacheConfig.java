@@ -0,0 +1,47 @@
+package com.example.springboottest.config;
+
+import jakarta.jms.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.util.StringUtils;
+
+/**
+ * 集群缓存配置
+ * 按 spring.cache 配置创建 Caffeine 缓存管理器，并包装为集群缓存管理器：
+ * 缓存清除通过 ActiveMQ 主题广播到所有实例（cache.cluster.enabled=false 时不创建，使用默认的本地缓存管理器）
+ */
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+@ConditionalOnProperty(name = "cache.cluster.enabled", havingValue = "true", matchIfMissing = true)
+public class ClusterCacheConfig {
+
+    @Bean
+    public ClusterCacheManager cacheManager(CacheProperties cacheProperties,
+                                            ConnectionFactory connectionFactory,
+                                            MessageConverter jacksonJmsMessageConverter,
+                                            @Value("${cache.cluster.queue-capacity:100000}") int queueCapacity) {
+        CaffeineCacheManager local = new CaffeineCacheManager();
+        String spec = cacheProperties.getCaffeine().getSpec();
+        if (StringUtils.hasText(spec)) {
+            local.setCacheSpecification(spec);
+        }
+        if (!cacheProperties.getCacheNames().isEmpty()) {
+            local.setCacheNames(cacheProperties.getCacheNames());
+        }
+
+        // 失效消息只由一个后台线程发送，复用同一个连接
+        JmsTemplate jmsTemplate = new JmsTemplate(new CachingConnectionFactory(connectionFactory));
+        jmsTemplate.setMessageConverter(jacksonJmsMessageConverter);
+        jmsTemplate.setPubSubDomain(true);
+        return new ClusterCacheManager(local, jmsTemplate, ActiveMqConfig.CACHE_INVALIDATION_TOPIC, queueCapacity);
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.springboottest.config;
+
+import com.example.springboottest.DTO.CacheInvalidationMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jms.connection.SingleConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 集群缓存管理器
+ * 包装本地缓存管理器（Caffeine），缓存的 evict/clear 在本地生效后，把缓存名和键放入发送队列，
+ * 由后台线程合并队列中积压的失效（同一缓存的键去重、整体清空覆盖单个键）后作为一条消息发布到主题；
+ * 各实例订阅主题后只在本地清除，不再广播。put 只写本地（@Cacheable 未命中时也会 put，广播会造成失效风暴），
+ * 其他实例的旧值依靠写入方的 evict 清除。事务中的清除在提交后才广播，避免其他实例在提交前重新缓存旧数据。
+ * 发送失败只记录日志，本地缓存的过期时间兜底
+ */
+@Slf4j
+public class ClusterCacheManager implements CacheManager, InitializingBean, DisposableBean {
+
+    private static final String CLEAR_ALL = "";
+
+    /**
+     * 当前线程处于 {@link #afterCommit(Runnable)} 注册的提交后回调中，清除直接广播
+     */
+    private static final ThreadLocal<Boolean> committed = new ThreadLocal<>();
+
+    private final CacheManager delegate;
+    private final JmsTemplate jmsTemplate;
+    private final String topic;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+    private final BlockingQueue<Invalidation> pending;
+    private final ThreadLocal<Boolean> applyingRemote = new ThreadLocal<>();
+    private final Thread sender;
+
+    public ClusterCacheManager(CacheManager delegate, JmsTemplate jmsTemplate, String topic, int queueCapacity) {
+        this.delegate = delegate;
+        this.jmsTemplate = jmsTemplate;
+        this.topic = topic;
+        this.pending = new LinkedBlockingQueue<>(queueCapacity);
+        this.sender = new Thread(this::sendLoop, "cache-invalidation-sender");
+        this.sender.setDaemon(true);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        sender.start();
+    }
+
+    @Override
+    public void destroy() {
+        sender.interrupt();
+        if (jmsTemplate.getConnectionFactory() instanceof SingleConnectionFactory connectionFactory) {
+            connectionFactory.destroy();
+        }
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache target = delegate.getCache(name);
+        return target != null ? caches.computeIfAbsent(name, k -> new ClusterCache(target)) : null;
+    }
+
+    /**
+     * 注册不由本管理器创建的本地缓存（如自行维护的 Caffeine 缓存），返回的缓存清除时同样广播，
+     * 其他实例收到同名缓存的失效消息时清除各自注册的缓存
+     */
+    public Cache register(Cache target) {
+        return caches.computeIfAbsent(target.getName(), k -> new ClusterCache(target));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        Set<String> names = new LinkedHashSet<>(delegate.getCacheNames());
+        names.addAll(caches.keySet());
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * 本实例标识
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 应用其他实例的失效消息：只清除本地缓存
+     * afterApply 接收受影响的缓存名，在同一不广播的范围内执行（如重新加载派生数据时清除的缓存不再广播）
+     */
+    public void applyRemote(CacheInvalidationMessage message, Consumer<Set<String>> afterApply) {
+        applyingRemote.set(Boolean.TRUE);
+        try {
+            Set<String> names = new LinkedHashSet<>();
+            if (message.getCleared() != null) {
+                for (String name : message.getCleared()) {
+                    Cache cache = getCache(name);
+                    if (cache != null) {
+                        cache.clear();
+                        names.add(name);
+                    }
+                }
+            }
+            if (message.getKeys() != null) {
+                message.getKeys().forEach((name, keys) -> {
+                    Cache cache = getCache(name);
+                    if (cache != null && !names.contains(name)) {
+                        keys.forEach(key -> cache.evict(decodeKey(key)));
+                        names.add(name);
+                    }
+                });
+            }
+            afterApply.accept(names);
+        } finally {
+            applyingRemote.remove();
+        }
+    }
+
+    /**
+     * 在当前事务提交后执行（没有事务时立即执行）
+     * 提交后的回调中新注册的同步不会再执行，回调中清除集群缓存时无法再推迟广播：
+     * 需要在提交后清除缓存的调用方应通过本方法注册，回调中的清除直接放入发送队列
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    committed.set(Boolean.TRUE);
+                    try {
+                        action.run();
+                    } finally {
+                        committed.remove();
+                    }
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 广播一次清除，key 为 null 表示整体清空
+     * 在事务中调用时（如 @Transactional 方法上的 @CacheEvict）推迟到提交后，回滚时不广播
+     */
+    private void publish(Cache target, Object key) {
+        if (applyingRemote.get() != null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || committed.get() != null) {
+            enqueue(target.getName(), key);
+            return;
+        }
+        PendingEvictions pendingEvictions = (PendingEvictions) TransactionSynchronizationManager.getResource(this);
+        if (pendingEvictions == null) {
+            pendingEvictions = new PendingEvictions();
+            TransactionSynchronizationManager.bindResource(this, pendingEvictions);
+            TransactionSynchronizationManager.registerSynchronization(pendingEvictions);
+        }
+        pendingEvictions.add(target, key);
+    }
+
+    private void enqueue(String cacheName, Object key) {
+        // 无法编码的键（如复合键）按整体清空广播
+        String encoded = key != null ? encodeKey(key) : CLEAR_ALL;
+        if (!pending.offer(new Invalidation(cacheName, encoded != null ? encoded : CLEAR_ALL))) {
+            log.warn("缓存失效发送队列已满，丢弃失效消息，缓存: {}, 键: {}", cacheName, key);
+        }
+    }
+
+    private void sendLoop() {
+        List<Invalidation> batch = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(pending.take());
+                pending.drainTo(batch);
+                send(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.warn("发送缓存失效消息失败，失效数: {}", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<Invalidation> batch) {
+        Map<String, Set<String>> keys = new LinkedHashMap<>();
+        Set<String> cleared = new LinkedHashSet<>();
+        for (Invalidation invalidation : batch) {
+            if (CLEAR_ALL.equals(invalidation.key())) {
+                cleared.add(invalidation.cacheName());
+            } else {
+                keys.computeIfAbsent(invalidation.cacheName(), k -> new LinkedHashSet<>()).add(invalidation.key());
+            }
+        }
+        keys.keySet().removeAll(cleared);
+
+        CacheInvalidationMessage message = new CacheInvalidationMessage();
+        message.setOrigin(nodeId);
+        Map<String, List<String>> keyLists = new LinkedHashMap<>();
+        keys.forEach((name, set) -> keyLists.put(name, new ArrayList<>(set)));
+        message.setKeys(keyLists);
+        message.setCleared(new ArrayList<>(cleared));
+        jmsTemplate.convertAndSend(topic, message);
+        log.debug("发送缓存失效消息，清除键: {}, 整体清空: {}", keyLists, cleared);
+    }
+
+    /**
+     * 键编码为 类型前缀:值，只支持常用的字符串、整数键，其他类型返回 null
+     */
+    static String encodeKey(Object key) {
+        if (key instanceof String value) {
+            return "S:" + value;
+        } else if (key instanceof Long value) {
+            return "L:" + value;
+        } else if (key instanceof Integer value) {
+            return "I:" + value;
+        }
+        return null;
+    }
+
+    static Object decodeKey(String encoded) {
+        String value = encoded.substring(2);
+        return switch (encoded.charAt(0)) {
+            case 'L' -> Long.valueOf(value);
+            case 'I' -> Integer.valueOf(value);
+            default -> value;
+        };
+    }
+
+    private record Invalidation(String cacheName, String key) {
+    }
+
+    /**
+     * 一个事务内的清除，提交后先再清除一次本地缓存（事务期间本实例可能已按提交前的数据重新缓存），再放入发送队列。
+     * 提交后的回调中新注册的同步不会再执行，因此本同步执行后（其他 afterCommit 回调中）的清除直接放入发送队列；
+     * 其他提交后回调中的清除应通过 {@link #afterCommit(Runnable)} 注册
+     */
+    private final class PendingEvictions implements TransactionSynchronization {
+
+        private final List<Map.Entry<Cache, Object>> evictions = new ArrayList<>();
+        private boolean committed;
+
+        void add(Cache target, Object key) {
+            if (committed) {
+                enqueue(target.getName(), key);
+            } else {
+                evictions.add(new AbstractMap.SimpleImmutableEntry<>(target, key));
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            committed = true;
+            for (Map.Entry<Cache, Object> eviction : evictions) {
+                Cache target = eviction.getKey();
+                if (eviction.getValue() != null) {
+                    target.evict(eviction.getValue());
+                } else {
+                    target.clear();
+                }
+                enqueue(target.getName(), eviction.getValue());
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ClusterCacheManager.this);
+        }
+    }
+
+    /**
+     * 本地缓存包装：读写委托本地缓存，清除时同时广播
+     */
+    private final class ClusterCache implements Cache {
+
+        private final Cache target;
+
+        ClusterCache(Cache target) {
+            this.target = target;
+        }
+
+        @Override
+        public String getName() {
+            return target.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return target.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return target.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return target.get(key, type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return target.get(key, valueLoader);
+        }
+
+        @Override
+        public CompletableFuture<?> retrieve(Object key) {
+            return target.retrieve(key);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+            return target.retrieve(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            target.put(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return target.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            target.evict(key);
+            publish(target, key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            // 本地没有不代表其他实例没有，始终广播
+            boolean present = target.evictIfPresent(key);
+            publish(target, key);
+            return present;
+        }
+
+        @Override
+        public void clear() {
+            target.clear();
+            publish(target, null);
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean present = target.invalidate();
+            publish(target, null);
+            return present;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.springboottest.config;
 
 import com.example.springboottest.DTO.ApiResponse;
 import com.example.springboottest.exception.BusinessException;
+import com.example.springboottest.exception.VersionConflictException;
 import com.example.springboottest.exception.DuplicateResourceException;
 import com.example.springboottest.exception.ResourceNotFoundException;
 import jakarta.validation.ConstraintViolation;
@@ -139,6 +140,16 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
+    /**
+     * 处理版本冲突异常
+     */
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<ApiResponse<Object>> handleVersionConflictException(VersionConflictException e) {
+        log.warn("并发修改冲突: {}", e.getMessage());
+        ApiResponse<Object> response = ApiResponse.error(e.getCode(), e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
     /**
      * 处理资源重复异常
      */
@@ -0,0 +1,37 @@
+package com.example.springboottest.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 任务模块线程池配置
+ */
+@Slf4j
+@Configuration
+public class TaskExecutorConfig {
+
+    /**
+     * 任务详情并发查询线程池
+     * 线程数和队列都有上限，每个线程同一时刻最多占用一个数据库连接；
+     * 队列满时由调用线程自己执行，退化为串行查询而不是拒绝请求
+     */
+    @Bean(name = "taskDetailExecutor")
+    public ThreadPoolTaskExecutor taskDetailExecutor(
+            @Value("${task.detail.pool-size:8}") int poolSize,
+            @Value("${task.detail.queue-capacity:200}") int queueCapacity) {
+        log.info("初始化任务详情查询线程池，线程数: {}, 队列容量: {}", poolSize, queueCapacity);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("task-detail-");
+        executor.setDaemon(true);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
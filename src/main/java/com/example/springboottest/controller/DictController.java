@@ -6,8 +6,11 @@ import com.example.springboottest.service.DictService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -120,18 +123,61 @@ public class DictController {
 
     /**
      * 获取所有启用的字典
+     * 以字典版本号作为 ETag，If-None-Match 匹配时直接返回 304
      */
     @GetMapping("/active")
-    public ResponseEntity<ApiResponse<List<DictResponse>>> getAllActiveDicts() {
+    public ResponseEntity<ApiResponse<List<DictResponse>>> getAllActiveDicts(WebRequest webRequest) {
         try {
+            String etag = versionETag();
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
             List<DictResponse> response = dictService.getAllActiveDicts();
-            return ResponseEntity.ok(ApiResponse.success("获取所有启用字典成功", response));
+            return ResponseEntity.ok().eTag(etag).body(ApiResponse.success("获取所有启用字典成功", response));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(ApiResponse.error("获取所有启用字典失败: " + e.getMessage()));
         }
     }
 
+    /**
+     * 字典增量同步
+     * GET /dicts/changes?since=版本号
+     * 返回该版本之后有变化的字典；since 为空或已超出变更日志范围时返回全部启用字典（fullSync=true）。
+     * 以字典版本号作为 ETag，If-None-Match 匹配时直接返回 304
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<ApiResponse<DictChangesVO>> getChanges(@RequestParam(required = false) Long since,
+                                                                 WebRequest webRequest) {
+        try {
+            String etag = versionETag();
+            if (webRequest.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            DictChangesVO response = dictService.getChanges(since);
+            return ResponseEntity.ok().eTag(etag).body(ApiResponse.success("获取字典变更成功", response));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("获取字典变更失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 批量解析字典标签
+     * POST /dicts/resolve，请求体为 [{"dictCode": "...", "itemValue": "..."}]，
+     * 按请求顺序返回每项的标签（未找到时为 null），结果流式写出
+     */
+    @PostMapping("/resolve")
+    public ResponseEntity<?> resolveLabels(@RequestBody List<DictResolveItem> items) {
+        try {
+            StreamingResponseBody body = dictService.resolveLabels(items);
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("解析字典标签失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 创建字典项
      */
@@ -218,4 +264,8 @@ public class DictController {
                     .body(ApiResponse.error("获取字典项失败: " + e.getMessage()));
         }
     }
+
+    private String versionETag() {
+        return "\"dict-" + dictService.getDictVersion() + "\"";
+    }
 }
@@ -0,0 +1,92 @@
+package com.example.springboottest.controller;
+
+import com.example.springboottest.DTO.ApiResponse;
+import com.example.springboottest.DTO.BatchApprovalRequest;
+import com.example.springboottest.DTO.BatchApprovalResultVO;
+import com.example.springboottest.DTO.DelegationJobVO;
+import com.example.springboottest.DTO.DelegationRequest;
+import com.example.springboottest.service.TaskBatchApprovalService;
+import com.example.springboottest.service.TaskDelegationService;
+import com.example.springboottest.util.JwtUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 批量审批控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/tasks/approval")
+@RequiredArgsConstructor
+public class TaskBatchApprovalController {
+
+    private final TaskBatchApprovalService batchApprovalService;
+    private final TaskDelegationService delegationService;
+    private final JwtUtil jwtUtil;
+
+    /**
+     * 批量审批通过或驳回
+     * POST /api/tasks/approval/batch
+     */
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('USER')")
+    public ApiResponse<BatchApprovalResultVO> batch(
+            @Valid @RequestBody BatchApprovalRequest request,
+            HttpServletRequest httpRequest
+    ) {
+        Long userId = getCurrentUserId(httpRequest);
+        BatchApprovalResultVO result = batchApprovalService.process(request, userId);
+        return ApiResponse.success("批量审批完成", result);
+    }
+
+    /**
+     * 批量委托：把委托人的待审批全部转交给受托人（后台执行）
+     * POST /api/tasks/approval/delegations
+     */
+    @PostMapping("/delegations")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<DelegationJobVO> delegate(
+            @Valid @RequestBody DelegationRequest request,
+            HttpServletRequest httpRequest
+    ) {
+        Long userId = getCurrentUserId(httpRequest);
+        DelegationJobVO job = delegationService.start(request, userId);
+        return ApiResponse.success("批量委托已开始", job);
+    }
+
+    /**
+     * 查询批量委托进度
+     * GET /api/tasks/approval/delegations/{jobId}
+     */
+    @GetMapping("/delegations/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<DelegationJobVO> getDelegation(@PathVariable String jobId) {
+        return ApiResponse.success(delegationService.getJob(jobId));
+    }
+
+    /**
+     * 获取当前用户ID
+     */
+    private Long getCurrentUserId(HttpServletRequest request) {
+        String token = getJwtFromRequest(request);
+        if (token != null) {
+            return jwtUtil.getUserIdFromToken(token);
+        }
+        throw new RuntimeException("无法获取当前用户信息");
+    }
+
+    /**
+     * 从请求头提取JWT Token
+     */
+    private String getJwtFromRequest(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
+        if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+        return null;
+    }
+}
@@ -1,14 +1,24 @@
 package com.example.springboottest.controller;
 
 import com.example.springboottest.DTO.*;
+import com.example.springboottest.service.ApprovalLatencyService;
+import com.example.springboottest.service.ApproverInboxService;
+import com.example.springboottest.service.InboxEventHub;
+import com.example.springboottest.service.TaskArchiveService;
+import com.example.springboottest.service.TaskCounters;
+import com.example.springboottest.service.TaskSearchService;
 import com.example.springboottest.service.TaskService;
 import com.example.springboottest.util.JwtUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
 
 /**
  * 任务控制器
@@ -20,6 +30,12 @@ import org.springframework.web.bind.annotation.*;
 public class TaskController {
 
     private final TaskService taskService;
+    private final ApproverInboxService inboxService;
+    private final InboxEventHub inboxEventHub;
+    private final TaskArchiveService archiveService;
+    private final ApprovalLatencyService latencyService;
+    private final TaskCounters taskCounters;
+    private final TaskSearchService searchService;
     private final JwtUtil jwtUtil;
 
     /**
@@ -99,6 +115,40 @@ public class TaskController {
         return ApiResponse.success(result);
     }
 
+    /**
+     * 游标分页获取我的待办任务（携带 cursor 参数时生效，首页传空值）
+     * GET /api/tasks/pending?cursor=&size=10&withTotal=false
+     */
+    @GetMapping(value = "/pending", params = "cursor")
+    @PreAuthorize("hasRole('USER')")
+    public ApiResponse<CursorPageResult<TaskVO>> getMyPendingTasksByCursor(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            HttpServletRequest httpRequest
+    ) {
+        Long userId = getCurrentUserId(httpRequest);
+        CursorPageResult<TaskVO> result = taskService.getMyPendingTasks(userId, cursor, size, withTotal);
+        return ApiResponse.success(result);
+    }
+
+    /**
+     * 订阅我的待办变更（SSE），替代轮询待办列表
+     * 事件名 inbox，数据为变更类型和任务ID；断线重连时客户端带上 Last-Event-ID 续传，
+     * 收到 RESYNC 时重新拉取待办列表
+     * GET /api/tasks/pending/stream
+     */
+    @GetMapping(value = "/pending/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('USER')")
+    public SseEmitter streamMyPendingChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            HttpServletRequest httpRequest
+    ) {
+        Long userId = getCurrentUserId(httpRequest);
+        String resumeFrom = lastEventId != null && !lastEventId.isBlank() ? lastEventId.trim() : null;
+        return inboxEventHub.subscribe(userId, resumeFrom);
+    }
+
     /**
      * 获取我创建的任务
      * GET /api/tasks/created
@@ -115,6 +165,23 @@ public class TaskController {
         return ApiResponse.success(result);
     }
 
+    /**
+     * 游标分页获取我创建的任务（携带 cursor 参数时生效，首页传空值）
+     * GET /api/tasks/created?cursor=&size=10&withTotal=false
+     */
+    @GetMapping(value = "/created", params = "cursor")
+    @PreAuthorize("hasRole('USER')")
+    public ApiResponse<CursorPageResult<TaskVO>> getMyCreatedTasksByCursor(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            HttpServletRequest httpRequest
+    ) {
+        Long userId = getCurrentUserId(httpRequest);
+        CursorPageResult<TaskVO> result = taskService.getMyCreatedTasks(userId, cursor, size, withTotal);
+        return ApiResponse.success(result);
+    }
+
     /**
      * 获取我审批过的任务
      * GET /api/tasks/approved
@@ -131,6 +198,100 @@ public class TaskController {
         return ApiResponse.success(result);
     }
 
+    /**
+     * 游标分页获取我审批过的任务（携带 cursor 参数时生效，首页传空值）
+     * GET /api/tasks/approved?cursor=&size=10&withTotal=false
+     */
+    @GetMapping(value = "/approved", params = "cursor")
+    @PreAuthorize("hasRole('USER')")
+    public ApiResponse<CursorPageResult<TaskVO>> getMyApprovedTasksByCursor(
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal,
+            HttpServletRequest httpRequest
+    ) {
+        Long userId = getCurrentUserId(httpRequest);
+        CursorPageResult<TaskVO> result = taskService.getMyApprovedTasks(userId, cursor, size, withTotal);
+        return ApiResponse.success(result);
+    }
+
+    /**
+     * 搜索任务（标题、内容关键词，空格分隔取交集，OR 取并集，-排除，*前缀匹配）
+     * 非管理员只返回自己创建的和自己是审批人的任务
+     * GET /api/tasks/search?q=报销 差旅&status=PENDING&cursor=&size=10
+     */
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('USER')")
+    public ApiResponse<TaskSearchResultVO> searchTasks(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String taskType,
+            @RequestParam(required = false) Long creatorId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            HttpServletRequest httpRequest
+    ) {
+        Long userId = getCurrentUserId(httpRequest);
+        boolean admin = httpRequest.isUserInRole("ADMIN");
+        TaskSearchResultVO result = taskService.searchTasks(q, status, taskType, creatorId, userId, admin,
+                cursor, size);
+        return ApiResponse.success(result);
+    }
+
+    /**
+     * 从数据库重建任务搜索索引（后台执行）
+     * POST /api/tasks/search/rebuild
+     */
+    @PostMapping("/search/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<Boolean> rebuildSearchIndex() {
+        boolean started = searchService.rebuildAsync();
+        return ApiResponse.success(started ? "搜索索引开始重建" : "搜索索引正在重建", started);
+    }
+
+    /**
+     * 根据审批记录重建审批人待办箱
+     * POST /api/tasks/inbox/rebuild
+     */
+    @PostMapping("/inbox/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<Integer> rebuildInbox() {
+        int count = inboxService.rebuild();
+        return ApiResponse.success("待办箱重建完成", count);
+    }
+
+    /**
+     * 立即归档结束超过保留天数的任务
+     * POST /api/tasks/archive/run
+     */
+    @PostMapping("/archive/run")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<Integer> runArchive() {
+        int count = archiveService.archive();
+        return ApiResponse.success("任务归档完成", count);
+    }
+
+    /**
+     * 各审批节点耗时统计（次数、平均、P50/P95/P99）
+     * GET /api/tasks/stats/nodes?flowId=1
+     */
+    @GetMapping("/stats/nodes")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<List<NodeLatencyStatsVO>> getNodeLatencyStats(@RequestParam(required = false) Long flowId) {
+        List<NodeLatencyStatsVO> stats = latencyService.getNodeStats(flowId);
+        return ApiResponse.success(stats);
+    }
+
+    /**
+     * 按状态、任务类型、优先级统计的任务数（内存计数，定时与数据库对账）
+     * GET /api/tasks/stats/counts
+     */
+    @GetMapping("/stats/counts")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ApiResponse<TaskCountStatsVO> getTaskCounts() {
+        return ApiResponse.success(taskCounters.getStats());
+    }
+
     /**
      * 获取当前用户ID
      */
@@ -0,0 +1,42 @@
+package com.example.springboottest.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 审批节点耗时直方图桶实体（按审批流、节点、桶序号累计）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("approval_node_latency")
+public class ApprovalNodeLatency {
+
+    @TableField("flow_id")
+    private Long flowId;
+
+    @TableField("node_id")
+    private Long nodeId;
+
+    /**
+     * 桶序号，见 LatencyHistogram
+     */
+    @TableField("bucket")
+    private Integer bucket;
+
+    @TableField("sample_count")
+    private Long sampleCount;
+
+    /**
+     * 桶内样本的耗时总和（毫秒）
+     */
+    @TableField("total_ms")
+    private Long totalMs;
+
+    @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,39 @@
+package com.example.springboottest.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 审批人待办箱实体（待办列表的读模型）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("approver_inbox")
+public class ApproverInbox {
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    @TableField("approver_id")
+    private Long approverId;
+
+    @TableField("task_id")
+    private Long taskId;
+
+    @TableField("node_id")
+    private Long nodeId;
+
+    @TableField("priority")
+    private Integer priority;
+
+    @TableField("task_created_at")
+    private LocalDateTime taskCreatedAt;
+
+    @TableField(value = "created_at", fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+}
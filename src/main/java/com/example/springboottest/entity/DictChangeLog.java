@@ -0,0 +1,35 @@
+package com.example.springboottest.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 字典变更日志实体
+ * version 即字典版本号，每次字典或字典项变更在同一事务内写入一条（修改编码时新旧编码各一条）。
+ * 版本号由 dict_version 计数器在变更事务内加行锁分配，按提交顺序递增，不使用自增主键
+ * （自增值在插入时分配，并发事务可能先提交较大的版本号，已同步到该版本的客户端会漏掉较小的版本）
+ */
+@Data
+@TableName("dict_change_log")
+public class DictChangeLog {
+
+    @TableId(value = "version", type = IdType.INPUT)
+    private Long version;
+
+    @TableField("dict_id")
+    private Long dictId;
+
+    @TableField("dict_code")
+    private String dictCode;
+
+    @TableField("item_id")
+    private Long itemId;
+
+    @TableField("change_type")
+    private String changeType;
+
+    @TableField("create_time")
+    private LocalDateTime createTime;
+}
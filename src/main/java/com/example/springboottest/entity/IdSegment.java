@@ -0,0 +1,33 @@
+package com.example.springboottest.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 号段实体
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("id_segment")
+public class IdSegment {
+
+    @TableId(value = "biz_tag", type = IdType.INPUT)
+    private String bizTag;
+
+    @TableField("max_id")
+    private Long maxId;
+
+    @TableField("step")
+    private Integer step;
+
+    @TableField(value = "created_at", fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+}
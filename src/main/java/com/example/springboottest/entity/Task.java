@@ -63,4 +63,11 @@ public class Task {
 
     @TableField("completed_at")
     private LocalDateTime completedAt;
+
+    /**
+     * 版本号（乐观锁），按ID更新时校验并加一
+     */
+    @Version
+    @TableField("version")
+    private Integer version;
 }
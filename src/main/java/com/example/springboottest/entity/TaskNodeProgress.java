@@ -0,0 +1,48 @@
+package com.example.springboottest.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务节点审批进度实体
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("task_node_progress")
+public class TaskNodeProgress {
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    @TableField("task_id")
+    private Long taskId;
+
+    @TableField("node_id")
+    private Long nodeId;
+
+    @TableField("node_order")
+    private Integer nodeOrder;
+
+    @TableField("required_count")
+    private Integer requiredCount;
+
+    @TableField("approved_count")
+    private Integer approvedCount;
+
+    @TableField("completed")
+    private Integer completed;
+
+    @TableField("entered_at")
+    private LocalDateTime enteredAt;
+
+    @TableField("deadline_at")
+    private LocalDateTime deadlineAt;
+
+    @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+}
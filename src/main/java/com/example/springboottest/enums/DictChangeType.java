@@ -0,0 +1,24 @@
+package com.example.springboottest.enums;
+
+import lombok.Getter;
+
+/**
+ * 字典变更类型枚举
+ */
+@Getter
+public enum DictChangeType {
+    DICT_CREATED("新增字典", "创建字典"),
+    DICT_UPDATED("修改字典", "修改字典名称、编码、状态等"),
+    DICT_DELETED("删除字典", "删除字典及其全部字典项"),
+    ITEM_CREATED("新增字典项", "在字典下创建字典项"),
+    ITEM_UPDATED("修改字典项", "修改字典项标签、值、排序、状态等"),
+    ITEM_DELETED("删除字典项", "删除字典项");
+
+    private final String displayName;
+    private final String description;
+
+    DictChangeType(String displayName, String description) {
+        this.displayName = displayName;
+        this.description = description;
+    }
+}
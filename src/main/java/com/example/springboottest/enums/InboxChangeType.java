@@ -0,0 +1,22 @@
+package com.example.springboottest.enums;
+
+import lombok.Getter;
+
+/**
+ * 待办变更类型枚举
+ */
+@Getter
+public enum InboxChangeType {
+    ADDED("新增", "任务进入审批人的待办"),
+    REMOVED("移除", "任务离开审批人的待办"),
+    CHANGED("变更", "任务仍在待办中，但所在节点等信息已变化"),
+    RESYNC("重新同步", "无法增量续传，客户端需重新拉取待办列表");
+
+    private final String displayName;
+    private final String description;
+
+    InboxChangeType(String displayName, String description) {
+        this.displayName = displayName;
+        this.description = description;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.springboottest.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 审批人对节点作出审批/驳回事件（事务提交后处理）
+ */
+@Getter
+@AllArgsConstructor
+public class ApprovalDecidedEvent {
+
+    private final Long flowId;
+    private final Long nodeId;
+
+    /**
+     * 审批结果：APPROVED、REJECTED
+     */
+    private final String result;
+
+    /**
+     * 从进入节点到作出决定的耗时（毫秒）
+     */
+    private final long latencyMs;
+}
@@ -0,0 +1,22 @@
+package com.example.springboottest.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务进入审批节点事件（事务提交后处理）
+ */
+@Getter
+@AllArgsConstructor
+public class ApprovalNodeEnteredEvent {
+
+    private final Long taskId;
+    private final Long nodeId;
+
+    /**
+     * 节点超时时间，未配置超时为 null
+     */
+    private final LocalDateTime deadlineAt;
+}
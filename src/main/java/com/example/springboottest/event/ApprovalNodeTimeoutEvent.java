@@ -0,0 +1,17 @@
+package com.example.springboottest.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 审批节点超时升级事件（节点未配置自动通过时发布，供通知等后续处理订阅）
+ */
+@Getter
+@AllArgsConstructor
+public class ApprovalNodeTimeoutEvent {
+
+    private final Long taskId;
+    private final String taskNo;
+    private final Long nodeId;
+    private final String nodeName;
+}
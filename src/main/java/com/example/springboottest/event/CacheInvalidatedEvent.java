@@ -0,0 +1,20 @@
+package com.example.springboottest.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * 收到其他实例的缓存失效消息并已在本实例清除后发布
+ * 监听方在此事件中清除的缓存只在本实例生效，不会再次广播
+ */
+@Getter
+@AllArgsConstructor
+public class CacheInvalidatedEvent {
+
+    /**
+     * 有键被清除或被整体清空的缓存名
+     */
+    private final Set<String> cacheNames;
+}
@@ -0,0 +1,28 @@
+package com.example.springboottest.event;
+
+import com.example.springboottest.enums.InboxChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 审批人待办变更事件（事务提交后推送给在线的审批人）
+ */
+@Getter
+@AllArgsConstructor
+public class InboxChangedEvent {
+
+    private final InboxChangeType type;
+    private final Long taskId;
+
+    /**
+     * 任务当前节点ID，移除时为 null
+     */
+    private final Long nodeId;
+
+    /**
+     * 受影响的审批人，为 null 表示全部在线用户（重新同步）
+     */
+    private final List<Long> approverIds;
+}
@@ -0,0 +1,14 @@
+package com.example.springboottest.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 任务变更事件（提交、撤回、审批通过、驳回、转交、超时自动通过后发布，用于剔除任务详情缓存等）
+ */
+@Getter
+@AllArgsConstructor
+public class TaskChangedEvent {
+
+    private final Long taskId;
+}
@@ -0,0 +1,23 @@
+package com.example.springboottest.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 任务状态变更事件（事务提交后处理）
+ */
+@Getter
+@AllArgsConstructor
+public class TaskStatusChangedEvent {
+
+    private final Long taskId;
+    private final String taskType;
+    private final Integer priority;
+
+    /**
+     * 变更前状态，新建任务为 null
+     */
+    private final String fromStatus;
+
+    private final String toStatus;
+}
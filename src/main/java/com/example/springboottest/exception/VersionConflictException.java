@@ -0,0 +1,12 @@
+package com.example.springboottest.exception;
+
+/**
+ * 版本冲突异常
+ * 按版本号更新时版本号已变化，说明数据已被其他请求修改
+ */
+public class VersionConflictException extends BusinessException {
+
+    public VersionConflictException(String message) {
+        super(409, message);
+    }
+}
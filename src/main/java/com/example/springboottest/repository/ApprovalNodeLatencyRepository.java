@@ -0,0 +1,36 @@
+package com.example.springboottest.repository;
+
+import com.example.springboottest.entity.ApprovalNodeLatency;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * 审批节点耗时直方图Repository
+ * 主键为 (flow_id, node_id, bucket) 联合主键，不继承 BaseMapper（按单列主键生成的方法用不上）
+ */
+@Mapper
+public interface ApprovalNodeLatencyRepository {
+
+    /**
+     * 查询全部桶
+     */
+    @Select("SELECT flow_id, node_id, bucket, sample_count, total_ms, updated_at FROM approval_node_latency")
+    List<ApprovalNodeLatency> selectAll();
+
+    /**
+     * 批量累加桶的样本数和耗时总和（多实例各自累加增量，互不覆盖）
+     */
+    @Insert("<script>" +
+            "INSERT INTO approval_node_latency (flow_id, node_id, bucket, sample_count, total_ms, updated_at) VALUES " +
+            "<foreach collection='rows' item='r' separator=','>" +
+            "(#{r.flowId}, #{r.nodeId}, #{r.bucket}, #{r.sampleCount}, #{r.totalMs}, NOW())" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE sample_count = sample_count + VALUES(sample_count), " +
+            "total_ms = total_ms + VALUES(total_ms), updated_at = VALUES(updated_at)" +
+            "</script>")
+    int accumulateBatch(@Param("rows") List<ApprovalNodeLatency> rows);
+}
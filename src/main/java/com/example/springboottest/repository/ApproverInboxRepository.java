@@ -0,0 +1,117 @@
+package com.example.springboottest.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.springboottest.entity.ApproverInbox;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 审批人待办箱Repository
+ */
+@Mapper
+public interface ApproverInboxRepository extends BaseMapper<ApproverInbox> {
+
+    /**
+     * 批量写入待办（同一审批人同一任务只保留一条）
+     */
+    @Insert("<script>" +
+            "INSERT INTO approver_inbox (approver_id, task_id, node_id, priority, task_created_at) VALUES " +
+            "<foreach collection='approverIds' item='approverId' separator=','>" +
+            "(#{approverId}, #{taskId}, #{nodeId}, #{priority}, #{taskCreatedAt})" +
+            "</foreach>" +
+            " ON DUPLICATE KEY UPDATE node_id = VALUES(node_id), priority = VALUES(priority)" +
+            "</script>")
+    int insertBatch(@Param("taskId") Long taskId,
+                    @Param("nodeId") Long nodeId,
+                    @Param("priority") Integer priority,
+                    @Param("taskCreatedAt") LocalDateTime taskCreatedAt,
+                    @Param("approverIds") List<Long> approverIds);
+
+    /**
+     * 删除审批人在任务上的待办
+     */
+    @Delete("DELETE FROM approver_inbox WHERE task_id = #{taskId} AND approver_id = #{approverId}")
+    int deleteByTaskIdAndApproverId(@Param("taskId") Long taskId, @Param("approverId") Long approverId);
+
+    /**
+     * 把委托人在指定任务上的待办复制给受托人
+     */
+    @Insert("<script>" +
+            "INSERT INTO approver_inbox (approver_id, task_id, node_id, priority, task_created_at) " +
+            "SELECT #{toUserId}, task_id, node_id, priority, task_created_at FROM approver_inbox " +
+            "WHERE approver_id = #{fromUserId} AND task_id IN " +
+            "<foreach collection='taskIds' item='taskId' open='(' separator=',' close=')'>#{taskId}</foreach>" +
+            " ON DUPLICATE KEY UPDATE node_id = VALUES(node_id)" +
+            "</script>")
+    int copyToApprover(@Param("fromUserId") Long fromUserId,
+                       @Param("toUserId") Long toUserId,
+                       @Param("taskIds") List<Long> taskIds);
+
+    /**
+     * 删除审批人在指定任务上的待办
+     */
+    @Delete("<script>" +
+            "DELETE FROM approver_inbox WHERE approver_id = #{approverId} AND task_id IN " +
+            "<foreach collection='taskIds' item='taskId' open='(' separator=',' close=')'>#{taskId}</foreach>" +
+            "</script>")
+    int deleteByApproverIdAndTaskIds(@Param("approverId") Long approverId, @Param("taskIds") List<Long> taskIds);
+
+    /**
+     * 删除任务的全部待办
+     */
+    @Delete("DELETE FROM approver_inbox WHERE task_id = #{taskId}")
+    int deleteByTaskId(@Param("taskId") Long taskId);
+
+    /**
+     * 查询任务当前的待办审批人
+     */
+    @Select("SELECT approver_id FROM approver_inbox WHERE task_id = #{taskId}")
+    List<Long> selectApproverIdsByTaskId(@Param("taskId") Long taskId);
+
+    /**
+     * 分页查询审批人的待办（按任务创建时间倒序）
+     */
+    @Select("SELECT * FROM approver_inbox WHERE approver_id = #{approverId} " +
+            "ORDER BY task_created_at DESC, task_id DESC")
+    IPage<ApproverInbox> selectPageByApproverId(Page<ApproverInbox> page, @Param("approverId") Long approverId);
+
+    /**
+     * 游标分页查询审批人的待办（seek 到 (task_created_at, task_id) 之后）
+     */
+    @Select("<script>" +
+            "SELECT * FROM approver_inbox WHERE approver_id = #{approverId} " +
+            "<if test='afterTime != null'>" +
+            "AND (task_created_at &lt; #{afterTime} OR (task_created_at = #{afterTime} AND task_id &lt; #{afterId})) " +
+            "</if>" +
+            "ORDER BY task_created_at DESC, task_id DESC LIMIT #{limit}" +
+            "</script>")
+    List<ApproverInbox> selectByApproverIdAfter(@Param("approverId") Long approverId,
+                                                @Param("afterTime") LocalDateTime afterTime,
+                                                @Param("afterId") Long afterId,
+                                                @Param("limit") int limit);
+
+    /**
+     * 清空待办箱（重建时使用）
+     */
+    @Delete("DELETE FROM approver_inbox")
+    int deleteAll();
+
+    /**
+     * 从审批记录回填待办：任务可审批且记录位于任务当前节点
+     */
+    @Insert("INSERT INTO approver_inbox (approver_id, task_id, node_id, priority, task_created_at) " +
+            "SELECT r.approver_id, t.id, t.current_node_id, t.priority, t.created_at " +
+            "FROM task_approval_records r INNER JOIN tasks t ON t.id = r.task_id " +
+            "WHERE r.result = 'PENDING' AND t.status IN ('PENDING', 'IN_PROGRESS') " +
+            "AND r.node_id = t.current_node_id " +
+            "GROUP BY r.approver_id, t.id, t.current_node_id, t.priority, t.created_at")
+    int backfillFromRecords();
+}
@@ -0,0 +1,49 @@
+package com.example.springboottest.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.springboottest.entity.DictChangeLog;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * 字典变更日志Repository
+ */
+@Mapper
+public interface DictChangeLogRepository extends BaseMapper<DictChangeLog> {
+
+    /**
+     * 分配 count 个字典版本号：递增计数器并持有行锁到事务结束，之后的变更事务在此等待，版本号按提交顺序分配
+     */
+    @Update("UPDATE dict_version SET version = version + #{count} WHERE id = 1")
+    int incrementVersion(@Param("count") int count);
+
+    /**
+     * 计数器当前值（在 incrementVersion 之后同一事务内读取，即本次分配的最大版本号）
+     */
+    @Select("SELECT version FROM dict_version WHERE id = 1")
+    Long selectAllocatedVersion();
+
+    /**
+     * 当前字典版本号（最大的日志版本号），没有日志时返回 null
+     */
+    @Select("SELECT MAX(version) FROM dict_change_log")
+    Long selectMaxVersion();
+
+    /**
+     * 查询版本号区间 (fromVersion, toVersion] 内的日志，按版本号升序
+     */
+    @Select("SELECT version, dict_id, dict_code, item_id, change_type FROM dict_change_log " +
+            "WHERE version > #{fromVersion} AND version <= #{toVersion} ORDER BY version ASC")
+    List<DictChangeLog> selectBetween(@Param("fromVersion") long fromVersion, @Param("toVersion") long toVersion);
+
+    /**
+     * 删除版本号不大于指定值的日志
+     */
+    @Delete("DELETE FROM dict_change_log WHERE version <= #{version}")
+    int deleteUpTo(@Param("version") long version);
+}
@@ -24,6 +24,13 @@ public interface DictItemRepository extends BaseMapper<DictItem> {
     @Select("SELECT * FROM dict_item WHERE dict_id = #{dictId} AND status = #{status} ORDER BY item_sort ASC, create_time ASC")
     List<DictItem> findByDictIdAndStatus(Long dictId, Integer status);
 
+    /**
+     * 查询启用字典下的全部启用字典项（按字典、排序号排列，加载字典快照用）
+     */
+    @Select("SELECT i.* FROM dict_item i INNER JOIN dict d ON d.id = i.dict_id " +
+            "WHERE d.status = 1 AND i.status = 1 ORDER BY i.dict_id ASC, i.item_sort ASC, i.create_time ASC")
+    List<DictItem> findAllActive();
+
     /**
      * 根据字典项值查找
      */
@@ -0,0 +1,27 @@
+package com.example.springboottest.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.springboottest.entity.IdSegment;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+/**
+ * 号段Repository
+ */
+@Mapper
+public interface IdSegmentRepository extends BaseMapper<IdSegment> {
+
+    /**
+     * 初始化业务号段（已存在时忽略）
+     */
+    @Insert("INSERT IGNORE INTO id_segment (biz_tag, max_id, step) VALUES (#{bizTag}, #{maxId}, #{step})")
+    int insertIgnore(@Param("bizTag") String bizTag, @Param("maxId") Long maxId, @Param("step") Integer step);
+
+    /**
+     * 领取下一个号段：max_id 前移一个步长
+     */
+    @Update("UPDATE id_segment SET max_id = max_id + step WHERE biz_tag = #{bizTag}")
+    int advanceMaxId(@Param("bizTag") String bizTag);
+}
@@ -0,0 +1,36 @@
+package com.example.springboottest.repository;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+/**
+ * 定时任务锁Repository
+ * 每个任务一行，实例以条件更新抢占租约（到期时间取数据库时间，不受实例时钟偏差影响）
+ */
+@Mapper
+public interface JobLockRepository {
+
+    /**
+     * 初始化任务的锁行（已存在时忽略）
+     */
+    @Insert("INSERT IGNORE INTO job_lock (job_name, owner, locked_until) VALUES (#{jobName}, '', NOW())")
+    int insertIfAbsent(@Param("jobName") String jobName);
+
+    /**
+     * 租约已到期或由本实例持有时获取（续期）租约，返回1表示获取成功
+     */
+    @Update("UPDATE job_lock SET owner = #{owner}, " +
+            "locked_until = DATE_ADD(NOW(), INTERVAL #{leaseSeconds} SECOND) " +
+            "WHERE job_name = #{jobName} AND (locked_until < NOW() OR owner = #{owner})")
+    int tryAcquire(@Param("jobName") String jobName,
+                   @Param("owner") String owner,
+                   @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * 释放本实例持有的租约
+     */
+    @Update("UPDATE job_lock SET locked_until = NOW() WHERE job_name = #{jobName} AND owner = #{owner}")
+    int release(@Param("jobName") String jobName, @Param("owner") String owner);
+}
@@ -3,8 +3,11 @@ package com.example.springboottest.repository;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.springboottest.entity.Role;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,9 +30,30 @@ public interface RoleRepository extends BaseMapper<Role> {
         return Optional.ofNullable(selectByRoleCode(roleCode));
     }
 
+    /**
+     * 按角色编码批量查询启用的角色
+     */
+    @Select("<script>" +
+            "SELECT * FROM roles WHERE status = 1 AND role_code IN " +
+            "<foreach collection='roleCodes' item='roleCode' open='(' separator=',' close=')'>#{roleCode}</foreach>" +
+            "</script>")
+    List<Role> selectByRoleCodes(@Param("roleCodes") Collection<String> roleCodes);
+
     /**
      * 查询所有启用的角色
      */
     @Select("SELECT * FROM roles WHERE status = 1 ORDER BY created_at DESC")
     List<Role> selectAllActive();
+
+    /**
+     * 查询角色表最近的更新时间
+     */
+    @Select("SELECT MAX(updated_at) FROM roles")
+    LocalDateTime selectMaxUpdatedAt();
+
+    /**
+     * 查询指定时间之后更新过的角色编码
+     */
+    @Select("SELECT role_code FROM roles WHERE updated_at >= #{since}")
+    List<String> selectRoleCodesUpdatedSince(@Param("since") LocalDateTime since);
 }
@@ -2,6 +2,7 @@ package com.example.springboottest.repository;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.springboottest.entity.TaskApprovalNode;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -21,6 +22,19 @@ public interface TaskApprovalNodeRepository extends BaseMapper<TaskApprovalNode>
     @Select("SELECT * FROM task_approval_nodes WHERE flow_id = #{flowId} ORDER BY node_order ASC")
     List<TaskApprovalNode> selectByFlowId(Long flowId);
 
+    /**
+     * 批量写入审批节点（创建、更新审批流时一条语句写入全部节点）
+     */
+    @Insert("<script>" +
+            "INSERT INTO task_approval_nodes (flow_id, node_code, node_name, node_order, approval_type, " +
+            "approver_type, approver_ids, approver_roles, auto_pass, timeout_hours) VALUES " +
+            "<foreach collection='nodes' item='node' separator=','>" +
+            "(#{node.flowId}, #{node.nodeCode}, #{node.nodeName}, #{node.nodeOrder}, #{node.approvalType}, " +
+            "#{node.approverType}, #{node.approverIds}, #{node.approverRoles}, #{node.autoPass}, #{node.timeoutHours})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("nodes") List<TaskApprovalNode> nodes);
+
     /**
      * 查询审批流的第一个节点
      */
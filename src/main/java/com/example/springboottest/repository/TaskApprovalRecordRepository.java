@@ -2,10 +2,13 @@ package com.example.springboottest.repository;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.springboottest.entity.TaskApprovalRecord;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -14,6 +17,17 @@ import java.util.List;
 @Mapper
 public interface TaskApprovalRecordRepository extends BaseMapper<TaskApprovalRecord> {
 
+    /**
+     * 可委托的待审批记录：委托人在可审批任务当前节点上的待审批记录，受托人已是该节点审批人的除外
+     */
+    String DELEGATABLE_FILTER = "FROM task_approval_records r INNER JOIN tasks t ON t.id = r.task_id " +
+            "WHERE r.approver_id = #{fromUserId} AND r.result = 'PENDING' " +
+            "AND t.status IN ('PENDING', 'IN_PROGRESS') AND r.node_id = t.current_node_id " +
+            "<if test='flowId != null'>AND t.flow_id = #{flowId} </if>" +
+            "<if test='taskType != null'>AND t.task_type = #{taskType} </if>" +
+            "AND NOT EXISTS (SELECT 1 FROM task_approval_records r2 WHERE r2.task_id = r.task_id " +
+            "AND r2.node_id = r.node_id AND r2.approver_id = #{toUserId} AND r2.result = 'PENDING') ";
+
     /**
      * 查询任务的所有审批记录（按时间倒序）
      */
@@ -56,4 +70,115 @@ public interface TaskApprovalRecordRepository extends BaseMapper<TaskApprovalRec
      */
     @Select("DELETE FROM task_approval_records WHERE task_id = #{taskId} AND node_order > #{nodeOrder}")
     int deleteByTaskIdAndNodeOrderGreaterThan(@Param("taskId") Long taskId, @Param("nodeOrder") Integer nodeOrder);
+
+    /**
+     * 批量插入审批记录（单条多行INSERT，created_at 使用数据库默认值）
+     */
+    @Insert("<script>" +
+            "INSERT INTO task_approval_records (task_id, node_id, node_name, node_order, approver_id, approver_name, " +
+            "action, result, comment, approval_time) VALUES " +
+            "<foreach collection='records' item='r' separator=','>" +
+            "(#{r.taskId}, #{r.nodeId}, #{r.nodeName}, #{r.nodeOrder}, #{r.approverId}, #{r.approverName}, " +
+            "#{r.action}, #{r.result}, #{r.comment}, #{r.approvalTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("records") List<TaskApprovalRecord> records);
+
+    /**
+     * 游标分页查询用户对每个任务最近一次的审批/驳回记录（按 approval_time, id 倒序）
+     * 沿 idx_approver_time (approver_id, approval_time, id) 倒序扫描，结果条件在定位后过滤，不需要排序
+     */
+    @Select("<script>" +
+            "SELECT r.* FROM task_approval_records r " +
+            "WHERE r.approver_id = #{userId} AND r.result IN ('APPROVED', 'REJECTED') " +
+            "AND NOT EXISTS (SELECT 1 FROM task_approval_records r2 " +
+            "WHERE r2.task_id = r.task_id AND r2.approver_id = r.approver_id " +
+            "AND r2.result IN ('APPROVED', 'REJECTED') " +
+            "AND (r2.approval_time &gt; r.approval_time OR (r2.approval_time = r.approval_time AND r2.id &gt; r.id))) " +
+            "<if test='afterTime != null'>" +
+            "AND (r.approval_time &lt; #{afterTime} OR (r.approval_time = #{afterTime} AND r.id &lt; #{afterId})) " +
+            "</if>" +
+            "ORDER BY r.approval_time DESC, r.id DESC LIMIT #{limit}" +
+            "</script>")
+    List<TaskApprovalRecord> selectLatestDecisionsAfter(@Param("userId") Long userId,
+                                                        @Param("afterTime") LocalDateTime afterTime,
+                                                        @Param("afterId") Long afterId,
+                                                        @Param("limit") int limit);
+
+    /**
+     * 查询用户是审批人的任务ID（含待审批和已审批，升序）
+     */
+    @Select("SELECT DISTINCT task_id FROM task_approval_records WHERE approver_id = #{userId} ORDER BY task_id")
+    List<Long> selectTaskIdsByApproverId(@Param("userId") Long userId);
+
+    /**
+     * 统计用户审批/驳回过的任务数
+     */
+    @Select("SELECT COUNT(DISTINCT task_id) FROM task_approval_records " +
+            "WHERE approver_id = #{userId} AND result IN ('APPROVED', 'REJECTED')")
+    Long countDecidedTasksByApproverId(@Param("userId") Long userId);
+
+    /**
+     * 统计可委托的待审批记录数
+     */
+    @Select("<script>SELECT COUNT(*) " + DELEGATABLE_FILTER + "</script>")
+    Long countDelegatable(@Param("fromUserId") Long fromUserId,
+                          @Param("toUserId") Long toUserId,
+                          @Param("flowId") Long flowId,
+                          @Param("taskType") String taskType);
+
+    /**
+     * 按记录ID顺序查询一块可委托的待审批记录ID
+     */
+    @Select("<script>SELECT r.id " + DELEGATABLE_FILTER +
+            "AND r.id &gt; #{afterId} ORDER BY r.id ASC LIMIT #{limit}</script>")
+    List<Long> selectDelegatableIds(@Param("fromUserId") Long fromUserId,
+                                    @Param("toUserId") Long toUserId,
+                                    @Param("flowId") Long flowId,
+                                    @Param("taskType") String taskType,
+                                    @Param("afterId") Long afterId,
+                                    @Param("limit") int limit);
+
+    /**
+     * 批量把仍为待审批的记录置为已转交（以 transferTime 标记本次转交）
+     */
+    @Update("<script>" +
+            "UPDATE task_approval_records SET action = 'TRANSFER', result = 'TRANSFERRED', comment = #{comment}, " +
+            "transfer_to_user_id = #{toUserId}, transfer_to_user_name = #{toUserName}, approval_time = #{transferTime} " +
+            "WHERE approver_id = #{fromUserId} AND result = 'PENDING' AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int markTransferred(@Param("ids") List<Long> ids,
+                        @Param("fromUserId") Long fromUserId,
+                        @Param("toUserId") Long toUserId,
+                        @Param("toUserName") String toUserName,
+                        @Param("comment") String comment,
+                        @Param("transferTime") LocalDateTime transferTime);
+
+    /**
+     * 查询本次转交成功的记录所属任务
+     */
+    @Select("<script>" +
+            "SELECT DISTINCT task_id FROM task_approval_records " +
+            "WHERE result = 'TRANSFERRED' AND transfer_to_user_id = #{toUserId} AND approval_time = #{transferTime} " +
+            "AND id IN <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Long> selectTransferredTaskIds(@Param("ids") List<Long> ids,
+                                        @Param("toUserId") Long toUserId,
+                                        @Param("transferTime") LocalDateTime transferTime);
+
+    /**
+     * 为本次转交成功的记录一次写入受托人的待审批记录
+     */
+    @Insert("<script>" +
+            "INSERT INTO task_approval_records (task_id, node_id, node_name, node_order, approver_id, approver_name, " +
+            "result) SELECT task_id, node_id, node_name, node_order, #{toUserId}, #{toUserName}, 'PENDING' " +
+            "FROM task_approval_records " +
+            "WHERE result = 'TRANSFERRED' AND transfer_to_user_id = #{toUserId} AND approval_time = #{transferTime} " +
+            "AND id IN <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int insertDelegatedPending(@Param("ids") List<Long> ids,
+                               @Param("toUserId") Long toUserId,
+                               @Param("toUserName") String toUserName,
+                               @Param("transferTime") LocalDateTime transferTime);
 }
@@ -0,0 +1,146 @@
+package com.example.springboottest.repository;
+
+import com.example.springboottest.entity.Task;
+import com.example.springboottest.entity.TaskApprovalRecord;
+import org.apache.ibatis.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 任务归档Repository
+ * 已结束的任务及其审批记录从 tasks / task_approval_records 搬到 tasks_archive / task_approval_records_archive，
+ * 归档表保留原ID，读路径在热表未命中时回退到这里
+ */
+@Mapper
+public interface TaskArchiveRepository {
+
+    String TASK_COLUMNS = "id, task_no, title, content, task_type, priority, status, current_node_id, " +
+            "current_node_order, creator_id, creator_name, flow_id, created_at, updated_at, submitted_at, " +
+            "completed_at, version";
+
+    String RECORD_COLUMNS = "id, task_id, node_id, node_name, node_order, approver_id, approver_name, action, " +
+            "result, comment, reject_to_node_id, transfer_to_user_id, transfer_to_user_name, approval_time, created_at";
+
+    /**
+     * 按ID顺序查询可归档的任务：已结束且结束时间早于 before
+     */
+    @Select("SELECT id FROM tasks WHERE id > #{afterId} " +
+            "AND status IN ('APPROVED', 'WITHDRAWN', 'CANCELLED', 'COMPLETED') " +
+            "AND COALESCE(completed_at, updated_at) < #{before} " +
+            "ORDER BY id ASC LIMIT #{limit}")
+    List<Long> selectArchivableTaskIds(@Param("before") LocalDateTime before,
+                                       @Param("afterId") Long afterId,
+                                       @Param("limit") int limit);
+
+    /**
+     * 复制任务到归档表
+     */
+    @Insert("<script>" +
+            "INSERT INTO tasks_archive (" + TASK_COLUMNS + ", archived_at) " +
+            "SELECT " + TASK_COLUMNS + ", NOW() FROM tasks WHERE id IN " +
+            "<foreach collection='taskIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int copyTasks(@Param("taskIds") List<Long> taskIds);
+
+    /**
+     * 复制任务的审批记录到归档表
+     */
+    @Insert("<script>" +
+            "INSERT INTO task_approval_records_archive (" + RECORD_COLUMNS + ") " +
+            "SELECT " + RECORD_COLUMNS + " FROM task_approval_records WHERE task_id IN " +
+            "<foreach collection='taskIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int copyRecords(@Param("taskIds") List<Long> taskIds);
+
+    /**
+     * 删除热表中的审批记录
+     */
+    @Delete("<script>" +
+            "DELETE FROM task_approval_records WHERE task_id IN " +
+            "<foreach collection='taskIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteRecords(@Param("taskIds") List<Long> taskIds);
+
+    /**
+     * 删除热表中的节点进度
+     */
+    @Delete("<script>" +
+            "DELETE FROM task_node_progress WHERE task_id IN " +
+            "<foreach collection='taskIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteProgress(@Param("taskIds") List<Long> taskIds);
+
+    /**
+     * 删除热表中的待办（已结束的任务通常没有）
+     */
+    @Delete("<script>" +
+            "DELETE FROM approver_inbox WHERE task_id IN " +
+            "<foreach collection='taskIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteInbox(@Param("taskIds") List<Long> taskIds);
+
+    /**
+     * 删除热表中的任务
+     */
+    @Delete("<script>" +
+            "DELETE FROM tasks WHERE id IN " +
+            "<foreach collection='taskIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteTasks(@Param("taskIds") List<Long> taskIds);
+
+    /**
+     * 查询已归档的任务
+     */
+    @Select("SELECT " + TASK_COLUMNS + " FROM tasks_archive WHERE id = #{id}")
+    Task selectTaskById(@Param("id") Long id);
+
+    /**
+     * 批量查询已归档的任务
+     */
+    @Select("<script>" +
+            "SELECT " + TASK_COLUMNS + " FROM tasks_archive WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Task> selectTasksByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * 查询已归档任务的审批记录
+     */
+    @Select("SELECT " + RECORD_COLUMNS + " FROM task_approval_records_archive WHERE task_id = #{taskId} " +
+            "ORDER BY node_order ASC, created_at DESC")
+    List<TaskApprovalRecord> selectRecordsByTaskId(@Param("taskId") Long taskId);
+
+    /**
+     * 游标分页查询用户在已归档任务上的最近一次审批/驳回记录（与热表查询条件、索引一致）
+     */
+    @Select("<script>" +
+            "SELECT r.* FROM task_approval_records_archive r " +
+            "WHERE r.approver_id = #{userId} AND r.result IN ('APPROVED', 'REJECTED') " +
+            "AND NOT EXISTS (SELECT 1 FROM task_approval_records_archive r2 " +
+            "WHERE r2.task_id = r.task_id AND r2.approver_id = r.approver_id " +
+            "AND r2.result IN ('APPROVED', 'REJECTED') " +
+            "AND (r2.approval_time &gt; r.approval_time OR (r2.approval_time = r.approval_time AND r2.id &gt; r.id))) " +
+            "<if test='afterTime != null'>" +
+            "AND (r.approval_time &lt; #{afterTime} OR (r.approval_time = #{afterTime} AND r.id &lt; #{afterId})) " +
+            "</if>" +
+            "ORDER BY r.approval_time DESC, r.id DESC LIMIT #{limit}" +
+            "</script>")
+    List<TaskApprovalRecord> selectLatestDecisionsAfter(@Param("userId") Long userId,
+                                                        @Param("afterTime") LocalDateTime afterTime,
+                                                        @Param("afterId") Long afterId,
+                                                        @Param("limit") int limit);
+
+    /**
+     * 统计用户审批/驳回过的已归档任务数
+     */
+    @Select("SELECT COUNT(DISTINCT task_id) FROM task_approval_records_archive " +
+            "WHERE approver_id = #{userId} AND result IN ('APPROVED', 'REJECTED')")
+    Long countDecidedTasksByApproverId(@Param("userId") Long userId);
+
+    /**
+     * 归档表中最晚的审批时间（早于它的审批记录才可能在归档表中）
+     */
+    @Select("SELECT MAX(approval_time) FROM task_approval_records_archive")
+    LocalDateTime selectMaxApprovalTime();
+}
@@ -0,0 +1,107 @@
+package com.example.springboottest.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.springboottest.entity.TaskNodeProgress;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 任务节点审批进度Repository
+ */
+@Mapper
+public interface TaskNodeProgressRepository extends BaseMapper<TaskNodeProgress> {
+
+    /**
+     * 进入节点：初始化进度，重复进入（如驳回后重新审批）时清零
+     */
+    @Insert("INSERT INTO task_node_progress (task_id, node_id, node_order, required_count, approved_count, completed, " +
+            "entered_at, deadline_at) " +
+            "VALUES (#{taskId}, #{nodeId}, #{nodeOrder}, #{requiredCount}, 0, 0, NOW(), #{deadlineAt}) " +
+            "ON DUPLICATE KEY UPDATE node_order = VALUES(node_order), required_count = VALUES(required_count), " +
+            "approved_count = 0, completed = 0, entered_at = VALUES(entered_at), deadline_at = VALUES(deadline_at)")
+    int upsertEntered(@Param("taskId") Long taskId,
+                      @Param("nodeId") Long nodeId,
+                      @Param("nodeOrder") Integer nodeOrder,
+                      @Param("requiredCount") Integer requiredCount,
+                      @Param("deadlineAt") LocalDateTime deadlineAt);
+
+    /**
+     * 查询进入节点的时间
+     */
+    @Select("SELECT entered_at FROM task_node_progress WHERE task_id = #{taskId} AND node_id = #{nodeId}")
+    LocalDateTime selectEnteredAt(@Param("taskId") Long taskId, @Param("nodeId") Long nodeId);
+
+    /**
+     * 是否存在进度行（上线前已进入节点的旧任务没有）
+     */
+    @Select("SELECT COUNT(*) FROM task_node_progress WHERE task_id = #{taskId} AND node_id = #{nodeId}")
+    int countByTaskIdAndNodeId(@Param("taskId") Long taskId, @Param("nodeId") Long nodeId);
+
+    /**
+     * 已通过人数加一，返回0表示没有进度行（旧数据）或节点已完成
+     */
+    @Update("UPDATE task_node_progress SET approved_count = approved_count + 1 " +
+            "WHERE task_id = #{taskId} AND node_id = #{nodeId} AND completed = 0")
+    int incrementApproved(@Param("taskId") Long taskId, @Param("nodeId") Long nodeId);
+
+    /**
+     * 人数已满足时标记节点完成，返回1表示本次调用完成了该节点
+     */
+    @Update("UPDATE task_node_progress SET completed = 1 " +
+            "WHERE task_id = #{taskId} AND node_id = #{nodeId} AND completed = 0 " +
+            "AND approved_count >= required_count")
+    int markCompleted(@Param("taskId") Long taskId, @Param("nodeId") Long nodeId);
+
+    /**
+     * 超时自动通过：直接标记节点完成，返回1表示本次调用完成了该节点
+     */
+    @Update("UPDATE task_node_progress SET completed = 1 " +
+            "WHERE task_id = #{taskId} AND node_id = #{nodeId} AND completed = 0 AND deadline_at = #{deadlineAt}")
+    int forceCompleted(@Param("taskId") Long taskId,
+                       @Param("nodeId") Long nodeId,
+                       @Param("deadlineAt") LocalDateTime deadlineAt);
+
+    /**
+     * 超时升级已处理：清除超时时间，返回1表示本次调用认领了该超时
+     */
+    @Update("UPDATE task_node_progress SET deadline_at = NULL " +
+            "WHERE task_id = #{taskId} AND node_id = #{nodeId} AND completed = 0 AND deadline_at = #{deadlineAt}")
+    int clearDeadline(@Param("taskId") Long taskId,
+                      @Param("nodeId") Long nodeId,
+                      @Param("deadlineAt") LocalDateTime deadlineAt);
+
+    /**
+     * 按 (deadline_at, id) 顺序分批加载截止时间不晚于 until 的未完成节点
+     */
+    @Select("<script>" +
+            "SELECT * FROM task_node_progress WHERE completed = 0 AND deadline_at IS NOT NULL " +
+            "AND deadline_at &lt;= #{until} " +
+            "<if test='afterTime != null'>" +
+            "AND (deadline_at &gt; #{afterTime} OR (deadline_at = #{afterTime} AND id &gt; #{afterId})) " +
+            "</if>" +
+            "ORDER BY deadline_at ASC, id ASC LIMIT #{limit}" +
+            "</script>")
+    List<TaskNodeProgress> selectDeadlinesAfter(@Param("until") LocalDateTime until,
+                                                @Param("afterTime") LocalDateTime afterTime,
+                                                @Param("afterId") Long afterId,
+                                                @Param("limit") int limit);
+
+    /**
+     * 删除指定节点顺序之后的进度（驳回时使用）
+     */
+    @Delete("DELETE FROM task_node_progress WHERE task_id = #{taskId} AND node_order > #{nodeOrder}")
+    int deleteByTaskIdAndNodeOrderGreaterThan(@Param("taskId") Long taskId, @Param("nodeOrder") Integer nodeOrder);
+
+    /**
+     * 删除任务的全部进度（撤回时使用）
+     */
+    @Delete("DELETE FROM task_node_progress WHERE task_id = #{taskId}")
+    int deleteByTaskId(@Param("taskId") Long taskId);
+}
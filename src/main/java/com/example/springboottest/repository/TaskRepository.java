@@ -3,11 +3,14 @@ package com.example.springboottest.repository;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.springboottest.DTO.TaskCountVO;
 import com.example.springboottest.entity.Task;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -49,23 +52,58 @@ public interface TaskRepository extends BaseMapper<Task> {
     IPage<Task> selectPageByStatus(Page<Task> page, @Param("status") String status);
 
     /**
-     * 查询用户待审批的任务（通过审批记录关联）
+     * 查询用户已审批的任务（热表与归档表合并，按本人最近一次审批/驳回时间倒序）
      */
-    @Select("SELECT DISTINCT t.* FROM tasks t " +
-            "INNER JOIN task_approval_records r ON t.id = r.task_id " +
-            "WHERE r.approver_id = #{userId} " +
-            "AND r.result = 'PENDING' " +
-            "AND t.status IN ('PENDING', 'IN_PROGRESS') " +
-            "ORDER BY t.created_at DESC")
-    IPage<Task> selectPendingTasksByApproverId(Page<Task> page, @Param("userId") Long userId);
+    @Select("SELECT * FROM (" +
+            "SELECT " + TaskArchiveRepository.TASK_COLUMNS + ", d.decided_at FROM tasks t " +
+            "INNER JOIN (SELECT task_id, MAX(approval_time) AS decided_at FROM task_approval_records " +
+            "WHERE approver_id = #{userId} AND result IN ('APPROVED', 'REJECTED') GROUP BY task_id) d " +
+            "ON t.id = d.task_id " +
+            "UNION ALL " +
+            "SELECT " + TaskArchiveRepository.TASK_COLUMNS + ", d.decided_at FROM tasks_archive t " +
+            "INNER JOIN (SELECT task_id, MAX(approval_time) AS decided_at FROM task_approval_records_archive " +
+            "WHERE approver_id = #{userId} AND result IN ('APPROVED', 'REJECTED') GROUP BY task_id) d " +
+            "ON t.id = d.task_id" +
+            ") decided ORDER BY decided_at DESC, id DESC")
+    IPage<Task> selectDecidedTasksWithArchive(Page<Task> page, @Param("userId") Long userId);
 
     /**
-     * 查询用户已审批的任务
+     * 按状态、任务类型、优先级统计任务数（任务数计数器对账用）
      */
-    @Select("SELECT DISTINCT t.* FROM tasks t " +
-            "INNER JOIN task_approval_records r ON t.id = r.task_id " +
-            "WHERE r.approver_id = #{userId} " +
-            "AND r.result IN ('APPROVED', 'REJECTED') " +
-            "ORDER BY r.approval_time DESC")
-    IPage<Task> selectApprovedTasksByApproverId(Page<Task> page, @Param("userId") Long userId);
+    @Select("SELECT status, COALESCE(task_type, '') AS task_type, COALESCE(priority, 0) AS priority, " +
+            "COUNT(*) AS count FROM tasks GROUP BY status, COALESCE(task_type, ''), COALESCE(priority, 0)")
+    List<TaskCountVO> countGroupByStatusTypePriority();
+
+    /**
+     * 游标分页查询用户创建的任务（按 created_at, id 倒序，seek 到游标之后）
+     */
+    @Select("<script>" +
+            "SELECT * FROM tasks WHERE creator_id = #{creatorId} " +
+            "<if test='afterTime != null'>" +
+            "AND (created_at &lt; #{afterTime} OR (created_at = #{afterTime} AND id &lt; #{afterId})) " +
+            "</if>" +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<Task> selectCreatedAfter(@Param("creatorId") Long creatorId,
+                                  @Param("afterTime") LocalDateTime afterTime,
+                                  @Param("afterId") Long afterId,
+                                  @Param("limit") int limit);
+
+    /**
+     * 查询ID最大值（搜索索引重建时划分ID区间）
+     */
+    @Select("SELECT MAX(id) FROM tasks")
+    Long selectMaxId();
+
+    /**
+     * 按ID区间 (fromId, toId] 查询建索引所需的字段，withText 为 false 时不查标题和内容
+     */
+    @Select("<script>" +
+            "SELECT id, status, task_type, creator_id" +
+            "<if test='withText'>, title, content</if> " +
+            "FROM tasks WHERE id &gt; #{fromId} AND id &lt;= #{toId} ORDER BY id" +
+            "</script>")
+    List<Task> selectForIndex(@Param("fromId") long fromId,
+                              @Param("toId") long toId,
+                              @Param("withText") boolean withText);
 }
@@ -3,6 +3,7 @@ package com.example.springboottest.repository;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.springboottest.entity.UserRole;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
 import java.util.List;
@@ -40,4 +41,24 @@ public interface UserRoleRepository extends BaseMapper<UserRole> {
             "INNER JOIN roles r ON ur.role_id = r.id " +
             "WHERE ur.user_id = #{userId} AND r.status = 1")
     List<String> selectRoleCodesByUserId(Long userId);
+
+    /**
+     * 查询当前最大关联ID（用于检测新增的角色成员）
+     */
+    @Select("SELECT COALESCE(MAX(id), 0) FROM user_roles")
+    Long selectMaxId();
+
+    /**
+     * ID不大于 maxId 的关联行校验和，行被删除或原地修改 user_id / role_id 时变化
+     */
+    @Select("SELECT COALESCE(SUM(user_id * (role_id + 1000003)), 0) FROM user_roles WHERE id <= #{maxId}")
+    Long selectChecksumUpTo(@Param("maxId") Long maxId);
+
+    /**
+     * 查询ID大于指定值的关联所涉及的角色编码
+     */
+    @Select("SELECT DISTINCT r.role_code FROM user_roles ur " +
+            "INNER JOIN roles r ON ur.role_id = r.id " +
+            "WHERE ur.id > #{afterId}")
+    List<String> selectRoleCodesAddedAfter(@Param("afterId") Long afterId);
 }
@@ -0,0 +1,206 @@
+package com.example.springboottest.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.example.springboottest.config.ClusterCacheManager;
+import com.example.springboottest.entity.TaskApprovalFlow;
+import com.example.springboottest.entity.TaskApprovalNode;
+import com.example.springboottest.repository.TaskApprovalFlowRepository;
+import com.example.springboottest.repository.TaskApprovalNodeRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * 审批流定义缓存
+ * 以审批流ID为键缓存编译后的 {@link CompiledFlow}，审批引擎的审批流、节点读取都经过这里。
+ * 已写入的版本不会再变化，只有审批流状态变更（如更新时禁用旧版本）才需要剔除：剔除在事务提交后生效，
+ * 启用集群缓存时注册到 {@link ClusterCacheManager}，剔除同时广播到其他实例。
+ * 每个审批流ID对应一个剔除版本号（按哈希分槽），加载期间发生过剔除时加载结果不写入缓存；过期时间兜底
+ */
+@Slf4j
+@Service
+public class ApprovalFlowCache {
+
+    private static final String CACHE_NAME = "approvalFlowCache";
+    private static final int STAMP_SLOTS = 256;
+
+    private final TaskApprovalFlowRepository flowRepository;
+    private final TaskApprovalNodeRepository nodeRepository;
+
+    private final Cache<Long, CompiledFlow> flows;
+    private final AtomicLongArray stamps = new AtomicLongArray(STAMP_SLOTS);
+    /**
+     * 剔除入口：未启用集群缓存时为提交后剔除的本地缓存
+     */
+    private org.springframework.cache.Cache evictor;
+
+    public ApprovalFlowCache(TaskApprovalFlowRepository flowRepository,
+                             TaskApprovalNodeRepository nodeRepository,
+                             @Value("${approval.flow.cache.maximum-size:1000}") long maximumSize,
+                             @Value("${approval.flow.cache.expire-seconds:3600}") long expireSeconds) {
+        this.flowRepository = flowRepository;
+        this.nodeRepository = nodeRepository;
+        this.flows = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireSeconds))
+                .build();
+        this.evictor = new TransactionAwareCacheDecorator(new LocalCache());
+    }
+
+    /**
+     * 启用集群缓存时，剔除（事务中在提交后）广播到其他实例
+     */
+    @Autowired(required = false)
+    public void setClusterCacheManager(ClusterCacheManager clusterCacheManager) {
+        this.evictor = clusterCacheManager.register(new LocalCache());
+    }
+
+    /**
+     * 获取编译后的审批流，不存在时返回 null
+     */
+    public CompiledFlow get(Long flowId) {
+        if (flowId == null) {
+            return null;
+        }
+        CompiledFlow flow = flows.getIfPresent(flowId);
+        if (flow != null) {
+            return flow;
+        }
+        long stamp = stamps.get(slot(flowId));
+        CompiledFlow loaded = load(flowId);
+        if (loaded != null) {
+            cacheIfUnchanged(flowId, stamp, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * 批量获取编译后的审批流，未命中的部分各用一次IN查询加载
+     */
+    public Map<Long, CompiledFlow> getAll(Collection<Long> flowIds) {
+        Map<Long, CompiledFlow> result = new HashMap<>();
+        Map<Long, Long> missing = new HashMap<>();
+        for (Long flowId : flowIds) {
+            if (flowId == null) {
+                continue;
+            }
+            CompiledFlow flow = flows.getIfPresent(flowId);
+            if (flow != null) {
+                result.put(flowId, flow);
+            } else {
+                missing.put(flowId, stamps.get(slot(flowId)));
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        List<TaskApprovalFlow> flowEntities = flowRepository.selectBatchIds(missing.keySet());
+        if (flowEntities.isEmpty()) {
+            return result;
+        }
+        Map<Long, List<TaskApprovalNode>> nodesByFlow = nodeRepository.selectList(
+                new LambdaQueryWrapper<TaskApprovalNode>()
+                        .in(TaskApprovalNode::getFlowId, missing.keySet())
+                        .orderByAsc(TaskApprovalNode::getNodeOrder)
+        ).stream().collect(Collectors.groupingBy(TaskApprovalNode::getFlowId));
+
+        for (TaskApprovalFlow entity : flowEntities) {
+            CompiledFlow compiled = CompiledFlow.compile(entity,
+                    nodesByFlow.getOrDefault(entity.getId(), Collections.emptyList()));
+            cacheIfUnchanged(entity.getId(), missing.get(entity.getId()), compiled);
+            result.put(entity.getId(), compiled);
+        }
+        return result;
+    }
+
+    /**
+     * 剔除审批流缓存
+     * 处于事务中时在提交后剔除，避免并发读取把旧状态重新放回缓存
+     */
+    public void evict(Long flowId) {
+        evictor.evict(flowId);
+        log.info("剔除审批流缓存，流程ID: {}", flowId);
+    }
+
+    /**
+     * 加载期间没有发生剔除时写入缓存
+     */
+    private void cacheIfUnchanged(Long flowId, long stamp, CompiledFlow loaded) {
+        int slot = slot(flowId);
+        flows.asMap().compute(flowId, (key, current) -> stamps.get(slot) == stamp ? loaded : current);
+    }
+
+    private void invalidate(Long flowId) {
+        int slot = slot(flowId);
+        flows.asMap().compute(flowId, (key, current) -> {
+            stamps.incrementAndGet(slot);
+            return null;
+        });
+    }
+
+    private void invalidateAll() {
+        for (int i = 0; i < STAMP_SLOTS; i++) {
+            stamps.incrementAndGet(i);
+        }
+        flows.invalidateAll();
+    }
+
+    private CompiledFlow load(Long flowId) {
+        TaskApprovalFlow flow = flowRepository.selectById(flowId);
+        if (flow == null) {
+            return null;
+        }
+        List<TaskApprovalNode> nodes = nodeRepository.selectByFlowId(flowId);
+        return CompiledFlow.compile(flow, nodes);
+    }
+
+    private static int slot(Long flowId) {
+        return (int) (flowId ^ (flowId >>> 32)) & (STAMP_SLOTS - 1);
+    }
+
+    /**
+     * 以 Spring Cache 暴露本地缓存供剔除入口使用，剔除时同时递增版本号
+     */
+    private final class LocalCache extends CaffeineCache {
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        LocalCache() {
+            super(CACHE_NAME, (Cache) flows, false);
+        }
+
+        @Override
+        public void evict(Object key) {
+            ApprovalFlowCache.this.invalidate((Long) key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean present = flows.getIfPresent((Long) key) != null;
+            ApprovalFlowCache.this.invalidate((Long) key);
+            return present;
+        }
+
+        @Override
+        public void clear() {
+            invalidateAll();
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean notEmpty = flows.estimatedSize() > 0;
+            invalidateAll();
+            return notEmpty;
+        }
+    }
+}
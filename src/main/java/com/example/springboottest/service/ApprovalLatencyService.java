@@ -0,0 +1,188 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.DTO.NodeLatencyStatsVO;
+import com.example.springboottest.entity.ApprovalNodeLatency;
+import com.example.springboottest.event.ApprovalDecidedEvent;
+import com.example.springboottest.repository.ApprovalNodeLatencyRepository;
+import com.example.springboottest.util.LatencyHistogram;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 审批节点耗时统计
+ * 每次审批/驳回提交后，把进入节点到作出决定的耗时记入该审批流节点的内存直方图（增量），
+ * 定时把增量按桶累加到 approval_node_latency 表并清空，再从表中重新加载全量。
+ * 查询只读内存中的全量与未落库增量，不扫描审批记录表
+ */
+@Slf4j
+@Service
+public class ApprovalLatencyService {
+
+    private static final int UPSERT_BATCH_SIZE = 500;
+
+    private final ApprovalNodeLatencyRepository latencyRepository;
+    private final ApprovalFlowCache flowCache;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 上次检查点以来的增量，按节点在 compute 中独占更新
+     */
+    private final ConcurrentHashMap<NodeKey, LatencyHistogram> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 已落库的全量（只读快照，检查点后整体替换），null 表示尚未加载
+     */
+    private volatile Map<NodeKey, LatencyHistogram> persisted;
+
+    public ApprovalLatencyService(ApprovalNodeLatencyRepository latencyRepository,
+                                  ApprovalFlowCache flowCache,
+                                  PlatformTransactionManager transactionManager) {
+        this.latencyRepository = latencyRepository;
+        this.flowCache = flowCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 审批/驳回提交后记录节点耗时
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onApprovalDecided(ApprovalDecidedEvent event) {
+        if (event.getFlowId() == null || event.getNodeId() == null) {
+            return;
+        }
+        pending.compute(new NodeKey(event.getFlowId(), event.getNodeId()), (key, histogram) -> {
+            LatencyHistogram target = histogram != null ? histogram : new LatencyHistogram();
+            target.record(event.getLatencyMs());
+            return target;
+        });
+    }
+
+    /**
+     * 定时把增量累加到统计表（默认每分钟）
+     */
+    @Scheduled(fixedDelayString = "${approval.stats.checkpoint-ms:60000}")
+    public void checkpoint() {
+        // 逐个节点取走增量：取走之后的记录会落到新的直方图中，不会丢失
+        Map<NodeKey, LatencyHistogram> drained = new HashMap<>();
+        for (NodeKey key : pending.keySet()) {
+            LatencyHistogram histogram = pending.remove(key);
+            if (histogram != null) {
+                drained.put(key, histogram);
+            }
+        }
+
+        if (!drained.isEmpty()) {
+            List<ApprovalNodeLatency> rows = new ArrayList<>();
+            drained.forEach((key, histogram) -> histogram.forEachBucket((bucket, count, sum) ->
+                    rows.add(new ApprovalNodeLatency(key.flowId(), key.nodeId(), bucket, count, sum, null))));
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (int from = 0; from < rows.size(); from += UPSERT_BATCH_SIZE) {
+                        latencyRepository.accumulateBatch(rows.subList(from, Math.min(from + UPSERT_BATCH_SIZE, rows.size())));
+                    }
+                });
+            } catch (Exception e) {
+                // 落库失败，增量放回，下次检查点重试
+                drained.forEach((key, histogram) -> pending.merge(key, histogram, (current, failed) -> {
+                    current.merge(failed);
+                    return current;
+                }));
+                log.error("审批节点耗时统计落库失败，节点数: {}", drained.size(), e);
+                return;
+            }
+            log.debug("审批节点耗时统计落库，节点数: {}, 桶数: {}", drained.size(), rows.size());
+        }
+
+        // 重新加载全量（包含其他实例落库的增量）
+        try {
+            persisted = load();
+        } catch (Exception e) {
+            log.error("加载审批节点耗时统计失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void flush() {
+        checkpoint();
+    }
+
+    /**
+     * 查询各审批流节点的耗时统计
+     *
+     * @param flowId 审批流ID，为空时查询全部
+     */
+    public List<NodeLatencyStatsVO> getNodeStats(Long flowId) {
+        Map<NodeKey, LatencyHistogram> snapshot = persisted;
+        if (snapshot == null) {
+            snapshot = load();
+            persisted = snapshot;
+        }
+
+        // 全量 + 未落库增量
+        Map<NodeKey, LatencyHistogram> merged = new HashMap<>();
+        snapshot.forEach((key, histogram) -> {
+            if (flowId == null || flowId.equals(key.flowId())) {
+                merged.put(key, histogram.copy());
+            }
+        });
+        for (NodeKey key : pending.keySet()) {
+            if (flowId != null && !flowId.equals(key.flowId())) {
+                continue;
+            }
+            pending.computeIfPresent(key, (k, histogram) -> {
+                merged.computeIfAbsent(k, ignored -> new LatencyHistogram()).merge(histogram);
+                return histogram;
+            });
+        }
+
+        Map<Long, CompiledFlow> flows = flowCache.getAll(merged.keySet().stream()
+                .map(NodeKey::flowId)
+                .distinct()
+                .toList());
+        List<NodeLatencyStatsVO> result = new ArrayList<>(merged.size());
+        merged.forEach((key, histogram) -> {
+            CompiledFlow flow = flows.get(key.flowId());
+            CompiledFlow.Node node = flow != null ? flow.getNode(key.nodeId()) : null;
+            NodeLatencyStatsVO vo = new NodeLatencyStatsVO();
+            vo.setFlowId(key.flowId());
+            vo.setFlowName(flow != null ? flow.getFlowName() : null);
+            vo.setNodeId(key.nodeId());
+            vo.setNodeName(node != null ? node.getNodeName() : null);
+            vo.setNodeOrder(node != null ? node.getNodeOrder() : null);
+            vo.setCount(histogram.getCount());
+            vo.setMeanMs(Math.round(histogram.getMean()));
+            vo.setP50Ms(histogram.valueAtPercentile(50));
+            vo.setP95Ms(histogram.valueAtPercentile(95));
+            vo.setP99Ms(histogram.valueAtPercentile(99));
+            result.add(vo);
+        });
+        result.sort(Comparator.comparing(NodeLatencyStatsVO::getFlowId)
+                .thenComparing(NodeLatencyStatsVO::getNodeOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(NodeLatencyStatsVO::getNodeId));
+        return result;
+    }
+
+    /**
+     * 从统计表加载全量直方图
+     */
+    private Map<NodeKey, LatencyHistogram> load() {
+        Map<NodeKey, LatencyHistogram> loaded = new HashMap<>();
+        for (ApprovalNodeLatency row : latencyRepository.selectAll()) {
+            loaded.computeIfAbsent(new NodeKey(row.getFlowId(), row.getNodeId()), key -> new LatencyHistogram())
+                    .add(row.getBucket(), row.getSampleCount(), row.getTotalMs());
+        }
+        return loaded;
+    }
+
+    private record NodeKey(Long flowId, Long nodeId) {
+    }
+}
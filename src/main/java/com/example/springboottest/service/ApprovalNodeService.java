@@ -0,0 +1,172 @@
+package com.example.springboottest.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.example.springboottest.entity.Task;
+import com.example.springboottest.entity.TaskApprovalRecord;
+import com.example.springboottest.entity.User;
+import com.example.springboottest.enums.ApprovalResult;
+import com.example.springboottest.enums.ApprovalType;
+import com.example.springboottest.enums.TaskStatus;
+import com.example.springboottest.event.ApprovalNodeEnteredEvent;
+import com.example.springboottest.repository.TaskApprovalRecordRepository;
+import com.example.springboottest.repository.TaskNodeProgressRepository;
+import com.example.springboottest.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 审批节点服务
+ * 负责任务进入审批节点（生成待审批记录、初始化节点进度）以及节点完成判断。
+ * 节点进度保存在 task_node_progress 中：或签需要1人、会签需要全部审批人通过，
+ * 每次通过只做一次计数更新和一次条件更新，由影响行数判断节点是否在本次完成
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ApprovalNodeService {
+
+    /**
+     * 单条INSERT语句最多写入的记录数
+     */
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    private final TaskApprovalRecordRepository recordRepository;
+    private final TaskNodeProgressRepository progressRepository;
+    private final UserRepository userRepository;
+    private final ApproverResolver approverResolver;
+    private final ApproverInboxService inboxService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 任务进入审批节点：为每个审批人创建待审批记录（批量写入），初始化节点进度并同步待办箱
+     *
+     * @return 创建的待审批记录数
+     */
+    public int enterNode(Task task, CompiledFlow.Node node) {
+        List<Long> approverIds = approverResolver.resolve(node);
+        List<TaskApprovalRecord> records = new ArrayList<>(approverIds.size());
+        if (!approverIds.isEmpty()) {
+            // 审批人姓名一次批量查询，保持审批人配置顺序
+            Map<Long, User> approvers = userRepository.selectBatchIds(approverIds).stream()
+                    .collect(Collectors.toMap(User::getId, Function.identity()));
+            for (Long approverId : approverIds) {
+                User approver = approvers.get(approverId);
+                if (approver != null) {
+                    TaskApprovalRecord record = new TaskApprovalRecord();
+                    record.setTaskId(task.getId());
+                    record.setNodeId(node.getId());
+                    record.setNodeName(node.getNodeName());
+                    record.setNodeOrder(node.getNodeOrder());
+                    record.setApproverId(approverId);
+                    record.setApproverName(approver.getUsername());
+                    record.setResult(ApprovalResult.PENDING.name());
+                    records.add(record);
+                }
+            }
+            for (int from = 0; from < records.size(); from += INSERT_BATCH_SIZE) {
+                recordRepository.insertBatch(records.subList(from, Math.min(from + INSERT_BATCH_SIZE, records.size())));
+            }
+        }
+        int created = records.size();
+
+        // 同步待办箱：任务处于可审批状态时以本节点审批人替换（驳回后任务待重新提交，不进入待办）
+        boolean approvable = TaskStatus.fromName(task.getStatus()).canApprove();
+        if (approvable) {
+            inboxService.replace(task, node.getId(), records.stream()
+                    .map(TaskApprovalRecord::getApproverId)
+                    .collect(Collectors.toList()));
+        } else {
+            inboxService.removeTask(task.getId());
+        }
+
+        // 初始化节点进度，可审批且配置了超时的节点登记超时时间并通知超时调度（提交后生效）
+        int requiredCount = ApprovalType.OR_SIGN == node.getApprovalTypeEnum() ? 1 : created;
+        LocalDateTime deadlineAt = approvable && node.getTimeoutHours() != null && node.getTimeoutHours() > 0
+                ? LocalDateTime.now().withNano(0).plusHours(node.getTimeoutHours()) : null;
+        progressRepository.upsertEntered(task.getId(), node.getId(), node.getNodeOrder(), requiredCount, deadlineAt);
+        eventPublisher.publishEvent(new ApprovalNodeEnteredEvent(task.getId(), node.getId(), deadlineAt));
+        return created;
+    }
+
+    /**
+     * 记录一次审批通过，返回当前节点是否因此完成
+     * 会签：所有审批人都通过才完成
+     * 或签：任意一人通过即完成
+     */
+    public boolean recordApproval(Long taskId, CompiledFlow.Node node) {
+        if (progressRepository.incrementApproved(taskId, node.getId()) == 0) {
+            // 有进度行说明节点已完成（其他审批人或超时自动通过），不是本次完成；
+            // 上线前已进入节点的任务没有进度行，按审批记录判断
+            if (progressRepository.countByTaskIdAndNodeId(taskId, node.getId()) > 0) {
+                return false;
+            }
+            return isNodeCompletedByRecords(taskId, node);
+        }
+        return progressRepository.markCompleted(taskId, node.getId()) == 1;
+    }
+
+    /**
+     * 超时自动通过：认领节点完成，返回 false 表示节点已被审批、重新进入或其他线程处理
+     */
+    public boolean forceComplete(Long taskId, Long nodeId, LocalDateTime deadlineAt) {
+        return progressRepository.forceCompleted(taskId, nodeId, deadlineAt) == 1;
+    }
+
+    /**
+     * 超时升级：认领本次超时（清除超时时间），返回 false 表示已处理或超时时间已变更
+     */
+    public boolean claimTimeout(Long taskId, Long nodeId, LocalDateTime deadlineAt) {
+        return progressRepository.clearDeadline(taskId, nodeId, deadlineAt) == 1;
+    }
+
+    /**
+     * 任务进入节点的时间，没有进度行（旧数据）时为 null
+     */
+    public LocalDateTime getEnteredAt(Long taskId, Long nodeId) {
+        return progressRepository.selectEnteredAt(taskId, nodeId);
+    }
+
+    /**
+     * 驳回、重新提交：清除指定节点顺序之后的节点进度
+     */
+    public void resetAfter(Long taskId, Integer nodeOrder) {
+        progressRepository.deleteByTaskIdAndNodeOrderGreaterThan(taskId, nodeOrder);
+    }
+
+    /**
+     * 撤回：清除任务的全部节点进度和待办
+     */
+    public void clear(Long taskId) {
+        progressRepository.deleteByTaskId(taskId);
+        inboxService.removeTask(taskId);
+    }
+
+    /**
+     * 按审批记录判断节点是否完成（仅用于没有进度行的旧任务）
+     */
+    private boolean isNodeCompletedByRecords(Long taskId, CompiledFlow.Node node) {
+        ApprovalType approvalType = node.getApprovalTypeEnum();
+        if (ApprovalType.OR_SIGN == approvalType) {
+            return recordRepository.countApprovedByTaskIdAndNodeId(taskId, node.getId()) > 0;
+        } else if (ApprovalType.COUNTERSIGN == approvalType) {
+            // 会签：仍有待审批记录则未完成
+            Long pending = recordRepository.selectCount(
+                    new LambdaQueryWrapper<TaskApprovalRecord>()
+                            .eq(TaskApprovalRecord::getTaskId, taskId)
+                            .eq(TaskApprovalRecord::getNodeId, node.getId())
+                            .eq(TaskApprovalRecord::getResult, ApprovalResult.PENDING.name())
+            );
+            return pending == 0;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.entity.Task;
+import com.example.springboottest.enums.InboxChangeType;
+import com.example.springboottest.event.InboxChangedEvent;
+import com.example.springboottest.repository.ApproverInboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 审批人待办箱服务
+ * approver_inbox 是“我的待办”的读模型：每个审批人每个可审批任务一行，
+ * 与审批记录在同一事务内维护，待办列表只需按 approver_id 做一次索引范围扫描。
+ * 每次变更发布 {@link InboxChangedEvent}，提交后推送给在线的审批人
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ApproverInboxService {
+
+    /**
+     * 单条INSERT语句最多写入的待办数
+     */
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    private final ApproverInboxRepository inboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 任务进入节点：以新节点的审批人替换任务的全部待办
+     * 新审批人收到新增，原审批人中不再审批的收到移除、继续审批的收到变更
+     */
+    public void replace(Task task, Long nodeId, List<Long> approverIds) {
+        List<Long> previous = inboxRepository.selectApproverIdsByTaskId(task.getId());
+        inboxRepository.deleteByTaskId(task.getId());
+        insert(task, nodeId, approverIds);
+
+        Set<Long> previousIds = new HashSet<>(previous);
+        Set<Long> currentIds = new HashSet<>(approverIds);
+        publish(InboxChangeType.ADDED, task.getId(), nodeId,
+                approverIds.stream().filter(id -> !previousIds.contains(id)).toList());
+        publish(InboxChangeType.CHANGED, task.getId(), nodeId,
+                previous.stream().filter(currentIds::contains).toList());
+        publish(InboxChangeType.REMOVED, task.getId(), null,
+                previous.stream().filter(id -> !currentIds.contains(id)).toList());
+    }
+
+    /**
+     * 为审批人添加任务待办
+     */
+    public void add(Task task, Long nodeId, List<Long> approverIds) {
+        insert(task, nodeId, approverIds);
+        publish(InboxChangeType.ADDED, task.getId(), nodeId, approverIds);
+    }
+
+    /**
+     * 移除审批人在任务上的待办（审批通过、转交后）
+     */
+    public void remove(Long taskId, Long approverId) {
+        if (inboxRepository.deleteByTaskIdAndApproverId(taskId, approverId) > 0) {
+            publish(InboxChangeType.REMOVED, taskId, null, List.of(approverId));
+        }
+    }
+
+    /**
+     * 移除任务的全部待办（流程结束、驳回、撤回）
+     */
+    public void removeTask(Long taskId) {
+        List<Long> previous = inboxRepository.selectApproverIdsByTaskId(taskId);
+        inboxRepository.deleteByTaskId(taskId);
+        publish(InboxChangeType.REMOVED, taskId, null, previous);
+    }
+
+    /**
+     * 根据审批记录重建待办箱
+     *
+     * @return 重建后的待办数
+     */
+    @Transactional
+    public int rebuild() {
+        int removed = inboxRepository.deleteAll();
+        int inserted = inboxRepository.backfillFromRecords();
+        log.info("重建审批人待办箱完成，清除: {}, 写入: {}", removed, inserted);
+        eventPublisher.publishEvent(new InboxChangedEvent(InboxChangeType.RESYNC, null, null, null));
+        return inserted;
+    }
+
+    private void insert(Task task, Long nodeId, List<Long> approverIds) {
+        for (int from = 0; from < approverIds.size(); from += INSERT_BATCH_SIZE) {
+            inboxRepository.insertBatch(task.getId(), nodeId, task.getPriority(), task.getCreatedAt(),
+                    approverIds.subList(from, Math.min(from + INSERT_BATCH_SIZE, approverIds.size())));
+        }
+    }
+
+    private void publish(InboxChangeType type, Long taskId, Long nodeId, List<Long> approverIds) {
+        if (!approverIds.isEmpty()) {
+            eventPublisher.publishEvent(new InboxChangedEvent(type, taskId, nodeId, approverIds));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.springboottest.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.example.springboottest.entity.UserRole;
+import com.example.springboottest.enums.ApproverType;
+import com.example.springboottest.repository.RoleRepository;
+import com.example.springboottest.repository.UserRoleRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 审批人解析服务
+ * 负责把审批节点解析为具体的审批人ID，TaskService 与 TaskApprovalService 共用。
+ * 角色成员按 roleCode → long[] 缓存；定时比对 roles / user_roles 的变化水位，
+ * 只剔除发生变化的角色，检测到删除、原地修改等无法定位的变化时才整体清空；过期时间兜底
+ */
+@Slf4j
+@Service
+public class ApproverResolver {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final UserRoleRepository userRoleRepository;
+    private final RoleRepository roleRepository;
+
+    private final Cache<String, long[]> roleMembers;
+
+    /**
+     * 剔除代数，加载期间发生剔除时不回填缓存
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    // 变化检测水位（仅由定时任务线程读写）
+    private long userRoleCount = -1;
+    private long userRoleMaxId;
+    private long userRoleChecksum;
+    private long roleCount = -1;
+    private LocalDateTime roleMaxUpdatedAt;
+
+    public ApproverResolver(UserRoleRepository userRoleRepository,
+                            RoleRepository roleRepository,
+                            @Value("${approval.role-cache.expire-seconds:600}") long expireSeconds) {
+        this.userRoleRepository = userRoleRepository;
+        this.roleRepository = roleRepository;
+        this.roleMembers = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(expireSeconds))
+                .build();
+    }
+
+    /**
+     * 获取节点的审批人列表（已去重，保持配置顺序）
+     */
+    public List<Long> resolve(CompiledFlow.Node node) {
+        if (ApproverType.USER.name().equals(node.getApproverType())) {
+            // 指定用户审批（编译时已解析）
+            return node.getApproverUserIds();
+        }
+        if (!ApproverType.ROLE.name().equals(node.getApproverType()) || node.getApproverRoleCodes().isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // 按角色审批
+        List<String> roleCodes = node.getApproverRoleCodes();
+        if (roleCodes.size() == 1) {
+            return toList(getRoleMembers(roleCodes.get(0)));
+        }
+        LinkedHashSet<Long> approverIds = new LinkedHashSet<>();
+        for (String roleCode : roleCodes) {
+            for (long userId : getRoleMembers(roleCode)) {
+                approverIds.add(userId);
+            }
+        }
+        return new ArrayList<>(approverIds);
+    }
+
+    /**
+     * 获取角色下的用户ID（返回的数组不可修改）
+     */
+    public long[] getRoleMembers(String roleCode) {
+        long[] members = roleMembers.getIfPresent(roleCode);
+        if (members != null) {
+            return members;
+        }
+
+        long gen = generation.get();
+        List<Long> userIds = userRoleRepository.selectUserIdsByRoleCode(roleCode);
+        members = userIds.isEmpty() ? EMPTY : userIds.stream().distinct().mapToLong(Long::longValue).toArray();
+        if (generation.get() == gen) {
+            roleMembers.asMap().putIfAbsent(roleCode, members);
+        }
+        return members;
+    }
+
+    /**
+     * 剔除指定角色的成员缓存
+     */
+    public void evictRole(String roleCode) {
+        generation.incrementAndGet();
+        roleMembers.invalidate(roleCode);
+    }
+
+    /**
+     * 清空全部角色成员缓存
+     */
+    public void evictAll() {
+        generation.incrementAndGet();
+        roleMembers.invalidateAll();
+    }
+
+    /**
+     * 检测 roles / user_roles 的变化并剔除相关角色
+     * 新增行按ID定位角色；已有行的校验和变化（删除或原地修改）时无法定位，整体清空
+     */
+    @Scheduled(fixedDelayString = "${approval.role-cache.check-interval-ms:30000}")
+    public void detectMembershipChanges() {
+        try {
+            long currentUserRoleCount = userRoleRepository.selectCount(null);
+            long currentUserRoleMaxId = userRoleRepository.selectMaxId();
+            long currentUserRoleChecksum = userRoleRepository.selectChecksumUpTo(currentUserRoleMaxId);
+            long currentRoleCount = roleRepository.selectCount(null);
+            LocalDateTime currentRoleMaxUpdatedAt = roleRepository.selectMaxUpdatedAt();
+
+            if (userRoleCount < 0) {
+                // 首次执行，只记录水位
+                recordWatermarks(currentUserRoleCount, currentUserRoleMaxId, currentUserRoleChecksum,
+                        currentRoleCount, currentRoleMaxUpdatedAt);
+                return;
+            }
+
+            Set<String> changedRoles = new HashSet<>();
+            boolean unknownChange = currentRoleCount != roleCount;
+            // 上次水位以内的行校验和变化：有删除或原地修改
+            unknownChange |= currentUserRoleMaxId == userRoleMaxId
+                    ? currentUserRoleChecksum != userRoleChecksum
+                    : userRoleRepository.selectChecksumUpTo(userRoleMaxId) != userRoleChecksum;
+
+            if (currentUserRoleMaxId > userRoleMaxId || currentUserRoleCount != userRoleCount) {
+                long added = userRoleRepository.selectCount(
+                        new LambdaQueryWrapper<UserRole>().gt(UserRole::getId, userRoleMaxId));
+                // 总数变化与新增行数不一致，说明有删除
+                unknownChange |= currentUserRoleCount != userRoleCount + added;
+                if (added > 0) {
+                    changedRoles.addAll(userRoleRepository.selectRoleCodesAddedAfter(userRoleMaxId));
+                }
+            }
+            if (currentRoleMaxUpdatedAt != null && !currentRoleMaxUpdatedAt.equals(roleMaxUpdatedAt)) {
+                LocalDateTime since = roleMaxUpdatedAt != null ? roleMaxUpdatedAt : currentRoleMaxUpdatedAt;
+                changedRoles.addAll(roleRepository.selectRoleCodesUpdatedSince(since));
+            }
+
+            if (unknownChange) {
+                log.info("检测到角色成员删除或修改，清空角色审批人缓存");
+                evictAll();
+            } else if (!changedRoles.isEmpty()) {
+                log.info("检测到角色成员变更，剔除角色审批人缓存: {}", changedRoles);
+                changedRoles.forEach(this::evictRole);
+            }
+
+            recordWatermarks(currentUserRoleCount, currentUserRoleMaxId, currentUserRoleChecksum,
+                    currentRoleCount, currentRoleMaxUpdatedAt);
+        } catch (Exception e) {
+            log.warn("检测角色成员变更失败，清空角色审批人缓存", e);
+            evictAll();
+        }
+    }
+
+    private void recordWatermarks(long currentUserRoleCount, long currentUserRoleMaxId, long currentUserRoleChecksum,
+                                  long currentRoleCount, LocalDateTime currentRoleMaxUpdatedAt) {
+        userRoleCount = currentUserRoleCount;
+        userRoleMaxId = currentUserRoleMaxId;
+        userRoleChecksum = currentUserRoleChecksum;
+        roleCount = currentRoleCount;
+        roleMaxUpdatedAt = currentRoleMaxUpdatedAt;
+    }
+
+    private static List<Long> toList(long[] values) {
+        List<Long> list = new ArrayList<>(values.length);
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.DTO.CacheInvalidationMessage;
+import com.example.springboottest.config.ActiveMqConfig;
+import com.example.springboottest.config.ClusterCacheManager;
+import com.example.springboottest.event.CacheInvalidatedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+
+/**
+ * 缓存失效消息消费者
+ * 订阅缓存失效主题，清除本地缓存后发布 CacheInvalidatedEvent（如字典快照据此重新加载）
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "cache.cluster.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheInvalidationListener {
+
+    private final ClusterCacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CacheInvalidationListener(ClusterCacheManager cacheManager, ApplicationEventPublisher eventPublisher) {
+        this.cacheManager = cacheManager;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @JmsListener(destination = ActiveMqConfig.CACHE_INVALIDATION_TOPIC,
+            containerFactory = "topicListenerContainerFactory")
+    public void onInvalidation(CacheInvalidationMessage message) {
+        if (cacheManager.getNodeId().equals(message.getOrigin())) {
+            return;
+        }
+        try {
+            cacheManager.applyRemote(message, names -> {
+                log.debug("应用缓存失效消息，来源: {}, 缓存: {}", message.getOrigin(), names);
+                eventPublisher.publishEvent(new CacheInvalidatedEvent(Set.copyOf(names)));
+            });
+        } catch (Exception e) {
+            log.error("应用缓存失效消息失败，来源: {}", message.getOrigin(), e);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.entity.TaskApprovalFlow;
+import com.example.springboottest.entity.TaskApprovalNode;
+import com.example.springboottest.enums.ApprovalType;
+import com.example.springboottest.enums.ApproverType;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 编译后的审批流定义（不可变）
+ * 审批流按版本管理，某个版本写入后节点配置不再变化，因此可以整体缓存：
+ * 节点按 nodeOrder 下标存放，下一节点查找为 O(1)，审批人列表在编译时解析完毕
+ */
+@Getter
+public final class CompiledFlow {
+
+    private final Long id;
+    private final String flowCode;
+    private final String flowName;
+    private final String description;
+    private final String taskType;
+    private final Integer status;
+    private final Integer version;
+    private final LocalDateTime createdAt;
+
+    /**
+     * 按顺序排列的节点列表（不可修改）
+     */
+    private final List<Node> nodes;
+
+    /**
+     * 下标即 nodeOrder，未配置的顺序为 null
+     */
+    @Getter(lombok.AccessLevel.NONE)
+    private final Node[] nodesByOrder;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final Map<Long, Node> nodesById;
+
+    private CompiledFlow(TaskApprovalFlow flow, List<TaskApprovalNode> nodeEntities) {
+        this.id = flow.getId();
+        this.flowCode = flow.getFlowCode();
+        this.flowName = flow.getFlowName();
+        this.description = flow.getDescription();
+        this.taskType = flow.getTaskType();
+        this.status = flow.getStatus();
+        this.version = flow.getVersion();
+        this.createdAt = flow.getCreatedAt();
+
+        List<Node> compiled = new ArrayList<>(nodeEntities.size());
+        int maxOrder = 0;
+        for (TaskApprovalNode entity : nodeEntities) {
+            Node node = new Node(entity);
+            compiled.add(node);
+            maxOrder = Math.max(maxOrder, node.getNodeOrder());
+        }
+        compiled.sort(Comparator.comparingInt(Node::getNodeOrder));
+
+        Node[] byOrder = new Node[maxOrder + 1];
+        Map<Long, Node> byId = new HashMap<>(compiled.size() * 2);
+        for (Node node : compiled) {
+            byOrder[node.getNodeOrder()] = node;
+            byId.put(node.getId(), node);
+        }
+
+        this.nodes = Collections.unmodifiableList(compiled);
+        this.nodesByOrder = byOrder;
+        this.nodesById = Collections.unmodifiableMap(byId);
+    }
+
+    /**
+     * 根据审批流及其节点编译
+     */
+    public static CompiledFlow compile(TaskApprovalFlow flow, List<TaskApprovalNode> nodes) {
+        return new CompiledFlow(flow, nodes);
+    }
+
+    /**
+     * 是否启用
+     */
+    public boolean isEnabled() {
+        return status != null && status == 1;
+    }
+
+    /**
+     * 根据节点ID查找本审批流内的节点
+     */
+    public Node getNode(Long nodeId) {
+        return nodeId != null ? nodesById.get(nodeId) : null;
+    }
+
+    /**
+     * 根据节点顺序查找节点
+     */
+    public Node getNodeByOrder(int nodeOrder) {
+        return nodeOrder > 0 && nodeOrder < nodesByOrder.length ? nodesByOrder[nodeOrder] : null;
+    }
+
+    /**
+     * 第一个审批节点
+     */
+    public Node getFirstNode() {
+        return nodes.isEmpty() ? null : nodes.get(0);
+    }
+
+    /**
+     * 下一个审批节点（与原 node_order + 1 的查询语义一致）
+     */
+    public Node getNextNode(Node current) {
+        return getNodeByOrder(current.getNodeOrder() + 1);
+    }
+
+    /**
+     * 编译后的审批节点（不可变）
+     */
+    @Slf4j
+    @Getter
+    public static final class Node {
+
+        private final Long id;
+        private final Long flowId;
+        private final String nodeCode;
+        private final String nodeName;
+        private final int nodeOrder;
+        private final String approvalType;
+        private final String approverType;
+        private final boolean autoPass;
+        private final Integer timeoutHours;
+
+        /**
+         * 指定用户审批时的审批人ID（已解析、去重，不可修改）
+         */
+        private final List<Long> approverUserIds;
+
+        /**
+         * 按角色审批时的角色编码（已解析、去重，不可修改）
+         */
+        private final List<String> approverRoleCodes;
+
+        private Node(TaskApprovalNode node) {
+            this.id = node.getId();
+            this.flowId = node.getFlowId();
+            this.nodeCode = node.getNodeCode();
+            this.nodeName = node.getNodeName();
+            this.nodeOrder = node.getNodeOrder() != null ? node.getNodeOrder() : 0;
+            this.approvalType = node.getApprovalType();
+            this.approverType = node.getApproverType();
+            this.autoPass = node.getAutoPass() != null && node.getAutoPass() == 1;
+            this.timeoutHours = node.getTimeoutHours();
+
+            List<Long> userIds = new ArrayList<>();
+            List<String> roleCodes = new ArrayList<>();
+            if (ApproverType.USER.name().equals(approverType)) {
+                if (node.getApproverIds() != null && !node.getApproverIds().isEmpty()) {
+                    for (String id : node.getApproverIds().split(",")) {
+                        try {
+                            Long userId = Long.parseLong(id.trim());
+                            if (!userIds.contains(userId)) {
+                                userIds.add(userId);
+                            }
+                        } catch (NumberFormatException e) {
+                            log.warn("解析审批人ID失败: {}", id);
+                        }
+                    }
+                }
+            } else if (ApproverType.ROLE.name().equals(approverType)) {
+                if (node.getApproverRoles() != null && !node.getApproverRoles().isEmpty()) {
+                    for (String roleCode : node.getApproverRoles().split(",")) {
+                        String code = roleCode.trim();
+                        if (!code.isEmpty() && !roleCodes.contains(code)) {
+                            roleCodes.add(code);
+                        }
+                    }
+                }
+            }
+            this.approverUserIds = Collections.unmodifiableList(userIds);
+            this.approverRoleCodes = Collections.unmodifiableList(roleCodes);
+        }
+
+        /**
+         * 审批类型枚举
+         */
+        public ApprovalType getApprovalTypeEnum() {
+            return ApprovalType.fromName(approvalType);
+        }
+    }
+}
@@ -2,32 +2,56 @@ package com.example.springboottest.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.example.springboottest.DTO.*;
 import com.example.springboottest.entity.Dict;
+import com.example.springboottest.entity.DictChangeLog;
 import com.example.springboottest.entity.DictItem;
+import com.example.springboottest.enums.DictChangeType;
+import com.example.springboottest.repository.DictChangeLogRepository;
 import com.example.springboottest.repository.DictRepository;
 import com.example.springboottest.repository.DictItemRepository;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class DictService {
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     @Autowired
     private DictRepository dictRepository;
 
     @Autowired
     private DictItemRepository dictItemRepository;
 
+    @Autowired
+    private DictChangeLogRepository changeLogRepository;
+
+    @Autowired
+    private DictionarySnapshot dictionarySnapshot;
+
+    @Value("${dict.resolve.max-items:100000}")
+    private int maxResolveItems;
+
     /**
      * 创建字典
      */
@@ -48,53 +72,50 @@ public class DictService {
         dict.setUpdateTime(now);
 
         dictRepository.insert(dict);
+        recordChange(List.of(dict), null, DictChangeType.DICT_CREATED);
         return dict.getId();
     }
 
     /**
      * 根据ID获取字典
      */
-    @Cacheable(value = "dictCache", key = "#id")
+    @Cacheable(value = "dictCache", key = "#id", sync = true)
     @Transactional(readOnly = true)
     public DictResponse getDictById(Long id) {
-        Dict dict = dictRepository.selectById(id);
+        Dict dict = dictionarySnapshot.getDict(id);
+        if (dict != null) {
+            return toResponse(dict, dictionarySnapshot.getItems(id));
+        }
+
+        // 停用的字典不在快照中，查询数据库
+        dict = dictRepository.selectById(id);
         if (dict == null) {
             throw new RuntimeException("字典不存在: " + id);
         }
-        DictResponse response = new DictResponse(dict);
-
-        List<DictItem> items = dictItemRepository.findByDictIdAndStatus(id, 1);
-        response.setItems(items.stream()
-                .map(DictItemResponse::new)
-                .collect(Collectors.toList()));
-
-        return response;
+        return toResponse(dict, dictItemRepository.findByDictIdAndStatus(id, 1));
     }
 
     /**
      * 根据字典编码获取字典
      */
-    @Cacheable(value = "dictCache", key = "'code_' + #dictCode")
+    @Cacheable(value = "dictCache", key = "'code_' + #dictCode", sync = true)
     @Transactional(readOnly = true)
     public DictResponse getDictByCode(String dictCode) {
-        Dict dict = dictRepository.selectByDictCode(dictCode);
+        Dict dict = dictionarySnapshot.getDict(dictCode);
+        if (dict != null) {
+            return toResponse(dict, dictionarySnapshot.getItems(dict.getId()));
+        }
+
+        dict = dictRepository.selectByDictCode(dictCode);
         if (dict == null) {
             throw new RuntimeException("字典不存在: " + dictCode);
         }
-        DictResponse response = new DictResponse(dict);
-
-        List<DictItem> items = dictItemRepository.findByDictIdAndStatus(dict.getId(), 1);
-        response.setItems(items.stream()
-                .map(DictItemResponse::new)
-                .collect(Collectors.toList()));
-
-        return response;
+        return toResponse(dict, dictItemRepository.findByDictIdAndStatus(dict.getId(), 1));
     }
 
     /**
      * 更新字典
      */
-    @CacheEvict(value = "dictCache", allEntries = true)
     public DictResponse updateDict(Long id, DictRequest request) {
         Dict existingDict = dictRepository.selectById(id);
         if (existingDict == null) {
@@ -107,6 +128,8 @@ public class DictService {
             }
         }
 
+        Dict before = new Dict();
+        BeanUtils.copyProperties(existingDict, before);
         LocalDateTime originalCreateTime = existingDict.getCreateTime();
         Long originalCreateBy = existingDict.getCreateBy();
 
@@ -117,13 +140,13 @@ public class DictService {
         existingDict.setUpdateTime(LocalDateTime.now());
 
         dictRepository.updateById(existingDict);
+        recordChange(List.of(before, existingDict), null, DictChangeType.DICT_UPDATED);
         return new DictResponse(existingDict);
     }
 
     /**
      * 删除字典
      */
-    @CacheEvict(value = "dictCache", allEntries = true)
     public void deleteDict(Long id) {
         Dict dict = dictRepository.selectById(id);
         if (dict == null) {
@@ -132,6 +155,7 @@ public class DictService {
 
         dictItemRepository.deleteByDictId(id);
         dictRepository.deleteById(id);
+        recordChange(List.of(dict), null, DictChangeType.DICT_DELETED);
     }
 
     /**
@@ -152,20 +176,63 @@ public class DictService {
     }
 
     /**
-     * 获取所有启用的字典
+     * 获取所有启用的字典（按ID排序）
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<DictResponse> getAllActiveDicts() {
-        List<Dict> dicts = dictRepository.findByStatus(1);
-        return dicts.stream()
+        return dictionarySnapshot.current().dictsById().values().stream()
+                .sorted(Comparator.comparing(Dict::getId))
                 .map(DictResponse::new)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 当前字典版本号（每次字典或字典项变更后递增），读快照，不开启事务
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long getDictVersion() {
+        return dictionarySnapshot.getVersion();
+    }
+
+    /**
+     * 增量同步：返回指定版本之后有变化的字典，since 为空、过旧或无效时返回全部启用字典
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public DictChangesVO getChanges(Long since) {
+        DictionarySnapshot.Data data = dictionarySnapshot.current();
+        DictChangesVO result = new DictChangesVO();
+        result.setVersion(data.version());
+
+        Set<String> codes = since != null ? data.changedCodesSince(since) : null;
+        if (codes == null) {
+            result.setFullSync(true);
+            result.setDicts(data.dictsById().values().stream()
+                    .sorted(Comparator.comparing(Dict::getId))
+                    .map(dict -> toResponse(dict, data.itemsByDictId().getOrDefault(dict.getId(), List.of())))
+                    .collect(Collectors.toList()));
+            result.setRemovedDictCodes(List.of());
+            return result;
+        }
+
+        List<DictResponse> dicts = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (String code : codes) {
+            Dict dict = data.dictsByCode().get(code);
+            if (dict != null) {
+                dicts.add(toResponse(dict, data.itemsByDictId().getOrDefault(dict.getId(), List.of())));
+            } else {
+                removed.add(code);
+            }
+        }
+        result.setFullSync(false);
+        result.setDicts(dicts);
+        result.setRemovedDictCodes(removed);
+        return result;
+    }
+
     /**
      * 创建字典项
      */
-    @CacheEvict(value = "dictCache", allEntries = true)
     public Long createDictItem(DictItemRequest request) {
         Dict dict = dictRepository.selectById(request.getDictId());
         if (dict == null) {
@@ -193,6 +260,7 @@ public class DictService {
         dictItem.setUpdateTime(now);
 
         dictItemRepository.insert(dictItem);
+        recordChange(List.of(dict), dictItem.getId(), DictChangeType.ITEM_CREATED);
         return dictItem.getId();
     }
 
@@ -211,7 +279,6 @@ public class DictService {
     /**
      * 更新字典项
      */
-    @CacheEvict(value = "dictCache", allEntries = true)
     public DictItemResponse updateDictItem(Long id, DictItemRequest request) {
         DictItem existingDictItem = dictItemRepository.selectById(id);
         if (existingDictItem == null) {
@@ -224,6 +291,7 @@ public class DictService {
             }
         }
 
+        Long originalDictId = existingDictItem.getDictId();
         LocalDateTime originalCreateTime = existingDictItem.getCreateTime();
         Long originalCreateBy = existingDictItem.getCreateBy();
 
@@ -234,19 +302,24 @@ public class DictService {
         existingDictItem.setUpdateTime(LocalDateTime.now());
 
         dictItemRepository.updateById(existingDictItem);
+        List<Dict> affected = dictRepository.selectBatchIds(Stream.of(originalDictId, existingDictItem.getDictId())
+                .distinct()
+                .collect(Collectors.toList()));
+        recordChange(affected, id, DictChangeType.ITEM_UPDATED);
         return new DictItemResponse(existingDictItem);
     }
 
     /**
      * 删除字典项
      */
-    @CacheEvict(value = "dictCache", allEntries = true)
     public void deleteDictItem(Long id) {
         DictItem dictItem = dictItemRepository.selectById(id);
         if (dictItem == null) {
             throw new RuntimeException("字典项不存在: " + id);
         }
         dictItemRepository.deleteById(id);
+        Dict dict = dictRepository.selectById(dictItem.getDictId());
+        recordChange(dict != null ? List.of(dict) : List.of(), id, DictChangeType.ITEM_DELETED);
     }
 
     /**
@@ -263,17 +336,98 @@ public class DictService {
     /**
      * 根据字典编码获取字典项
      */
-    @Cacheable(value = "dictItemCache", key = "#dictCode")
+    @Cacheable(value = "dictItemCache", key = "#dictCode", sync = true)
     @Transactional(readOnly = true)
     public List<DictItemResponse> getDictItemsByCode(String dictCode) {
-        Dict dict = dictRepository.selectByDictCode(dictCode);
-        if (dict == null) {
-            throw new RuntimeException("字典不存在: " + dictCode);
+        Dict dict = dictionarySnapshot.getDict(dictCode);
+        List<DictItem> items;
+        if (dict != null) {
+            items = dictionarySnapshot.getItems(dict.getId());
+        } else {
+            dict = dictRepository.selectByDictCode(dictCode);
+            if (dict == null) {
+                throw new RuntimeException("字典不存在: " + dictCode);
+            }
+            items = dictItemRepository.findByDictIdAndStatus(dict.getId(), 1);
         }
-
-        List<DictItem> items = dictItemRepository.findByDictIdAndStatus(dict.getId(), 1);
         return items.stream()
                 .map(DictItemResponse::new)
                 .collect(Collectors.toList());
     }
+
+    /**
+     * 批量解析字典标签
+     * 在同一份快照上按编码、字典项值两级哈希查找，不访问数据库（也不开启事务）；
+     * 结果按请求顺序用 JsonGenerator 流式写出，格式与 ApiResponse 一致，未找到的标签为 null
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public StreamingResponseBody resolveLabels(List<DictResolveItem> items) {
+        if (items.size() > maxResolveItems) {
+            throw new RuntimeException("单次最多解析" + maxResolveItems + "个字典项");
+        }
+        Map<String, Map<String, DictItem>> index = dictionarySnapshot.current().itemsByCodeAndValue();
+        return out -> {
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeNumberField("code", 200);
+                generator.writeStringField("message", "解析字典标签成功");
+                generator.writeArrayFieldStart("data");
+                for (DictResolveItem item : items) {
+                    generator.writeStartObject();
+                    generator.writeStringField("dictCode", item.getDictCode());
+                    generator.writeStringField("itemValue", item.getItemValue());
+                    generator.writeStringField("itemLabel", lookupLabel(index, item));
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        };
+    }
+
+    private static String lookupLabel(Map<String, Map<String, DictItem>> index, DictResolveItem item) {
+        if (item == null || item.getDictCode() == null || item.getItemValue() == null) {
+            return null;
+        }
+        Map<String, DictItem> values = index.get(item.getDictCode());
+        DictItem dictItem = values != null ? values.get(item.getItemValue()) : null;
+        return dictItem != null ? dictItem.getItemLabel() : null;
+    }
+
+    /**
+     * 记录字典变更：每个受影响的编码写一条变更日志（递增字典版本号），提交后重新加载快照并清除缓存
+     * 版本号从计数器行分配，行锁持有到提交，并发变更按提交顺序取得递增的版本号
+     */
+    private void recordChange(List<Dict> affected, Long itemId, DictChangeType type) {
+        Map<String, Long> codes = affected.stream()
+                .filter(dict -> dict.getId() != null)
+                .collect(Collectors.toMap(Dict::getDictCode, Dict::getId, (a, b) -> a, LinkedHashMap::new));
+        if (!codes.isEmpty()) {
+            if (changeLogRepository.incrementVersion(codes.size()) == 0) {
+                throw new RuntimeException("字典版本计数器未初始化");
+            }
+            long version = changeLogRepository.selectAllocatedVersion() - codes.size();
+            for (Map.Entry<String, Long> entry : codes.entrySet()) {
+                DictChangeLog change = new DictChangeLog();
+                change.setVersion(++version);
+                change.setDictId(entry.getValue());
+                change.setDictCode(entry.getKey());
+                change.setItemId(itemId);
+                change.setChangeType(type.name());
+                changeLogRepository.insert(change);
+            }
+        }
+        dictionarySnapshot.reloadAfterCommit(affected);
+    }
+
+    /**
+     * 组装字典响应（每次新建DTO，快照中的实体不会被调用方修改）
+     */
+    private DictResponse toResponse(Dict dict, List<DictItem> items) {
+        DictResponse response = new DictResponse(dict);
+        response.setItems(items.stream()
+                .map(DictItemResponse::new)
+                .collect(Collectors.toList()));
+        return response;
+    }
 }
@@ -0,0 +1,374 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.config.ClusterCacheManager;
+import com.example.springboottest.entity.Dict;
+import com.example.springboottest.entity.DictChangeLog;
+import com.example.springboottest.entity.DictItem;
+import com.example.springboottest.event.CacheInvalidatedEvent;
+import com.example.springboottest.repository.DictChangeLogRepository;
+import com.example.springboottest.repository.DictItemRepository;
+import com.example.springboottest.repository.DictRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 字典快照
+ * 启动时把全部启用的字典和字典项加载为不可变结构（按ID、编码、编码+字典项值索引，字典项已按排序号排好），
+ * 整体放在一个 volatile 引用中：读取无锁、不访问数据库。字典变更提交后重新加载并整体替换，
+ * 替换后只按字典ID、编码清除内容有变化的字典在 dictCache、dictItemCache 中的缓存，其他字典的缓存保留。
+ * 缓存读取使用 sync 模式（在缓存的原子计算中加载），清除会等待同一键上进行中的加载完成，
+ * 不会留下替换前加载的旧值。其他实例的变更通过缓存失效消息触发重新加载，另定时重新加载一次兜底。
+ * 快照同时带有字典版本号（变更日志的最大版本号，先于字典数据读取）和最近的变更日志，增量同步不访问数据库
+ */
+@Slf4j
+@Service
+public class DictionarySnapshot {
+
+    public static final String DICT_CACHE = "dictCache";
+    public static final String DICT_ITEM_CACHE = "dictItemCache";
+
+    /**
+     * dictCache 中按编码缓存的键前缀，需与 DictService 中 @Cacheable 的 key 一致
+     */
+    public static final String CODE_KEY_PREFIX = "code_";
+
+    /**
+     * 替换结果：清空全部派生缓存
+     */
+    private static final List<Dict> ALL = new ArrayList<>();
+
+    private final DictRepository dictRepository;
+    private final DictItemRepository dictItemRepository;
+    private final DictChangeLogRepository changeLogRepository;
+    private final CacheManager cacheManager;
+    private final long changeLogRetention;
+
+    /**
+     * 当前快照，null 表示尚未加载
+     */
+    private volatile Data data;
+
+    public DictionarySnapshot(DictRepository dictRepository,
+                              DictItemRepository dictItemRepository,
+                              DictChangeLogRepository changeLogRepository,
+                              CacheManager cacheManager,
+                              @Value("${dict.change-log.retention:1000}") long changeLogRetention) {
+        this.dictRepository = dictRepository;
+        this.dictItemRepository = dictItemRepository;
+        this.changeLogRepository = changeLogRepository;
+        this.cacheManager = cacheManager;
+        this.changeLogRetention = changeLogRetention;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        reload();
+    }
+
+    /**
+     * 其他实例变更字典后（收到字典缓存的失效消息）重新加载快照
+     */
+    @EventListener
+    public void onRemoteInvalidation(CacheInvalidatedEvent event) {
+        if (event.getCacheNames().contains(DICT_CACHE) || event.getCacheNames().contains(DICT_ITEM_CACHE)) {
+            reload();
+        }
+    }
+
+    /**
+     * 定时重新加载（默认每5分钟），内容有变化时替换并清空派生缓存
+     */
+    @Scheduled(fixedDelayString = "${dict.snapshot.refresh-ms:300000}",
+            initialDelayString = "${dict.snapshot.refresh-ms:300000}")
+    public void scheduledReload() {
+        try {
+            reload(true);
+        } catch (Exception e) {
+            log.error("重新加载字典快照失败", e);
+        }
+    }
+
+    /**
+     * 定时清理变更日志（默认每小时），只保留最近 retention 个版本
+     */
+    @Scheduled(fixedDelayString = "${dict.change-log.purge-ms:3600000}",
+            initialDelayString = "${dict.change-log.purge-ms:3600000}")
+    public void purgeChangeLog() {
+        try {
+            Long version = changeLogRepository.selectMaxVersion();
+            if (version != null && version > changeLogRetention) {
+                int deleted = changeLogRepository.deleteUpTo(version - changeLogRetention);
+                if (deleted > 0) {
+                    log.info("清理字典变更日志，删除: {}, 当前版本: {}", deleted, version);
+                }
+            }
+        } catch (Exception e) {
+            log.error("清理字典变更日志失败", e);
+        }
+    }
+
+    /**
+     * 字典变更后重新加载快照（在事务中调用时提交后执行）
+     * 除快照中有变化的字典外，再清除受影响字典（变更前后）的缓存，覆盖不在快照中的停用字典
+     *
+     * @param affected 受影响的字典，修改编码时需同时传入修改前的字典
+     */
+    public void reloadAfterCommit(Collection<Dict> affected) {
+        List<Dict> dicts = List.copyOf(affected);
+        Runnable action = () -> {
+            reload();
+            dicts.forEach(this::evict);
+        };
+        // 经集群缓存管理器注册：提交后回调中的清除同样广播到其他实例
+        ClusterCacheManager.afterCommit(action);
+    }
+
+    /**
+     * 从数据库重新加载并替换快照，替换后清除有变化的字典的缓存
+     */
+    public void reload() {
+        reload(false);
+    }
+
+    /**
+     * 重新加载快照，onlyIfChanged 为 true 时内容无变化则保留原快照和缓存，返回是否替换
+     * 加载和替换在锁内完成，清除缓存在锁外：sync 模式的缓存加载在缓存的原子计算中读取快照，
+     * 持锁清除会与之互相等待
+     */
+    private boolean reload(boolean onlyIfChanged) {
+        List<Dict> changed;
+        synchronized (this) {
+            changed = swap(onlyIfChanged, false);
+        }
+        if (changed == null) {
+            return false;
+        }
+        if (changed == ALL) {
+            clearDerivedCaches();
+        } else {
+            changed.forEach(this::evict);
+        }
+        return true;
+    }
+
+    /**
+     * 加载并替换快照，返回需要清除缓存的字典（ALL 表示全部清空），未替换时返回 null
+     *
+     * @param onlyIfChanged 内容无变化时不替换
+     * @param onlyIfAbsent  已有快照时不加载
+     */
+    private List<Dict> swap(boolean onlyIfChanged, boolean onlyIfAbsent) {
+        if (onlyIfAbsent && data != null) {
+            return null;
+        }
+        // 先读版本号：版本号之后提交的变更可能已在数据中，客户端下次会重复收到，不会遗漏
+        Long maxVersion = changeLogRepository.selectMaxVersion();
+        long version = maxVersion != null ? maxVersion : 0;
+        List<Dict> dicts = dictRepository.findByStatus(1);
+        List<DictItem> items = dictItemRepository.findAllActive();
+        long logFloor = Math.max(0, version - changeLogRetention);
+        List<DictChangeLog> changes = changeLogRepository.selectBetween(logFloor, version);
+        Data loaded = Data.build(version, logFloor, dicts, items, changes);
+
+        Data previous = data;
+        if (previous == null) {
+            data = loaded;
+            log.info("字典快照已加载，版本: {}, 字典数: {}, 字典项数: {}", version, loaded.dictsById().size(), items.size());
+            return ALL;
+        }
+
+        List<Dict> changed = previous.changedDicts(loaded);
+        if (onlyIfChanged && changed.isEmpty() && previous.version() == loaded.version()) {
+            return null;
+        }
+        // 先替换再清除缓存，缓存未命中时读到的一定是新快照
+        data = loaded;
+        log.info("字典快照已重新加载，版本: {}, 字典数: {}, 字典项数: {}, 有变化的字典数: {}",
+                version, loaded.dictsById().size(), items.size(), changed.size());
+        return changed;
+    }
+
+    /**
+     * 清除一个字典的缓存：dictCache 中的ID和编码键、dictItemCache 中的编码键
+     */
+    public void evict(Dict dict) {
+        Cache dictCache = cacheManager.getCache(DICT_CACHE);
+        if (dictCache != null) {
+            dictCache.evict(dict.getId());
+            dictCache.evict(CODE_KEY_PREFIX + dict.getDictCode());
+        }
+        Cache itemCache = cacheManager.getCache(DICT_ITEM_CACHE);
+        if (itemCache != null) {
+            itemCache.evict(dict.getDictCode());
+        }
+    }
+
+    /**
+     * 按ID查询启用的字典，不存在时返回 null
+     */
+    public Dict getDict(Long id) {
+        return current().dictsById().get(id);
+    }
+
+    /**
+     * 按编码查询启用的字典，不存在时返回 null
+     */
+    public Dict getDict(String dictCode) {
+        return current().dictsByCode().get(dictCode);
+    }
+
+    /**
+     * 查询字典的启用字典项（已排序），字典不存在时返回空列表
+     */
+    public List<DictItem> getItems(Long dictId) {
+        return current().itemsByDictId().getOrDefault(dictId, Collections.emptyList());
+    }
+
+    /**
+     * 按字典编码和字典项值查询启用的字典项，不存在时返回 null
+     */
+    public DictItem getItem(String dictCode, String itemValue) {
+        Map<String, DictItem> items = current().itemsByCodeAndValue().get(dictCode);
+        return items != null ? items.get(itemValue) : null;
+    }
+
+    /**
+     * 快照加载时间
+     */
+    public LocalDateTime getLoadedAt() {
+        return current().loadedAt();
+    }
+
+    /**
+     * 当前字典版本号
+     */
+    public long getVersion() {
+        return current().version();
+    }
+
+    /**
+     * 当前快照（需要在同一版本上读取多项内容时使用）
+     */
+    public Data current() {
+        Data current = data;
+        if (current == null) {
+            // 首次加载不清除缓存：可能在 sync 模式的缓存加载中调用，此时清除会等待本线程自己
+            synchronized (this) {
+                swap(false, true);
+                current = data;
+            }
+        }
+        return current;
+    }
+
+    private void clearDerivedCaches() {
+        for (String name : List.of(DICT_CACHE, DICT_ITEM_CACHE)) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    /**
+     * 快照内容，构建后不再修改（对外只通过转换后的DTO暴露，实体不会被调用方修改）
+     *
+     * @param version        字典版本号
+     * @param logFloor       变更日志覆盖 (logFloor, version]，更早的版本无法增量同步
+     * @param changeVersions 变更日志的版本号，升序
+     * @param changeCodes    与 changeVersions 对应的变更字典编码
+     */
+    public record Data(long version,
+                       long logFloor,
+                       long[] changeVersions,
+                       String[] changeCodes,
+                       Map<Long, Dict> dictsById,
+                       Map<String, Dict> dictsByCode,
+                       Map<Long, List<DictItem>> itemsByDictId,
+                       Map<String, Map<String, DictItem>> itemsByCodeAndValue,
+                       LocalDateTime loadedAt) {
+
+        /**
+         * 指定版本之后有变更的字典编码（按首次变更的顺序），无法增量同步时返回 null
+         */
+        public Set<String> changedCodesSince(long since) {
+            if (since <= 0 || since < logFloor || since > version) {
+                return null;
+            }
+            int from = Arrays.binarySearch(changeVersions, since + 1);
+            if (from < 0) {
+                from = -from - 1;
+            }
+            Set<String> codes = new LinkedHashSet<>();
+            for (int i = from; i < changeCodes.length; i++) {
+                codes.add(changeCodes[i]);
+            }
+            return codes;
+        }
+
+        static Data build(long version, long logFloor, List<Dict> dicts, List<DictItem> items,
+                          List<DictChangeLog> changes) {
+            Map<Long, Dict> byId = new HashMap<>();
+            Map<String, Dict> byCode = new HashMap<>();
+            for (Dict dict : dicts) {
+                byId.put(dict.getId(), dict);
+                byCode.put(dict.getDictCode(), dict);
+            }
+
+            // 字典项查询结果已按字典、排序号排列
+            Map<Long, List<DictItem>> itemsByDictId = new HashMap<>();
+            Map<String, Map<String, DictItem>> byCodeAndValue = new HashMap<>();
+            for (DictItem item : items) {
+                Dict dict = byId.get(item.getDictId());
+                if (dict == null) {
+                    continue;
+                }
+                itemsByDictId.computeIfAbsent(item.getDictId(), k -> new ArrayList<>()).add(item);
+                byCodeAndValue.computeIfAbsent(dict.getDictCode(), k -> new HashMap<>())
+                        .putIfAbsent(item.getItemValue(), item);
+            }
+
+            Map<Long, List<DictItem>> frozenItems = new HashMap<>();
+            itemsByDictId.forEach((dictId, list) -> frozenItems.put(dictId, List.copyOf(list)));
+            Map<String, Map<String, DictItem>> frozenValues = new HashMap<>();
+            byCodeAndValue.forEach((code, map) -> frozenValues.put(code, Map.copyOf(map)));
+            long[] changeVersions = changes.stream().mapToLong(DictChangeLog::getVersion).toArray();
+            String[] changeCodes = changes.stream().map(DictChangeLog::getDictCode).toArray(String[]::new);
+            return new Data(version, logFloor, changeVersions, changeCodes, Map.copyOf(byId), Map.copyOf(byCode), Map.copyOf(frozenItems),
+                    Map.copyOf(frozenValues), LocalDateTime.now());
+        }
+
+        /**
+         * 与新快照相比有变化的字典（新增、删除、字典本身或字典项有变化），删除或修改编码时包含变更前的字典
+         */
+        List<Dict> changedDicts(Data next) {
+            Set<Long> ids = new HashSet<>(dictsById.keySet());
+            ids.addAll(next.dictsById.keySet());
+            List<Dict> changed = new ArrayList<>();
+            for (Long id : ids) {
+                Dict before = dictsById.get(id);
+                Dict after = next.dictsById.get(id);
+                if (Objects.equals(before, after)
+                        && Objects.equals(itemsByDictId.get(id), next.itemsByDictId.get(id))) {
+                    continue;
+                }
+                if (before != null) {
+                    changed.add(before);
+                }
+                if (after != null && (before == null || !after.getDictCode().equals(before.getDictCode()))) {
+                    changed.add(after);
+                }
+            }
+            return changed;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.DTO.InboxEventMessage;
+import com.example.springboottest.DTO.InboxEventVO;
+import com.example.springboottest.config.ActiveMqConfig;
+import com.example.springboottest.enums.InboxChangeType;
+import com.example.springboottest.event.InboxChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 待办变更推送中心（SSE）
+ * 待办变更提交后分配编号（实例标识-序号），经 {@link InboxEventRelay} 广播到所有实例（包括本实例），
+ * 各实例收到后写入环形缓冲区，并放入相关审批人每个连接的有界队列，由共享的发送线程池逐个连接发送。
+ * 队列满的慢连接直接断开，客户端带 Last-Event-ID 重连（可连到其他实例）后从该编号在缓冲区中的位置续传；
+ * 编号已不在缓冲区内（过旧、服务重启或本实例未收到）时推送 RESYNC，客户端重新拉取待办列表。
+ * 写缓冲区、入队和新连接的续传在同一把锁内完成，保证每个连接按缓冲区顺序收到且不重复不遗漏
+ */
+@Slf4j
+@Service
+public class InboxEventHub {
+
+    private static final String EVENT_NAME = "inbox";
+
+    private final long timeoutMs;
+    private final int queueCapacity;
+    private final Entry[] ring;
+    private final ExecutorService sender;
+
+    /**
+     * 本实例标识，与序号组成事件编号，各实例生成的编号不重复
+     */
+    private final String origin = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Object lock = new Object();
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * 缓冲区中的事件编号到缓冲区位置的映射，用于续传定位
+     */
+    private final Map<String, Long> positions = new HashMap<>();
+    private long lastPosition;
+    private String lastEventId;
+
+    private InboxEventRelay relay;
+
+    public InboxEventHub(@Value("${approval.inbox.sse.timeout-ms:1800000}") long timeoutMs,
+                         @Value("${approval.inbox.sse.queue-capacity:256}") int queueCapacity,
+                         @Value("${approval.inbox.sse.replay-size:10000}") int replaySize,
+                         @Value("${approval.inbox.sse.sender-threads:2}") int senderThreads) {
+        this.timeoutMs = timeoutMs;
+        this.queueCapacity = queueCapacity;
+        this.ring = new Entry[replaySize];
+        AtomicInteger threadSequence = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "inbox-sse-" + threadSequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 启用中继时，待办变更经主题广播后再推送
+     */
+    @Autowired(required = false)
+    public void setRelay(InboxEventRelay relay) {
+        this.relay = relay;
+    }
+
+    /**
+     * 订阅用户的待办变更
+     *
+     * @param lastEventId 客户端收到的最后一个事件编号（重连时），为空表示新连接
+     */
+    public SseEmitter subscribe(Long userId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        synchronized (lock) {
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId);
+            }
+            subscribers.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        log.debug("订阅待办推送，用户ID: {}, Last-Event-ID: {}", userId, lastEventId);
+        return emitter;
+    }
+
+    /**
+     * 待办变更提交后分配编号并广播，中继发送失败或未启用时只推送给本实例的连接
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInboxChanged(InboxChangedEvent event) {
+        InboxEventMessage message = new InboxEventMessage();
+        message.setId(origin + "-" + sequence.incrementAndGet());
+        message.setType(event.getType().name());
+        message.setTaskId(event.getTaskId());
+        message.setNodeId(event.getNodeId());
+        message.setApproverIds(event.getApproverIds());
+        message.setOccurredAt(System.currentTimeMillis());
+        if (relay != null) {
+            try {
+                relay.send(message);
+                return;
+            } catch (Exception e) {
+                log.warn("广播待办变更失败，只推送给本实例的连接，任务ID: {}", event.getTaskId(), e);
+            }
+        }
+        ingest(message);
+    }
+
+    /**
+     * 接收广播的待办变更（包括本实例发出的）
+     */
+    @JmsListener(destination = ActiveMqConfig.INBOX_EVENT_TOPIC, containerFactory = "topicListenerContainerFactory")
+    public void onRelayed(InboxEventMessage message) {
+        if (relay == null) {
+            return;
+        }
+        ingest(message);
+    }
+
+    /**
+     * 写入缓冲区并推送给相关审批人的连接
+     */
+    private void ingest(InboxEventMessage message) {
+        InboxEventVO payload = new InboxEventVO(message.getType(), message.getTaskId(), message.getNodeId(),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(message.getOccurredAt()), ZoneId.systemDefault()));
+        Set<Long> recipients = message.getApproverIds() != null ? Set.copyOf(message.getApproverIds()) : null;
+        synchronized (lock) {
+            Entry entry = new Entry(++lastPosition, message.getId(), recipients, payload);
+            int slot = (int) (entry.position() % ring.length);
+            if (ring[slot] != null) {
+                positions.remove(ring[slot].id());
+            }
+            ring[slot] = entry;
+            positions.put(entry.id(), entry.position());
+            lastEventId = entry.id();
+            if (recipients == null) {
+                subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.offer(entry)));
+            } else {
+                for (Long userId : recipients) {
+                    Set<Subscriber> set = subscribers.get(userId);
+                    if (set != null) {
+                        set.forEach(subscriber -> subscriber.offer(entry));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 定时发送心跳注释（默认25秒），保持代理连接并及时发现已断开的连接
+     */
+    @Scheduled(fixedDelayString = "${approval.inbox.sse.heartbeat-ms:25000}")
+    public void heartbeat() {
+        subscribers.values().forEach(set -> set.forEach(subscriber -> subscriber.offer(null)));
+    }
+
+    /**
+     * 当前在线连接数
+     */
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(set -> set.forEach(Subscriber::complete));
+        sender.shutdownNow();
+    }
+
+    /**
+     * 续传 lastEventId 之后发给该用户的事件
+     * 编号不在缓冲区内、或待续传的事件超过队列容量时推送重新同步（编号为缓冲区中最新的事件，没有事件时不带编号）
+     */
+    private void replay(Subscriber subscriber, String lastEventId) {
+        Long position = positions.get(lastEventId);
+        List<Entry> missed = new ArrayList<>();
+        if (position != null) {
+            for (long p = position + 1; p <= lastPosition && missed.size() < queueCapacity; p++) {
+                Entry entry = ring[(int) (p % ring.length)];
+                if (entry.recipients() == null || entry.recipients().contains(subscriber.userId)) {
+                    missed.add(entry);
+                }
+            }
+        }
+        if (position == null || missed.size() >= queueCapacity) {
+            subscriber.offer(new Entry(lastPosition, this.lastEventId, null,
+                    new InboxEventVO(InboxChangeType.RESYNC.name(), null, null, LocalDateTime.now())));
+            return;
+        }
+        missed.forEach(subscriber::offer);
+    }
+
+    /**
+     * 缓冲区中的事件，position 为本实例缓冲区中的位置，recipients 为 null 表示发给全部用户
+     */
+    private record Entry(long position, String id, Set<Long> recipients, InboxEventVO payload) {
+    }
+
+    /**
+     * 一个 SSE 连接：有界队列 + 同一时刻最多一个发送任务
+     */
+    private final class Subscriber {
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Optional<Entry>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        /**
+         * 入队，entry 为 null 表示心跳；队列已满时断开连接
+         */
+        void offer(Entry entry) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(Optional.ofNullable(entry))) {
+                log.warn("待办推送连接消费过慢，断开连接，用户ID: {}", userId);
+                complete();
+                return;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Optional<Entry> next;
+                while (!closed && (next = queue.poll()) != null) {
+                    if (next.isPresent()) {
+                        Entry entry = next.get();
+                        SseEmitter.SseEventBuilder event = SseEmitter.event().name(EVENT_NAME).data(entry.payload());
+                        if (entry.id() != null) {
+                            event.id(entry.id());
+                        }
+                        emitter.send(event);
+                    } else {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("待办推送连接已断开，用户ID: {}", userId);
+                close();
+            } finally {
+                draining.set(false);
+                if (!closed && !queue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        /**
+         * 服务端主动结束连接
+         */
+        void complete() {
+            close();
+            try {
+                emitter.complete();
+            } catch (Exception e) {
+                log.debug("结束待办推送连接失败，用户ID: {}", userId, e);
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+            subscribers.computeIfPresent(userId, (k, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.DTO.InboxEventMessage;
+import com.example.springboottest.config.ActiveMqConfig;
+import jakarta.jms.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.stereotype.Service;
+
+/**
+ * 待办变更中继
+ * 待办变更发布到 ActiveMQ 主题，各实例（包括发布的实例）收到后交给本地推送中心，连接在任一实例上的审批人都能收到。
+ * 同一个 Broker 按接收顺序向各订阅者分发，各实例缓冲区中的事件顺序一致，客户端可带 Last-Event-ID 在其他实例续传
+ * （approval.inbox.relay.enabled=false 时不创建，只推送给本实例的连接，需要按用户粘性路由）
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "approval.inbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class InboxEventRelay implements DisposableBean {
+
+    private final CachingConnectionFactory cachingConnectionFactory;
+    private final JmsTemplate jmsTemplate;
+
+    public InboxEventRelay(ConnectionFactory connectionFactory, MessageConverter jacksonJmsMessageConverter) {
+        this.cachingConnectionFactory = new CachingConnectionFactory(connectionFactory);
+        this.jmsTemplate = new JmsTemplate(cachingConnectionFactory);
+        this.jmsTemplate.setMessageConverter(jacksonJmsMessageConverter);
+        this.jmsTemplate.setPubSubDomain(true);
+    }
+
+    /**
+     * 发布待办变更到主题
+     */
+    public void send(InboxEventMessage message) {
+        jmsTemplate.convertAndSend(ActiveMqConfig.INBOX_EVENT_TOPIC, message);
+        log.debug("发布待办变更，编号: {}, 任务ID: {}", message.getId(), message.getTaskId());
+    }
+
+    @Override
+    public void destroy() {
+        cachingConnectionFactory.destroy();
+    }
+}
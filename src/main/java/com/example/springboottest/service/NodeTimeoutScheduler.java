@@ -0,0 +1,261 @@
+package com.example.springboottest.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.example.springboottest.entity.Task;
+import com.example.springboottest.entity.TaskNodeProgress;
+import com.example.springboottest.enums.TaskStatus;
+import com.example.springboottest.event.ApprovalNodeEnteredEvent;
+import com.example.springboottest.exception.VersionConflictException;
+import com.example.springboottest.repository.TaskNodeProgressRepository;
+import com.example.springboottest.repository.TaskRepository;
+import com.example.springboottest.util.HierarchicalTimingWheel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 审批节点超时调度
+ * 未完成节点的超时时间保存在 task_node_progress.deadline_at 中，本调度只把即将到期（horizon 以内）的部分
+ * 放进内存分层时间轮：启动时按 (deadline_at, id) 分批加载，之后周期性向前加载，新进入的节点通过事件直接登记。
+ * 到期项按批在一个事务内处理，每项先与数据库中的进度行核对，再经 TaskApprovalService 自动通过或发布超时升级事件；
+ * 处理结果以条件更新认领，重启或多实例重复登记不会重复处理
+ */
+@Slf4j
+@Service
+public class NodeTimeoutScheduler {
+
+    private static final int WHEEL_SIZE = 60;
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final TaskRepository taskRepository;
+    private final TaskNodeProgressRepository progressRepository;
+    private final ApprovalFlowCache flowCache;
+    private final TaskApprovalService approvalService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final long tickMs;
+    private final long horizonMinutes;
+    private final int batchSize;
+
+    /**
+     * 已到期但尚未处理的项（添加时已过期的项也进入这里）
+     */
+    private final Queue<NodeDeadline> due = new ConcurrentLinkedQueue<>();
+
+    private volatile HierarchicalTimingWheel<NodeDeadline> wheel;
+    private ScheduledExecutorService executor;
+
+    // 增量加载游标（仅由调度线程读写）
+    private LocalDateTime loadedTime;
+    private Long loadedId;
+
+    public NodeTimeoutScheduler(TaskRepository taskRepository,
+                                TaskNodeProgressRepository progressRepository,
+                                ApprovalFlowCache flowCache,
+                                TaskApprovalService approvalService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${approval.timeout.enabled:true}") boolean enabled,
+                                @Value("${approval.timeout.tick-ms:1000}") long tickMs,
+                                @Value("${approval.timeout.horizon-minutes:120}") long horizonMinutes,
+                                @Value("${approval.timeout.batch-size:100}") int batchSize) {
+        this.taskRepository = taskRepository;
+        this.progressRepository = progressRepository;
+        this.flowCache = flowCache;
+        this.approvalService = approvalService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.tickMs = tickMs;
+        this.horizonMinutes = horizonMinutes;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 应用启动完成后开始调度
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("审批节点超时调度未启用");
+            return;
+        }
+        wheel = new HierarchicalTimingWheel<>(tickMs, WHEEL_SIZE, System.currentTimeMillis());
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "node-timeout-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long loadIntervalMinutes = Math.max(1, horizonMinutes / 2);
+        executor.scheduleWithFixedDelay(this::loadUpcoming, 0, loadIntervalMinutes, TimeUnit.MINUTES);
+        executor.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        log.info("审批节点超时调度已启动，时间轮格宽: {}ms, 加载窗口: {}分钟", tickMs, horizonMinutes);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 任务进入节点并提交后登记超时（窗口外的由周期加载补上）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNodeEntered(ApprovalNodeEnteredEvent event) {
+        if (wheel == null || event.getDeadlineAt() == null) {
+            return;
+        }
+        if (!event.getDeadlineAt().isAfter(LocalDateTime.now().plusMinutes(horizonMinutes * 2))) {
+            schedule(new NodeDeadline(event.getTaskId(), event.getNodeId(), event.getDeadlineAt()));
+        }
+    }
+
+    /**
+     * 时间轮中待到期的项数
+     */
+    public int getScheduledCount() {
+        return wheel != null ? wheel.size() : 0;
+    }
+
+    private void schedule(NodeDeadline deadline) {
+        if (!wheel.add(deadline, deadline.expirationMs())) {
+            due.add(deadline);
+        }
+    }
+
+    /**
+     * 把截止时间落在加载窗口内的未完成节点分批放进时间轮
+     */
+    private void loadUpcoming() {
+        try {
+            LocalDateTime until = LocalDateTime.now().plusMinutes(horizonMinutes);
+            int loaded = 0;
+            while (true) {
+                List<TaskNodeProgress> rows = progressRepository.selectDeadlinesAfter(
+                        until, loadedTime, loadedId, LOAD_PAGE_SIZE);
+                for (TaskNodeProgress row : rows) {
+                    schedule(new NodeDeadline(row.getTaskId(), row.getNodeId(), row.getDeadlineAt()));
+                }
+                loaded += rows.size();
+                if (!rows.isEmpty()) {
+                    TaskNodeProgress last = rows.get(rows.size() - 1);
+                    loadedTime = last.getDeadlineAt();
+                    loadedId = last.getId();
+                }
+                if (rows.size() < LOAD_PAGE_SIZE) {
+                    break;
+                }
+            }
+            if (loaded > 0) {
+                log.info("加载审批节点超时 {} 个，时间轮待到期: {}", loaded, wheel.size());
+            }
+        } catch (Exception e) {
+            log.error("加载审批节点超时失败", e);
+        }
+    }
+
+    /**
+     * 推进时间轮并按批处理到期项
+     * 时间轮按格到期，同一格内的项最多提前一个格宽取出，尚未到截止时间的重新登记（落在当前格的进入下一轮）
+     */
+    private void tick() {
+        try {
+            long nowMs = System.currentTimeMillis();
+            List<NodeDeadline> drained = wheel.advanceClock(nowMs);
+            NodeDeadline polled;
+            while ((polled = due.poll()) != null) {
+                drained.add(polled);
+            }
+            List<NodeDeadline> expired = new ArrayList<>(drained.size());
+            for (NodeDeadline deadline : drained) {
+                if (deadline.expirationMs() > nowMs) {
+                    schedule(deadline);
+                } else {
+                    expired.add(deadline);
+                }
+            }
+            for (int from = 0; from < expired.size(); from += batchSize) {
+                List<NodeDeadline> batch = expired.subList(from, Math.min(from + batchSize, expired.size()));
+                transactionTemplate.executeWithoutResult(status -> processBatch(batch, status));
+            }
+        } catch (Exception e) {
+            log.error("处理审批节点超时失败", e);
+        }
+    }
+
+    private void processBatch(List<NodeDeadline> batch, TransactionStatus status) {
+        Set<Long> taskIds = batch.stream().map(NodeDeadline::taskId).collect(Collectors.toSet());
+        Map<Long, Task> tasks = taskRepository.selectBatchIds(taskIds).stream()
+                .collect(Collectors.toMap(Task::getId, Function.identity()));
+        Set<Long> nodeIds = batch.stream().map(NodeDeadline::nodeId).collect(Collectors.toSet());
+        // 同一任务可能有多个未完成的进度行（如驳回后重新提交前留下的），按 (任务, 节点) 核对
+        Map<NodeKey, TaskNodeProgress> progressByNode = progressRepository.selectList(
+                new LambdaQueryWrapper<TaskNodeProgress>()
+                        .in(TaskNodeProgress::getTaskId, taskIds)
+                        .in(TaskNodeProgress::getNodeId, nodeIds)
+                        .eq(TaskNodeProgress::getCompleted, 0)
+        ).stream().collect(Collectors.toMap(p -> new NodeKey(p.getTaskId(), p.getNodeId()), Function.identity()));
+        Map<Long, CompiledFlow> flows = flowCache.getAll(tasks.values().stream()
+                .map(Task::getFlowId)
+                .collect(Collectors.toSet()));
+
+        for (NodeDeadline deadline : batch) {
+            Task task = tasks.get(deadline.taskId());
+            TaskNodeProgress progress = progressByNode.get(new NodeKey(deadline.taskId(), deadline.nodeId()));
+            CompiledFlow flow = task != null ? flows.get(task.getFlowId()) : null;
+            CompiledFlow.Node node = flow != null ? flow.getNode(deadline.nodeId()) : null;
+
+            // 与数据库核对：任务仍停在该节点、节点未完成且超时时间未变
+            if (node == null
+                    || !TaskStatus.fromName(task.getStatus()).canApprove()
+                    || !deadline.nodeId().equals(task.getCurrentNodeId())
+                    || progress == null
+                    || !deadline.deadlineAt().equals(progress.getDeadlineAt())) {
+                continue;
+            }
+
+            Object savepoint = status.createSavepoint();
+            try {
+                approvalService.applyTimeout(task, flow, node, deadline.deadlineAt());
+                status.releaseSavepoint(savepoint);
+            } catch (VersionConflictException e) {
+                // 任务被并发修改（如同时有人审批），下一轮重新核对
+                status.rollbackToSavepoint(savepoint);
+                due.add(deadline);
+            } catch (RuntimeException e) {
+                status.rollbackToSavepoint(savepoint);
+                log.error("处理审批节点超时失败，任务ID: {}, 节点ID: {}", deadline.taskId(), deadline.nodeId(), e);
+            }
+        }
+    }
+
+    /**
+     * 时间轮中的到期项
+     */
+    private record NodeDeadline(Long taskId, Long nodeId, LocalDateTime deadlineAt) {
+
+        long expirationMs() {
+            return deadlineAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+    }
+
+    private record NodeKey(Long taskId, Long nodeId) {
+    }
+}
@@ -12,8 +12,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -28,6 +28,7 @@ public class TaskApprovalFlowService {
     private final TaskApprovalNodeRepository nodeRepository;
     private final RoleRepository roleRepository;
     private final UserRepository userRepository;
+    private final ApprovalFlowCache flowCache;
 
     /**
      * 创建审批流
@@ -56,35 +57,8 @@ public class TaskApprovalFlowService {
         flow.setCreatedBy(userId);
         flowRepository.insert(flow);
 
-        // 4. 创建审批节点配置
-        for (FlowNodeRequest nodeRequest : request.getNodes()) {
-            TaskApprovalNode node = new TaskApprovalNode();
-            node.setFlowId(flow.getId());
-            node.setNodeCode(nodeRequest.getNodeCode());
-            node.setNodeName(nodeRequest.getNodeName());
-            node.setNodeOrder(nodeRequest.getNodeOrder());
-            node.setApprovalType(nodeRequest.getApprovalType().name());
-            node.setApproverType(nodeRequest.getApproverType());
-
-            // 设置审批人
-            if (ApproverType.USER.name().equals(nodeRequest.getApproverType())) {
-                if (nodeRequest.getApproverIds() != null && !nodeRequest.getApproverIds().isEmpty()) {
-                    String approverIds = nodeRequest.getApproverIds().stream()
-                            .map(String::valueOf)
-                            .collect(Collectors.joining(","));
-                    node.setApproverIds(approverIds);
-                }
-            } else if (ApproverType.ROLE.name().equals(nodeRequest.getApproverType())) {
-                if (nodeRequest.getApproverRoles() != null && !nodeRequest.getApproverRoles().isEmpty()) {
-                    String approverRoles = String.join(",", nodeRequest.getApproverRoles());
-                    node.setApproverRoles(approverRoles);
-                }
-            }
-
-            node.setTimeoutHours(nodeRequest.getTimeoutHours());
-            node.setAutoPass(0);
-            nodeRepository.insert(node);
-        }
+        // 4. 批量创建审批节点配置
+        nodeRepository.insertBatch(buildNodes(flow.getId(), request.getNodes()));
 
         log.info("审批流创建成功，流程编码: {}", flow.getFlowCode());
 
@@ -110,6 +84,7 @@ public class TaskApprovalFlowService {
         // 3. 禁用旧版本
         oldFlow.setStatus(0);
         flowRepository.updateById(oldFlow);
+        flowCache.evict(oldFlow.getId());
 
         // 4. 创建新版本
         TaskApprovalFlow newFlow = new TaskApprovalFlow();
@@ -122,34 +97,8 @@ public class TaskApprovalFlowService {
         newFlow.setCreatedBy(userId);
         flowRepository.insert(newFlow);
 
-        // 5. 创建新版本的审批节点配置
-        for (FlowNodeRequest nodeRequest : request.getNodes()) {
-            TaskApprovalNode node = new TaskApprovalNode();
-            node.setFlowId(newFlow.getId());
-            node.setNodeCode(nodeRequest.getNodeCode());
-            node.setNodeName(nodeRequest.getNodeName());
-            node.setNodeOrder(nodeRequest.getNodeOrder());
-            node.setApprovalType(nodeRequest.getApprovalType().name());
-            node.setApproverType(nodeRequest.getApproverType());
-
-            if (ApproverType.USER.name().equals(nodeRequest.getApproverType())) {
-                if (nodeRequest.getApproverIds() != null && !nodeRequest.getApproverIds().isEmpty()) {
-                    String approverIds = nodeRequest.getApproverIds().stream()
-                            .map(String::valueOf)
-                            .collect(Collectors.joining(","));
-                    node.setApproverIds(approverIds);
-                }
-            } else if (ApproverType.ROLE.name().equals(nodeRequest.getApproverType())) {
-                if (nodeRequest.getApproverRoles() != null && !nodeRequest.getApproverRoles().isEmpty()) {
-                    String approverRoles = String.join(",", nodeRequest.getApproverRoles());
-                    node.setApproverRoles(approverRoles);
-                }
-            }
-
-            node.setTimeoutHours(nodeRequest.getTimeoutHours());
-            node.setAutoPass(0);
-            nodeRepository.insert(node);
-        }
+        // 5. 批量创建新版本的审批节点配置
+        nodeRepository.insertBatch(buildNodes(newFlow.getId(), request.getNodes()));
 
         log.info("审批流更新成功，流程编码: {}, 新版本: {}", newFlow.getFlowCode(), newFlow.getVersion());
 
@@ -180,8 +129,21 @@ public class TaskApprovalFlowService {
         detailVO.setVersion(flow.getVersion());
         detailVO.setCreatedAt(flow.getCreatedAt());
 
+        // 汇总全部节点引用的审批人和角色，各用一次批量查询
+        Set<Long> userIds = new HashSet<>();
+        Set<String> roleCodes = new HashSet<>();
+        for (TaskApprovalNode node : nodes) {
+            if (ApproverType.USER.name().equals(node.getApproverType())) {
+                userIds.addAll(parseApproverIds(node.getApproverIds()));
+            } else if (ApproverType.ROLE.name().equals(node.getApproverType())) {
+                roleCodes.addAll(parseRoleCodes(node.getApproverRoles()));
+            }
+        }
+        Map<Long, User> users = loadUsers(userIds);
+        Map<String, Role> roles = loadRoles(roleCodes);
+
         List<TaskApprovalNodeVO> nodeVOs = nodes.stream()
-                .map(this::convertNodeToVO)
+                .map(node -> convertNodeToVO(node, users, roles))
                 .collect(Collectors.toList());
         detailVO.setNodes(nodeVOs);
 
@@ -223,35 +185,127 @@ public class TaskApprovalFlowService {
             }
         }
 
-        // 校验每个节点的配置
+        // 校验每个节点的配置，同时汇总引用的审批人和角色
+        Set<Long> userIds = new LinkedHashSet<>();
+        Set<String> roleCodes = new LinkedHashSet<>();
         for (FlowNodeRequest node : nodes) {
             // 校验审批人类型和审批人配置
             if (ApproverType.USER.name().equals(node.getApproverType())) {
                 if (node.getApproverIds() == null || node.getApproverIds().isEmpty()) {
                     throw new BusinessException("节点 " + node.getNodeName() + " 未配置审批人");
                 }
-                // 校验用户是否存在
-                for (Long userId : node.getApproverIds()) {
-                    User user = userRepository.selectById(userId);
-                    if (user == null) {
-                        throw new BusinessException("审批人不存在，用户ID: " + userId);
-                    }
-                }
+                userIds.addAll(node.getApproverIds());
             } else if (ApproverType.ROLE.name().equals(node.getApproverType())) {
                 if (node.getApproverRoles() == null || node.getApproverRoles().isEmpty()) {
                     throw new BusinessException("节点 " + node.getNodeName() + " 未配置审批角色");
                 }
-                // 校验角色是否存在
-                for (String roleCode : node.getApproverRoles()) {
-                    Role role = roleRepository.selectByRoleCode(roleCode);
-                    if (role == null) {
-                        throw new BusinessException("审批角色不存在，角色编码: " + roleCode);
-                    }
-                }
+                roleCodes.addAll(node.getApproverRoles());
             } else {
                 throw new BusinessException("不支持的审批人类型: " + node.getApproverType());
             }
         }
+
+        // 校验用户、角色是否存在（各一次批量查询）
+        Map<Long, User> users = loadUsers(userIds);
+        for (Long userId : userIds) {
+            if (!users.containsKey(userId)) {
+                throw new BusinessException("审批人不存在，用户ID: " + userId);
+            }
+        }
+        Map<String, Role> roles = loadRoles(roleCodes);
+        for (String roleCode : roleCodes) {
+            if (!roles.containsKey(roleCode)) {
+                throw new BusinessException("审批角色不存在，角色编码: " + roleCode);
+            }
+        }
+    }
+
+    /**
+     * 根据请求构建审批节点
+     */
+    private List<TaskApprovalNode> buildNodes(Long flowId, List<FlowNodeRequest> nodeRequests) {
+        List<TaskApprovalNode> nodes = new ArrayList<>(nodeRequests.size());
+        for (FlowNodeRequest nodeRequest : nodeRequests) {
+            TaskApprovalNode node = new TaskApprovalNode();
+            node.setFlowId(flowId);
+            node.setNodeCode(nodeRequest.getNodeCode());
+            node.setNodeName(nodeRequest.getNodeName());
+            node.setNodeOrder(nodeRequest.getNodeOrder());
+            node.setApprovalType(nodeRequest.getApprovalType().name());
+            node.setApproverType(nodeRequest.getApproverType());
+
+            // 设置审批人
+            if (ApproverType.USER.name().equals(nodeRequest.getApproverType())) {
+                if (nodeRequest.getApproverIds() != null && !nodeRequest.getApproverIds().isEmpty()) {
+                    String approverIds = nodeRequest.getApproverIds().stream()
+                            .map(String::valueOf)
+                            .collect(Collectors.joining(","));
+                    node.setApproverIds(approverIds);
+                }
+            } else if (ApproverType.ROLE.name().equals(nodeRequest.getApproverType())) {
+                if (nodeRequest.getApproverRoles() != null && !nodeRequest.getApproverRoles().isEmpty()) {
+                    String approverRoles = String.join(",", nodeRequest.getApproverRoles());
+                    node.setApproverRoles(approverRoles);
+                }
+            }
+
+            node.setTimeoutHours(nodeRequest.getTimeoutHours());
+            node.setAutoPass(0);
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    /**
+     * 批量查询用户，返回 ID -> 用户
+     */
+    private Map<Long, User> loadUsers(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return userRepository.selectBatchIds(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+
+    /**
+     * 批量查询启用的角色，返回 角色编码 -> 角色
+     */
+    private Map<String, Role> loadRoles(Collection<String> roleCodes) {
+        if (roleCodes.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return roleRepository.selectByRoleCodes(roleCodes).stream()
+                .collect(Collectors.toMap(Role::getRoleCode, Function.identity(), (a, b) -> a));
+    }
+
+    /**
+     * 解析逗号分隔的审批人ID，忽略无法解析的项
+     */
+    private List<Long> parseApproverIds(String approverIds) {
+        List<Long> ids = new ArrayList<>();
+        if (approverIds == null || approverIds.isEmpty()) {
+            return ids;
+        }
+        for (String id : approverIds.split(",")) {
+            try {
+                ids.add(Long.parseLong(id.trim()));
+            } catch (NumberFormatException e) {
+                log.warn("解析审批人ID失败: {}", id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 解析逗号分隔的角色编码
+     */
+    private List<String> parseRoleCodes(String approverRoles) {
+        if (approverRoles == null || approverRoles.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(approverRoles.split(","))
+                .map(String::trim)
+                .collect(Collectors.toList());
     }
 
     /**
@@ -271,9 +325,9 @@ public class TaskApprovalFlowService {
     }
 
     /**
-     * 转换审批节点为VO
+     * 转换审批节点为VO，审批人和角色名称取自批量查询的结果
      */
-    private TaskApprovalNodeVO convertNodeToVO(TaskApprovalNode node) {
+    private TaskApprovalNodeVO convertNodeToVO(TaskApprovalNode node, Map<Long, User> users, Map<String, Role> roles) {
         TaskApprovalNodeVO vo = new TaskApprovalNodeVO();
         vo.setId(node.getId());
         vo.setNodeCode(node.getNodeCode());
@@ -286,17 +340,10 @@ public class TaskApprovalFlowService {
         // 设置审批人名称
         List<String> approverNames = new ArrayList<>();
         if (ApproverType.USER.name().equals(node.getApproverType())) {
-            if (node.getApproverIds() != null && !node.getApproverIds().isEmpty()) {
-                String[] ids = node.getApproverIds().split(",");
-                for (String id : ids) {
-                    try {
-                        User user = userRepository.selectById(Long.parseLong(id.trim()));
-                        if (user != null) {
-                            approverNames.add(user.getUsername());
-                        }
-                    } catch (NumberFormatException e) {
-                        log.warn("解析审批人ID失败: {}", id);
-                    }
+            for (Long id : parseApproverIds(node.getApproverIds())) {
+                User user = users.get(id);
+                if (user != null) {
+                    approverNames.add(user.getUsername());
                 }
             }
         }
@@ -305,13 +352,10 @@ public class TaskApprovalFlowService {
         // 设置审批角色名称
         List<String> approverRoleNames = new ArrayList<>();
         if (ApproverType.ROLE.name().equals(node.getApproverType())) {
-            if (node.getApproverRoles() != null && !node.getApproverRoles().isEmpty()) {
-                String[] roles = node.getApproverRoles().split(",");
-                for (String roleCode : roles) {
-                    Role role = roleRepository.selectByRoleCode(roleCode.trim());
-                    if (role != null) {
-                        approverRoleNames.add(role.getRoleName());
-                    }
+            for (String roleCode : parseRoleCodes(node.getApproverRoles())) {
+                Role role = roles.get(roleCode);
+                if (role != null) {
+                    approverRoleNames.add(role.getRoleName());
                 }
             }
         }
@@ -1,40 +1,95 @@
 package com.example.springboottest.service;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.example.springboottest.DTO.*;
 import com.example.springboottest.entity.*;
 import com.example.springboottest.enums.*;
+import com.example.springboottest.event.ApprovalDecidedEvent;
+import com.example.springboottest.event.ApprovalNodeTimeoutEvent;
+import com.example.springboottest.event.TaskChangedEvent;
+import com.example.springboottest.event.TaskStatusChangedEvent;
 import com.example.springboottest.exception.BusinessException;
 import com.example.springboottest.exception.ResourceNotFoundException;
+import com.example.springboottest.exception.VersionConflictException;
 import com.example.springboottest.repository.*;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * 任务审批服务（核心审批逻辑）
+ * 任务状态流转按版本号比较并更新（乐观锁），并发审批同一任务时后提交的一方版本冲突，
+ * 整个事务回滚后重新读取任务重试，不对任务行加悲观锁
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class TaskApprovalService {
 
     private final TaskRepository taskRepository;
-    private final TaskApprovalNodeRepository nodeRepository;
     private final TaskApprovalRecordRepository recordRepository;
     private final UserRepository userRepository;
-    private final UserRoleRepository userRoleRepository;
+    private final ApprovalFlowCache flowCache;
+    private final ApprovalNodeService approvalNodeService;
+    private final ApproverInboxService inboxService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    private TaskArchiveService archiveService;
+
+    public TaskApprovalService(TaskRepository taskRepository,
+                               TaskApprovalRecordRepository recordRepository,
+                               UserRepository userRepository,
+                               ApprovalFlowCache flowCache,
+                               ApprovalNodeService approvalNodeService,
+                               ApproverInboxService inboxService,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${approval.optimistic.max-attempts:3}") int maxAttempts,
+                               @Value("${approval.optimistic.retry-backoff-ms:20}") long retryBackoffMs) {
+        this.taskRepository = taskRepository;
+        this.recordRepository = recordRepository;
+        this.userRepository = userRepository;
+        this.flowCache = flowCache;
+        this.approvalNodeService = approvalNodeService;
+        this.inboxService = inboxService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    /**
+     * 热表中没有审批记录时，审批历史回退到归档表
+     */
+    @Autowired(required = false)
+    public void setArchiveService(TaskArchiveService archiveService) {
+        this.archiveService = archiveService;
+    }
 
     /**
      * 审批通过
      */
-    @Transactional
     public ApprovalResultVO approve(ApproveRequest request, Long userId) {
+        return transition(() -> doApprove(request, userId));
+    }
+
+    private ApprovalResultVO doApprove(ApproveRequest request, Long userId) {
         log.info("审批通过，任务ID: {}, 用户ID: {}", request.getTaskId(), userId);
 
         // 1. 校验任务状态
@@ -54,7 +109,8 @@ public class TaskApprovalService {
         }
 
         // 3. 查询当前节点
-        TaskApprovalNode currentNode = nodeRepository.selectById(task.getCurrentNodeId());
+        CompiledFlow flow = flowCache.get(task.getFlowId());
+        CompiledFlow.Node currentNode = flow != null ? flow.getNode(task.getCurrentNodeId()) : null;
         if (currentNode == null) {
             throw new BusinessException("审批节点不存在");
         }
@@ -66,58 +122,130 @@ public class TaskApprovalService {
             throw new BusinessException("未找到待审批记录");
         }
 
-        // 5. 更新审批记录
+        return applyApprove(task, flow, currentNode, pendingRecord, request.getComment());
+    }
+
+    /**
+     * 执行审批通过（任务状态、权限、节点已由调用方校验）
+     * 单个审批与批量审批共用
+     */
+    ApprovalResultVO applyApprove(Task task, CompiledFlow flow, CompiledFlow.Node currentNode,
+                                  TaskApprovalRecord pendingRecord, String comment) {
+        // 1. 更新审批记录（仅更新仍为待审批的记录，避免重复计数）
         pendingRecord.setAction(ApprovalAction.APPROVE.name());
         pendingRecord.setResult(ApprovalResult.APPROVED.name());
-        pendingRecord.setComment(request.getComment());
+        pendingRecord.setComment(comment);
         pendingRecord.setApprovalTime(LocalDateTime.now());
-        recordRepository.updateById(pendingRecord);
-
-        // 6. 判断当前节点是否完成
-        boolean nodeCompleted = isNodeCompleted(task.getId(), currentNode.getId(),
-                ApprovalType.fromName(currentNode.getApprovalType()));
+        int updated = recordRepository.update(pendingRecord, new LambdaUpdateWrapper<TaskApprovalRecord>()
+                .eq(TaskApprovalRecord::getId, pendingRecord.getId())
+                .eq(TaskApprovalRecord::getResult, ApprovalResult.PENDING.name()));
+        if (updated == 0) {
+            throw new BusinessException("该审批记录已处理");
+        }
 
-        String message;
-        boolean flowCompleted = false;
-        String nextNodeName = null;
+        // 2. 判断当前节点是否完成（节点进度行是同一节点审批人之间的第一个共享锁，先于待办加锁，避免与推进节点时清空待办死锁）
+        boolean nodeCompleted = approvalNodeService.recordApproval(task.getId(), currentNode);
+        inboxService.remove(task.getId(), pendingRecord.getApproverId());
 
+        ApprovalResultVO result;
         if (nodeCompleted) {
-            log.info("节点审批完成，节点: {}", currentNode.getNodeName());
-
-            // 7. 查询下一个节点
-            TaskApprovalNode nextNode = nodeRepository.selectNextNode(
-                    task.getFlowId(), currentNode.getNodeOrder() + 1);
-
-            if (nextNode != null) {
-                // 进入下一个审批节点
-                moveToNextNode(task, nextNode);
-                message = "审批通过，已进入下一节点: " + nextNode.getNodeName();
-                nextNodeName = nextNode.getNodeName();
-            } else {
-                // 所有节点审批完成
-                task.setStatus(TaskStatus.APPROVED.name());
-                task.setCompletedAt(LocalDateTime.now());
-                taskRepository.updateById(task);
-                message = "审批通过，任务审批流程已全部完成";
-                flowCompleted = true;
-            }
+            result = completeNode(task, flow, currentNode);
         } else {
-            // 当前节点还需其他人审批（会签场景）
-            message = "审批通过，等待其他审批人审批";
-            task.setStatus(TaskStatus.IN_PROGRESS.name());
-            taskRepository.updateById(task);
+            // 当前节点还需其他人审批（会签场景），状态已是审批中时不更新任务，避免会签审批人之间的版本冲突
+            if (!TaskStatus.IN_PROGRESS.name().equals(task.getStatus())) {
+                changeStatus(task, TaskStatus.IN_PROGRESS);
+            }
+            result = buildApprovalResult(task, "审批通过，等待其他审批人审批", false, null);
         }
+        eventPublisher.publishEvent(new TaskChangedEvent(task.getId()));
+        publishDecided(task, currentNode, ApprovalResult.APPROVED, pendingRecord.getCreatedAt(),
+                pendingRecord.getApprovalTime());
 
         log.info("审批通过成功，任务编号: {}, 节点: {}", task.getTaskNo(), currentNode.getNodeName());
 
-        return buildApprovalResult(task, message, flowCompleted, nextNodeName);
+        return result;
+    }
+
+    /**
+     * 处理节点超时（由超时调度在批量事务中调用，节点进度与任务当前节点已由调用方校验）
+     * 节点配置了自动通过时，将剩余待审批记录置为通过并流转到下一节点；否则清除超时时间并发布超时升级事件
+     *
+     * @return 处理结果，超时已被其他流程处理时返回 null
+     */
+    ApprovalResultVO applyTimeout(Task task, CompiledFlow flow, CompiledFlow.Node node, LocalDateTime deadlineAt) {
+        if (!node.isAutoPass()) {
+            if (!approvalNodeService.claimTimeout(task.getId(), node.getId(), deadlineAt)) {
+                return null;
+            }
+            log.warn("审批节点超时，任务编号: {}, 节点: {}", task.getTaskNo(), node.getNodeName());
+            eventPublisher.publishEvent(new ApprovalNodeTimeoutEvent(
+                    task.getId(), task.getTaskNo(), node.getId(), node.getNodeName()));
+            return buildApprovalResult(task, "审批节点已超时", false, node.getNodeName());
+        }
+
+        if (!approvalNodeService.forceComplete(task.getId(), node.getId(), deadlineAt)) {
+            return null;
+        }
+
+        // 剩余待审批记录由系统置为通过
+        TaskApprovalRecord autoPassed = new TaskApprovalRecord();
+        autoPassed.setAction(ApprovalAction.APPROVE.name());
+        autoPassed.setResult(ApprovalResult.APPROVED.name());
+        autoPassed.setComment("审批超时，系统自动通过");
+        autoPassed.setApprovalTime(LocalDateTime.now());
+        recordRepository.update(autoPassed, new LambdaUpdateWrapper<TaskApprovalRecord>()
+                .eq(TaskApprovalRecord::getTaskId, task.getId())
+                .eq(TaskApprovalRecord::getNodeId, node.getId())
+                .eq(TaskApprovalRecord::getResult, ApprovalResult.PENDING.name()));
+
+        log.info("审批节点超时自动通过，任务编号: {}, 节点: {}", task.getTaskNo(), node.getNodeName());
+        ApprovalResultVO result = completeNode(task, flow, node);
+        eventPublisher.publishEvent(new TaskChangedEvent(task.getId()));
+        return result;
+    }
+
+    /**
+     * 发布审批/驳回事件，供节点耗时统计使用（进入节点时间未知时不发布）
+     */
+    private void publishDecided(Task task, CompiledFlow.Node node, ApprovalResult result,
+                                LocalDateTime enteredAt, LocalDateTime decidedAt) {
+        if (enteredAt == null || decidedAt == null) {
+            return;
+        }
+        eventPublisher.publishEvent(new ApprovalDecidedEvent(task.getFlowId(), node.getId(), result.name(),
+                Duration.between(enteredAt, decidedAt).toMillis()));
+    }
+
+    /**
+     * 节点完成：进入下一节点，或在最后一个节点时结束流程
+     */
+    private ApprovalResultVO completeNode(Task task, CompiledFlow flow, CompiledFlow.Node currentNode) {
+        log.info("节点审批完成，节点: {}", currentNode.getNodeName());
+
+        // 查询下一个节点
+        CompiledFlow.Node nextNode = flow.getNextNode(currentNode);
+        if (nextNode != null) {
+            // 进入下一个审批节点
+            moveToNextNode(task, nextNode);
+            return buildApprovalResult(task, "审批通过，已进入下一节点: " + nextNode.getNodeName(),
+                    false, nextNode.getNodeName());
+        }
+
+        // 所有节点审批完成
+        task.setCompletedAt(LocalDateTime.now());
+        changeStatus(task, TaskStatus.APPROVED);
+        inboxService.removeTask(task.getId());
+        return buildApprovalResult(task, "审批通过，任务审批流程已全部完成", true, null);
     }
 
     /**
      * 驳回到指定节点
      */
-    @Transactional
     public ApprovalResultVO reject(RejectRequest request, Long userId) {
+        return transition(() -> doReject(request, userId));
+    }
+
+    private ApprovalResultVO doReject(RejectRequest request, Long userId) {
         log.info("驳回任务，任务ID: {}, 用户ID: {}, 驳回到节点ID: {}",
                 request.getTaskId(), userId, request.getRejectToNodeId());
 
@@ -138,8 +266,9 @@ public class TaskApprovalService {
         }
 
         // 3. 查询当前节点和驳回目标节点
-        TaskApprovalNode currentNode = nodeRepository.selectById(task.getCurrentNodeId());
-        TaskApprovalNode rejectToNode = nodeRepository.selectById(request.getRejectToNodeId());
+        CompiledFlow flow = flowCache.get(task.getFlowId());
+        CompiledFlow.Node currentNode = flow != null ? flow.getNode(task.getCurrentNodeId()) : null;
+        CompiledFlow.Node rejectToNode = flow != null ? flow.getNode(request.getRejectToNodeId()) : null;
 
         if (currentNode == null) {
             throw new BusinessException("当前审批节点不存在");
@@ -153,47 +282,46 @@ public class TaskApprovalService {
             throw new BusinessException("只能驳回到之前的审批节点");
         }
 
-        // 5. 创建驳回记录
         User user = userRepository.selectById(userId);
+        return applyReject(task, currentNode, rejectToNode, userId,
+                user != null ? user.getUsername() : "", request.getComment());
+    }
+
+    /**
+     * 执行驳回（任务状态、权限、驳回目标节点已由调用方校验）
+     * 单个驳回与批量驳回共用
+     */
+    ApprovalResultVO applyReject(Task task, CompiledFlow.Node currentNode, CompiledFlow.Node rejectToNode,
+                                 Long userId, String userName, String comment) {
+        // 1. 创建驳回记录（节点进度随后会被清除，先取进入节点时间）
+        LocalDateTime enteredAt = approvalNodeService.getEnteredAt(task.getId(), currentNode.getId());
         TaskApprovalRecord rejectRecord = new TaskApprovalRecord();
         rejectRecord.setTaskId(task.getId());
         rejectRecord.setNodeId(currentNode.getId());
         rejectRecord.setNodeName(currentNode.getNodeName());
         rejectRecord.setNodeOrder(currentNode.getNodeOrder());
         rejectRecord.setApproverId(userId);
-        rejectRecord.setApproverName(user != null ? user.getUsername() : "");
+        rejectRecord.setApproverName(userName);
         rejectRecord.setAction(ApprovalAction.REJECT.name());
         rejectRecord.setResult(ApprovalResult.REJECTED.name());
-        rejectRecord.setComment(request.getComment());
+        rejectRecord.setComment(comment);
         rejectRecord.setRejectToNodeId(rejectToNode.getId());
         rejectRecord.setApprovalTime(LocalDateTime.now());
         recordRepository.insert(rejectRecord);
 
-        // 6. 更新任务状态和当前节点
-        task.setStatus(TaskStatus.REJECTED.name());
+        // 2. 更新任务状态和当前节点
         task.setCurrentNodeId(rejectToNode.getId());
         task.setCurrentNodeOrder(rejectToNode.getNodeOrder());
-        taskRepository.updateById(task);
+        changeStatus(task, TaskStatus.REJECTED);
 
-        // 7. 删除驳回节点之后的所有审批记录
+        // 3. 删除驳回节点之后的所有审批记录和节点进度
         recordRepository.deleteByTaskIdAndNodeOrderGreaterThan(task.getId(), rejectToNode.getNodeOrder());
+        approvalNodeService.resetAfter(task.getId(), rejectToNode.getNodeOrder());
 
-        // 8. 创建驳回节点的待审批记录
-        List<Long> approverIds = getNodeApprovers(rejectToNode);
-        for (Long approverId : approverIds) {
-            User approver = userRepository.selectById(approverId);
-            if (approver != null) {
-                TaskApprovalRecord record = new TaskApprovalRecord();
-                record.setTaskId(task.getId());
-                record.setNodeId(rejectToNode.getId());
-                record.setNodeName(rejectToNode.getNodeName());
-                record.setNodeOrder(rejectToNode.getNodeOrder());
-                record.setApproverId(approverId);
-                record.setApproverName(approver.getUsername());
-                record.setResult(ApprovalResult.PENDING.name());
-                recordRepository.insert(record);
-            }
-        }
+        // 4. 创建驳回节点的待审批记录
+        approvalNodeService.enterNode(task, rejectToNode);
+        eventPublisher.publishEvent(new TaskChangedEvent(task.getId()));
+        publishDecided(task, currentNode, ApprovalResult.REJECTED, enteredAt, rejectRecord.getApprovalTime());
 
         log.info("任务驳回成功，任务编号: {}, 驳回到节点: {}",
                 task.getTaskNo(), rejectToNode.getNodeName());
@@ -205,8 +333,11 @@ public class TaskApprovalService {
     /**
      * 转交他人审批
      */
-    @Transactional
     public ApprovalResultVO transfer(TransferRequest request, Long userId) {
+        return transition(() -> doTransfer(request, userId));
+    }
+
+    private ApprovalResultVO doTransfer(TransferRequest request, Long userId) {
         log.info("转交审批，任务ID: {}, 用户ID: {}, 转交给: {}",
                 request.getTaskId(), userId, request.getTransferToUserId());
 
@@ -233,7 +364,8 @@ public class TaskApprovalService {
         }
 
         // 4. 查询当前节点
-        TaskApprovalNode currentNode = nodeRepository.selectById(task.getCurrentNodeId());
+        CompiledFlow flow = flowCache.get(task.getFlowId());
+        CompiledFlow.Node currentNode = flow != null ? flow.getNode(task.getCurrentNodeId()) : null;
         if (currentNode == null) {
             throw new BusinessException("当前审批节点不存在");
         }
@@ -264,6 +396,11 @@ public class TaskApprovalService {
         newRecord.setResult(ApprovalResult.PENDING.name());
         recordRepository.insert(newRecord);
 
+        // 7. 待办从当前用户移到转交目标用户
+        inboxService.remove(task.getId(), userId);
+        inboxService.add(task, currentNode.getId(), List.of(targetUser.getId()));
+        eventPublisher.publishEvent(new TaskChangedEvent(task.getId()));
+
         log.info("审批转交成功，任务编号: {}, 转交给: {}",
                 task.getTaskNo(), targetUser.getUsername());
 
@@ -279,6 +416,19 @@ public class TaskApprovalService {
         log.info("获取审批历史，任务ID: {}", taskId);
 
         List<TaskApprovalRecord> records = recordRepository.selectByTaskId(taskId);
+        // 任务和审批记录在同一事务中归档，热表无记录时任务可能已整体搬到归档表
+        boolean archived = records.isEmpty() && archiveService != null;
+        if (archived) {
+            records = archiveService.findRecords(taskId);
+        }
+
+        // 驳回节点名称从审批流缓存中取，只有存在驳回记录时才需要查询任务
+        CompiledFlow flow = null;
+        if (records.stream().anyMatch(record -> record.getRejectToNodeId() != null)) {
+            Task task = archived ? archiveService.findTask(taskId) : taskRepository.selectById(taskId);
+            flow = task != null ? flowCache.get(task.getFlowId()) : null;
+        }
+        CompiledFlow taskFlow = flow;
 
         return records.stream().map(record -> {
             ApprovalRecordVO vo = new ApprovalRecordVO();
@@ -297,7 +447,7 @@ public class TaskApprovalService {
 
             // 设置驳回节点名称
             if (record.getRejectToNodeId() != null) {
-                TaskApprovalNode rejectNode = nodeRepository.selectById(record.getRejectToNodeId());
+                CompiledFlow.Node rejectNode = taskFlow != null ? taskFlow.getNode(record.getRejectToNodeId()) : null;
                 vo.setRejectToNodeName(rejectNode != null ? rejectNode.getNodeName() : "");
             }
 
@@ -306,144 +456,87 @@ public class TaskApprovalService {
     }
 
     /**
-     * 判断用户是否有审批权限
+     * 执行任务状态流转
+     * 每次尝试在独立事务中执行（重新读取任务），版本冲突或数据库死锁被回滚时随机退避后重试，最多 maxAttempts 次。
+     * 已处于外层事务中（如批量审批）时直接执行，冲突由外层处理
      */
-    private boolean hasApprovalPermission(Task task, Long userId) {
-        if (task.getCurrentNodeId() == null) {
-            return false;
+    <T> T transition(Supplier<T> attempt) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return attempt.get();
         }
-
-        TaskApprovalNode currentNode = nodeRepository.selectById(task.getCurrentNodeId());
-        if (currentNode == null) {
-            return false;
+        for (int attemptNo = 1; ; attemptNo++) {
+            try {
+                return transactionTemplate.execute(status -> attempt.get());
+            } catch (VersionConflictException | ConcurrencyFailureException e) {
+                if (attemptNo >= maxAttempts) {
+                    log.warn("任务并发修改冲突，重试{}次后放弃: {}", attemptNo - 1, e.getMessage());
+                    throw e;
+                }
+                log.info("任务并发修改冲突，第{}次重试", attemptNo);
+                backoff(attemptNo);
+            }
         }
-
-        // 查询用户是否有待审批记录
-        TaskApprovalRecord pendingRecord = recordRepository.selectPendingByTaskNodeAndApprover(
-                task.getId(), currentNode.getId(), userId);
-
-        return pendingRecord != null;
     }
 
     /**
-     * 检查当前节点是否完成
-     * 会签：所有审批人都通过才完成
-     * 或签：任意一人通过即完成
+     * 比较并设置任务：按读取时的版本号更新，版本号已变化时抛出版本冲突异常
      */
-    private boolean isNodeCompleted(Long taskId, Long nodeId, ApprovalType approvalType) {
-        if (ApprovalType.OR_SIGN == approvalType) {
-            // 或签：任意一人通过即完成
-            return isOrSignNodeCompleted(taskId, nodeId);
-        } else if (ApprovalType.COUNTERSIGN == approvalType) {
-            // 会签：所有人通过才完成
-            return isCountersignNodeCompleted(taskId, nodeId);
+    void compareAndSet(Task task) {
+        if (taskRepository.updateById(task) == 0) {
+            throw new VersionConflictException("任务已被其他操作修改，请刷新后重试");
         }
-        return false;
     }
 
     /**
-     * 检查或签节点是否完成
-     * 只要有任意一人通过即可
+     * 设置任务状态并按版本号保存，状态有变化时发布状态变更事件（保存成功后才发布）
      */
-    private boolean isOrSignNodeCompleted(Long taskId, Long nodeId) {
-        Long count = recordRepository.countApprovedByTaskIdAndNodeId(taskId, nodeId);
-        return count > 0;
+    private void changeStatus(Task task, TaskStatus status) {
+        String fromStatus = task.getStatus();
+        task.setStatus(status.name());
+        compareAndSet(task);
+        if (!status.name().equals(fromStatus)) {
+            eventPublisher.publishEvent(new TaskStatusChangedEvent(task.getId(), task.getTaskType(),
+                    task.getPriority(), fromStatus, status.name()));
+        }
+    }
+
+    private void backoff(int attemptNo) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(retryBackoffMs * attemptNo + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VersionConflictException("任务已被其他操作修改，请刷新后重试");
+        }
     }
 
     /**
-     * 检查会签节点是否完成
-     * 所有审批人都必须通过
+     * 判断用户是否有审批权限
      */
-    private boolean isCountersignNodeCompleted(Long taskId, Long nodeId) {
-        // 1. 获取该节点所有审批人
-        TaskApprovalNode node = nodeRepository.selectById(nodeId);
-        if (node == null) {
+    private boolean hasApprovalPermission(Task task, Long userId) {
+        if (task.getCurrentNodeId() == null) {
             return false;
         }
 
-        List<Long> allApprovers = getNodeApprovers(node);
-        if (allApprovers.isEmpty()) {
-            return false;
-        }
+        // 查询用户是否有待审批记录
+        TaskApprovalRecord pendingRecord = recordRepository.selectPendingByTaskNodeAndApprover(
+                task.getId(), task.getCurrentNodeId(), userId);
 
-        // 2. 查询已通过的审批记录
-        List<TaskApprovalRecord> approvedRecords = recordRepository.selectList(
-                new LambdaQueryWrapper<TaskApprovalRecord>()
-                        .eq(TaskApprovalRecord::getTaskId, taskId)
-                        .eq(TaskApprovalRecord::getNodeId, nodeId)
-                        .eq(TaskApprovalRecord::getResult, ApprovalResult.APPROVED.name())
-        );
-
-        // 3. 检查是否所有人都已审批通过
-        List<Long> approvedUserIds = approvedRecords.stream()
-                .map(TaskApprovalRecord::getApproverId)
-                .distinct()
-                .collect(Collectors.toList());
-
-        return approvedUserIds.size() >= allApprovers.size() &&
-                approvedUserIds.containsAll(allApprovers);
+        return pendingRecord != null;
     }
 
     /**
      * 进入下一个审批节点
      */
-    private void moveToNextNode(Task task, TaskApprovalNode nextNode) {
+    private void moveToNextNode(Task task, CompiledFlow.Node nextNode) {
         log.info("进入下一个审批节点，任务: {}, 节点: {}", task.getTaskNo(), nextNode.getNodeName());
 
         // 1. 更新任务的当前节点
         task.setCurrentNodeId(nextNode.getId());
         task.setCurrentNodeOrder(nextNode.getNodeOrder());
-        task.setStatus(TaskStatus.IN_PROGRESS.name());
-        taskRepository.updateById(task);
+        changeStatus(task, TaskStatus.IN_PROGRESS);
 
         // 2. 创建待审批记录
-        List<Long> approverIds = getNodeApprovers(nextNode);
-        for (Long approverId : approverIds) {
-            User approver = userRepository.selectById(approverId);
-            if (approver != null) {
-                TaskApprovalRecord record = new TaskApprovalRecord();
-                record.setTaskId(task.getId());
-                record.setNodeId(nextNode.getId());
-                record.setNodeName(nextNode.getNodeName());
-                record.setNodeOrder(nextNode.getNodeOrder());
-                record.setApproverId(approverId);
-                record.setApproverName(approver.getUsername());
-                record.setResult(ApprovalResult.PENDING.name());
-                recordRepository.insert(record);
-            }
-        }
-    }
-
-    /**
-     * 获取节点的审批人列表
-     */
-    private List<Long> getNodeApprovers(TaskApprovalNode node) {
-        List<Long> approverIds = new java.util.ArrayList<>();
-
-        if (ApproverType.USER.name().equals(node.getApproverType())) {
-            // 指定用户审批
-            if (node.getApproverIds() != null && !node.getApproverIds().isEmpty()) {
-                String[] ids = node.getApproverIds().split(",");
-                for (String id : ids) {
-                    try {
-                        approverIds.add(Long.parseLong(id.trim()));
-                    } catch (NumberFormatException e) {
-                        log.warn("解析审批人ID失败: {}", id);
-                    }
-                }
-            }
-        } else if (ApproverType.ROLE.name().equals(node.getApproverType())) {
-            // 按角色审批
-            if (node.getApproverRoles() != null && !node.getApproverRoles().isEmpty()) {
-                String[] roles = node.getApproverRoles().split(",");
-                for (String roleCode : roles) {
-                    List<Long> userIds = userRoleRepository.selectUserIdsByRoleCode(roleCode.trim());
-                    approverIds.addAll(userIds);
-                }
-            }
-        }
-
-        return approverIds.stream().distinct().collect(Collectors.toList());
+        approvalNodeService.enterNode(task, nextNode);
     }
 
     /**
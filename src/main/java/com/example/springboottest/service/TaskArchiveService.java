@@ -0,0 +1,214 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.entity.Task;
+import com.example.springboottest.entity.TaskApprovalRecord;
+import com.example.springboottest.repository.JobLockRepository;
+import com.example.springboottest.repository.TaskArchiveRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 任务归档服务
+ * 结束超过 retentionDays 天的任务连同审批记录按块搬到归档表：每块按ID顺序取 batchSize 个任务，
+ * 在一个事务内复制到归档表并从热表删除，块之间暂停 pauseMs 毫秒，避免长事务和持续占满IO。
+ * 多实例部署时各实例都会触发定时归档，只有抢到 job_lock 租约的实例执行，每块之前续期，续期失败即停止。
+ * 热表只保留进行中和近期结束的任务；任务详情、审批历史、我审批过的任务在热表未命中时回退到归档表
+ */
+@Slf4j
+@Service
+public class TaskArchiveService {
+
+    private static final String JOB_NAME = "task-archive";
+
+    private final TaskArchiveRepository archiveRepository;
+    private final JobLockRepository jobLockRepository;
+    private final TaskCounters taskCounters;
+    private final TaskSearchService searchService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int batchSize;
+    private final long pauseMs;
+    private final int maxBatchesPerRun;
+    private final long leaseSeconds;
+
+    /**
+     * 本实例在 job_lock 中的标识
+     */
+    private final String owner = UUID.randomUUID().toString();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public TaskArchiveService(TaskArchiveRepository archiveRepository,
+                              JobLockRepository jobLockRepository,
+                              TaskCounters taskCounters,
+                              TaskSearchService searchService,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${task.archive.enabled:true}") boolean enabled,
+                              @Value("${task.archive.retention-days:90}") int retentionDays,
+                              @Value("${task.archive.batch-size:500}") int batchSize,
+                              @Value("${task.archive.pause-ms:200}") long pauseMs,
+                              @Value("${task.archive.max-batches-per-run:2000}") int maxBatchesPerRun,
+                              @Value("${task.archive.lease-seconds:300}") long leaseSeconds) {
+        this.archiveRepository = archiveRepository;
+        this.jobLockRepository = jobLockRepository;
+        this.taskCounters = taskCounters;
+        this.searchService = searchService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    /**
+     * 定时归档（默认每天凌晨2:30）
+     */
+    @Scheduled(cron = "${task.archive.cron:0 30 2 * * ?}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archive();
+        } catch (Exception e) {
+            log.error("任务归档失败", e);
+        }
+    }
+
+    /**
+     * 归档结束超过保留天数的任务，返回归档的任务数（本实例或其他实例已有归档在执行时返回0）
+     */
+    public int archive() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("任务归档正在执行，跳过本次");
+            return 0;
+        }
+        try {
+            jobLockRepository.insertIfAbsent(JOB_NAME);
+            if (jobLockRepository.tryAcquire(JOB_NAME, owner, leaseSeconds) == 0) {
+                log.info("任务归档正在其他实例执行，跳过本次");
+                return 0;
+            }
+            try {
+                return archiveLocked();
+            } finally {
+                jobLockRepository.release(JOB_NAME, owner);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int archiveLocked() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        log.info("开始归档任务，结束时间早于: {}", before);
+
+        int archived = 0;
+        long afterId = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            // 每块之前续期：块间暂停或数据库变慢导致租约已被其他实例取得时停止
+            if (batch > 0 && jobLockRepository.tryAcquire(JOB_NAME, owner, leaseSeconds) == 0) {
+                log.warn("任务归档租约已失效，停止本次归档，已归档任务数: {}", archived);
+                break;
+            }
+            List<Long> taskIds = archiveRepository.selectArchivableTaskIds(before, afterId, batchSize);
+            if (taskIds.isEmpty()) {
+                break;
+            }
+            Integer moved = transactionTemplate.execute(status -> archiveBatch(taskIds));
+            archived += moved != null ? moved : 0;
+            searchService.remove(taskIds);
+            afterId = taskIds.get(taskIds.size() - 1);
+            if (taskIds.size() < batchSize) {
+                break;
+            }
+            pause();
+        }
+
+        if (archived > 0) {
+            // 归档的任务已移出任务表，重新对账任务数
+            taskCounters.reconcile();
+        }
+        log.info("任务归档完成，归档任务数: {}", archived);
+        return archived;
+    }
+
+    /**
+     * 查询已归档的任务，不存在时返回 null
+     */
+    public Task findTask(Long taskId) {
+        return archiveRepository.selectTaskById(taskId);
+    }
+
+    /**
+     * 批量查询已归档的任务
+     */
+    public List<Task> findTasks(List<Long> taskIds) {
+        return taskIds.isEmpty() ? Collections.emptyList() : archiveRepository.selectTasksByIds(taskIds);
+    }
+
+    /**
+     * 查询已归档任务的审批记录
+     */
+    public List<TaskApprovalRecord> findRecords(Long taskId) {
+        return archiveRepository.selectRecordsByTaskId(taskId);
+    }
+
+    /**
+     * 游标分页查询用户在已归档任务上的最近一次审批/驳回记录
+     */
+    public List<TaskApprovalRecord> findLatestDecisionsAfter(Long userId, LocalDateTime afterTime, Long afterId,
+                                                             int limit) {
+        return archiveRepository.selectLatestDecisionsAfter(userId, afterTime, afterId, limit);
+    }
+
+    /**
+     * 统计用户审批/驳回过的已归档任务数
+     */
+    public long countDecidedTasks(Long userId) {
+        Long count = archiveRepository.countDecidedTasksByApproverId(userId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * 归档表中最晚的审批时间：审批时间晚于它的记录一定在热表中，null 表示归档表为空
+     * 每次从数据库读取（idx_approval_time 索引端点，开销很小）：归档可能由其他实例执行，本地缓存会过时
+     */
+    public LocalDateTime getArchivedDecisionWatermark() {
+        return archiveRepository.selectMaxApprovalTime();
+    }
+
+    private int archiveBatch(List<Long> taskIds) {
+        int tasks = archiveRepository.copyTasks(taskIds);
+        int records = archiveRepository.copyRecords(taskIds);
+        archiveRepository.deleteRecords(taskIds);
+        archiveRepository.deleteProgress(taskIds);
+        archiveRepository.deleteInbox(taskIds);
+        archiveRepository.deleteTasks(taskIds);
+        log.debug("归档任务 {} 个，审批记录 {} 条，最大任务ID: {}", tasks, records, taskIds.get(taskIds.size() - 1));
+        return tasks;
+    }
+
+    private void pause() {
+        if (pauseMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.springboottest.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.example.springboottest.DTO.ApprovalResultVO;
+import com.example.springboottest.DTO.BatchApprovalRequest;
+import com.example.springboottest.DTO.BatchApprovalResultVO;
+import com.example.springboottest.entity.Task;
+import com.example.springboottest.entity.TaskApprovalRecord;
+import com.example.springboottest.entity.User;
+import com.example.springboottest.enums.ApprovalAction;
+import com.example.springboottest.enums.ApprovalResult;
+import com.example.springboottest.enums.TaskStatus;
+import com.example.springboottest.exception.BusinessException;
+import com.example.springboottest.repository.TaskApprovalRecordRepository;
+import com.example.springboottest.repository.TaskRepository;
+import com.example.springboottest.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 批量审批服务
+ * 任务按块处理，块内的任务、待审批记录、审批流各用一次批量查询加载。
+ * 每个任务在独立事务中执行：单个任务失败（含死锁、锁等待超时）只回滚该任务，
+ * 该任务已发布的事务事件随回滚丢弃，不影响同块其他任务
+ */
+@Slf4j
+@Service
+public class TaskBatchApprovalService {
+
+    private final TaskRepository taskRepository;
+    private final TaskApprovalRecordRepository recordRepository;
+    private final UserRepository userRepository;
+    private final ApprovalFlowCache flowCache;
+    private final TaskApprovalService approvalService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public TaskBatchApprovalService(TaskRepository taskRepository,
+                                    TaskApprovalRecordRepository recordRepository,
+                                    UserRepository userRepository,
+                                    ApprovalFlowCache flowCache,
+                                    TaskApprovalService approvalService,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${approval.batch.chunk-size:100}") int chunkSize) {
+        this.taskRepository = taskRepository;
+        this.recordRepository = recordRepository;
+        this.userRepository = userRepository;
+        this.flowCache = flowCache;
+        this.approvalService = approvalService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 批量审批通过或驳回
+     */
+    public BatchApprovalResultVO process(BatchApprovalRequest request, Long userId) {
+        boolean reject = ApprovalAction.REJECT.name().equals(request.getAction());
+        if (reject && (request.getComment() == null || request.getComment().isBlank())) {
+            throw new BusinessException("驳回原因不能为空");
+        }
+
+        List<Long> taskIds = request.getTaskIds().stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        log.info("批量审批，用户ID: {}, 操作: {}, 任务数: {}", userId, request.getAction(), taskIds.size());
+
+        User user = userRepository.selectById(userId);
+        String userName = user != null ? user.getUsername() : "";
+
+        List<BatchApprovalResultVO.Item> items = new ArrayList<>(taskIds.size());
+        for (int from = 0; from < taskIds.size(); from += chunkSize) {
+            List<Long> chunk = taskIds.subList(from, Math.min(from + chunkSize, taskIds.size()));
+            items.addAll(processChunk(chunk, request, reject, userId, userName));
+        }
+
+        int successCount = (int) items.stream().filter(BatchApprovalResultVO.Item::getSuccess).count();
+        BatchApprovalResultVO result = new BatchApprovalResultVO();
+        result.setTotal(items.size());
+        result.setSuccessCount(successCount);
+        result.setFailureCount(items.size() - successCount);
+        result.setResults(items);
+
+        log.info("批量审批完成，用户ID: {}, 成功: {}, 失败: {}", userId, successCount, items.size() - successCount);
+        return result;
+    }
+
+    private List<BatchApprovalResultVO.Item> processChunk(List<Long> taskIds, BatchApprovalRequest request,
+                                                          boolean reject, Long userId, String userName) {
+        // 1. 批量加载任务、当前用户的待审批记录、审批流
+        Map<Long, Task> tasks = taskRepository.selectBatchIds(taskIds).stream()
+                .collect(Collectors.toMap(Task::getId, Function.identity()));
+
+        Map<Long, List<TaskApprovalRecord>> pendingByTask = tasks.isEmpty() ? Collections.emptyMap() :
+                recordRepository.selectList(new LambdaQueryWrapper<TaskApprovalRecord>()
+                        .in(TaskApprovalRecord::getTaskId, tasks.keySet())
+                        .eq(TaskApprovalRecord::getApproverId, userId)
+                        .eq(TaskApprovalRecord::getResult, ApprovalResult.PENDING.name())
+                ).stream().collect(Collectors.groupingBy(TaskApprovalRecord::getTaskId));
+
+        Map<Long, CompiledFlow> flows = flowCache.getAll(tasks.values().stream()
+                .map(Task::getFlowId)
+                .collect(Collectors.toSet()));
+
+        // 2. 逐个任务在独立事务中处理，任务行按版本号更新，加载后被修改的任务版本冲突失败
+        List<BatchApprovalResultVO.Item> items = new ArrayList<>(taskIds.size());
+        for (Long taskId : taskIds) {
+            BatchApprovalResultVO.Item item = new BatchApprovalResultVO.Item();
+            item.setTaskId(taskId);
+            try {
+                Task task = tasks.get(taskId);
+                ApprovalResultVO result = transactionTemplate.execute(status -> reject
+                        ? rejectOne(task, flows, pendingByTask, request.getRejectToNodeOrder(),
+                                userId, userName, request.getComment())
+                        : approveOne(task, flows, pendingByTask, request.getComment()));
+                item.setSuccess(true);
+                item.setMessage(result.getMessage());
+                item.setResult(result);
+            } catch (RuntimeException e) {
+                item.setSuccess(false);
+                item.setMessage(e instanceof BusinessException ? e.getMessage() : "处理失败");
+                if (!(e instanceof BusinessException)) {
+                    log.error("批量审批任务处理失败，任务ID: {}", taskId, e);
+                }
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    private ApprovalResultVO approveOne(Task task, Map<Long, CompiledFlow> flows,
+                                        Map<Long, List<TaskApprovalRecord>> pendingByTask,
+                                        String comment) {
+        CompiledFlow flow = checkApprovable(task, flows);
+        CompiledFlow.Node currentNode = flow.getNode(task.getCurrentNodeId());
+        TaskApprovalRecord pendingRecord = findPendingRecord(task, pendingByTask);
+        return approvalService.applyApprove(task, flow, currentNode, pendingRecord, comment);
+    }
+
+    private ApprovalResultVO rejectOne(Task task, Map<Long, CompiledFlow> flows,
+                                       Map<Long, List<TaskApprovalRecord>> pendingByTask,
+                                       Integer rejectToNodeOrder, Long userId, String userName, String comment) {
+        CompiledFlow flow = checkApprovable(task, flows);
+        CompiledFlow.Node currentNode = flow.getNode(task.getCurrentNodeId());
+        findPendingRecord(task, pendingByTask);
+
+        int targetOrder = rejectToNodeOrder != null ? rejectToNodeOrder : currentNode.getNodeOrder() - 1;
+        CompiledFlow.Node rejectToNode = flow.getNodeByOrder(targetOrder);
+        if (rejectToNode == null) {
+            throw new BusinessException("驳回目标节点不存在");
+        }
+        if (rejectToNode.getNodeOrder() >= currentNode.getNodeOrder()) {
+            throw new BusinessException("只能驳回到之前的审批节点");
+        }
+        return approvalService.applyReject(task, currentNode, rejectToNode, userId, userName, comment);
+    }
+
+    /**
+     * 校验任务可审批，返回任务的审批流
+     */
+    private CompiledFlow checkApprovable(Task task, Map<Long, CompiledFlow> flows) {
+        if (task == null) {
+            throw new BusinessException("任务不存在");
+        }
+        TaskStatus status = TaskStatus.fromName(task.getStatus());
+        if (!status.canApprove()) {
+            throw new BusinessException("任务状态不允许审批，当前状态: " + status.getDisplayName());
+        }
+        CompiledFlow flow = flows.get(task.getFlowId());
+        if (flow == null || flow.getNode(task.getCurrentNodeId()) == null) {
+            throw new BusinessException("审批节点不存在");
+        }
+        return flow;
+    }
+
+    /**
+     * 查找当前用户在任务当前节点上的待审批记录（即审批权限）
+     */
+    private TaskApprovalRecord findPendingRecord(Task task, Map<Long, List<TaskApprovalRecord>> pendingByTask) {
+        return pendingByTask.getOrDefault(task.getId(), Collections.emptyList()).stream()
+                .filter(record -> task.getCurrentNodeId().equals(record.getNodeId()))
+                .findFirst()
+                .orElseThrow(() -> new BusinessException("您没有权限审批此任务"));
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.DTO.TaskCountStatsVO;
+import com.example.springboottest.DTO.TaskCountVO;
+import com.example.springboottest.event.TaskStatusChangedEvent;
+import com.example.springboottest.repository.TaskRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 任务数计数器
+ * 按 (状态, 任务类型, 优先级) 维护 LongAdder，任务状态变更提交后在原状态减一、新状态加一，
+ * 看板和 task.count 指标直接读内存，不对任务表做 GROUP BY。
+ * 定时与数据库对账：对账查询期间的变更同时记入日志，查询完成后叠加到数据库结果上再整体替换
+ * （计数更新持读锁，开始记日志和替换计数持写锁）
+ */
+@Slf4j
+@Service
+public class TaskCounters {
+
+    private final TaskRepository taskRepository;
+    private final MultiGauge gauge;
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private volatile Map<CounterKey, LongAdder> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 对账期间的变更，不在对账时为 null
+     */
+    private volatile Map<CounterKey, LongAdder> journal;
+
+    private volatile LocalDateTime reconciledAt;
+
+    public TaskCounters(TaskRepository taskRepository, MeterRegistry meterRegistry) {
+        this.taskRepository = taskRepository;
+        this.gauge = MultiGauge.builder("task.count")
+                .description("按状态、任务类型、优先级统计的任务数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 启动后从数据库加载初始计数
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        reconcile();
+    }
+
+    /**
+     * 任务状态变更提交后更新计数
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(TaskStatusChangedEvent event) {
+        if (event.getFromStatus() != null) {
+            apply(new CounterKey(event.getFromStatus(), event.getTaskType(), event.getPriority()), -1);
+        }
+        apply(new CounterKey(event.getToStatus(), event.getTaskType(), event.getPriority()), 1);
+    }
+
+    /**
+     * 与数据库对账（默认每5分钟），返回对账前后计数差异的绝对值之和
+     */
+    @Scheduled(fixedDelayString = "${task.counters.reconcile-ms:300000}",
+            initialDelayString = "${task.counters.reconcile-ms:300000}")
+    public synchronized long reconcile() {
+        Map<CounterKey, LongAdder> changes = new ConcurrentHashMap<>();
+        swapLock.writeLock().lock();
+        try {
+            journal = changes;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        List<TaskCountVO> rows;
+        try {
+            rows = taskRepository.countGroupByStatusTypePriority();
+        } catch (RuntimeException e) {
+            journal = null;
+            log.error("任务数对账失败", e);
+            return 0;
+        }
+
+        Map<CounterKey, LongAdder> reconciled = new ConcurrentHashMap<>();
+        for (TaskCountVO row : rows) {
+            reconciled.computeIfAbsent(new CounterKey(row.getStatus(), row.getTaskType(), row.getPriority()),
+                    key -> new LongAdder()).add(row.getCount());
+        }
+        Map<CounterKey, LongAdder> previous;
+        swapLock.writeLock().lock();
+        try {
+            // 查询期间的变更叠加到数据库结果上
+            changes.forEach((key, delta) ->
+                    reconciled.computeIfAbsent(key, k -> new LongAdder()).add(delta.sum()));
+            previous = counters;
+            counters = reconciled;
+            journal = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        long drift = 0;
+        Set<CounterKey> keys = new HashSet<>(previous.keySet());
+        keys.addAll(reconciled.keySet());
+        for (CounterKey key : keys) {
+            drift += Math.abs(sum(reconciled.get(key)) - sum(previous.get(key)));
+        }
+        if (drift > 0 && reconciledAt != null) {
+            log.warn("任务数计数器与数据库存在偏差，已修正，偏差: {}", drift);
+        }
+        reconciledAt = LocalDateTime.now();
+        registerGauges();
+        return drift;
+    }
+
+    /**
+     * 当前任务数统计
+     */
+    public TaskCountStatsVO getStats() {
+        List<TaskCountVO> items = new ArrayList<>();
+        Map<String, Long> byStatus = new TreeMap<>();
+        Map<String, Long> byTaskType = new TreeMap<>();
+        Map<Integer, Long> byPriority = new TreeMap<>();
+        long total = 0;
+        for (Map.Entry<CounterKey, LongAdder> entry : counters.entrySet()) {
+            long count = entry.getValue().sum();
+            if (count == 0) {
+                continue;
+            }
+            CounterKey key = entry.getKey();
+            items.add(new TaskCountVO(key.status(), key.taskType(), key.priority(), count));
+            byStatus.merge(key.status(), count, Long::sum);
+            byTaskType.merge(key.taskType(), count, Long::sum);
+            byPriority.merge(key.priority(), count, Long::sum);
+            total += count;
+        }
+        items.sort(Comparator.comparing(TaskCountVO::getStatus)
+                .thenComparing(TaskCountVO::getTaskType)
+                .thenComparing(TaskCountVO::getPriority));
+
+        TaskCountStatsVO stats = new TaskCountStatsVO();
+        stats.setTotal(total);
+        stats.setByStatus(byStatus);
+        stats.setByTaskType(byTaskType);
+        stats.setByPriority(byPriority);
+        stats.setItems(items);
+        stats.setReconciledAt(reconciledAt);
+        return stats;
+    }
+
+    private void apply(CounterKey key, long delta) {
+        boolean[] created = new boolean[1];
+        swapLock.readLock().lock();
+        try {
+            counters.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return new LongAdder();
+            }).add(delta);
+            Map<CounterKey, LongAdder> changes = journal;
+            if (changes != null) {
+                changes.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        if (created[0]) {
+            registerGauges();
+        }
+    }
+
+    private void registerGauges() {
+        synchronized (gauge) {
+            List<MultiGauge.Row<?>> rows = new ArrayList<>();
+            counters.forEach((key, adder) -> rows.add(MultiGauge.Row.of(Tags.of(
+                    "status", key.status(),
+                    "task_type", key.taskType(),
+                    "priority", String.valueOf(key.priority())), adder, LongAdder::sum)));
+            gauge.register(rows, true);
+        }
+    }
+
+    private static long sum(LongAdder adder) {
+        return adder != null ? adder.sum() : 0;
+    }
+
+    /**
+     * 计数维度（任务类型为空记为""，优先级为空记为0，与对账查询一致）
+     */
+    private record CounterKey(String status, String taskType, Integer priority) {
+
+        CounterKey {
+            taskType = taskType != null ? taskType : "";
+            priority = priority != null ? priority : 0;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.DTO.DelegationJobVO;
+import com.example.springboottest.DTO.DelegationRequest;
+import com.example.springboottest.entity.User;
+import com.example.springboottest.enums.InboxChangeType;
+import com.example.springboottest.event.InboxChangedEvent;
+import com.example.springboottest.event.TaskChangedEvent;
+import com.example.springboottest.exception.BusinessException;
+import com.example.springboottest.exception.ResourceNotFoundException;
+import com.example.springboottest.repository.ApproverInboxRepository;
+import com.example.springboottest.repository.TaskApprovalRecordRepository;
+import com.example.springboottest.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量委托服务（请假时把委托人的待审批全部转交给受托人）
+ * 与逐个任务转交不同，按记录ID分块，每块在一个事务内用集合SQL完成：
+ * 条件更新委托人的待审批记录为已转交、一条 INSERT ... SELECT 写入受托人的待审批记录、
+ * 待办整体复制给受托人后删除委托人的待办。任务在后台线程中执行，可按任务ID查询进度
+ */
+@Slf4j
+@Service
+public class TaskDelegationService {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final TaskApprovalRecordRepository recordRepository;
+    private final ApproverInboxRepository inboxRepository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final long retentionMinutes;
+
+    private final Map<String, DelegationJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "task-delegation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public TaskDelegationService(TaskApprovalRecordRepository recordRepository,
+                                 ApproverInboxRepository inboxRepository,
+                                 UserRepository userRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${approval.delegation.chunk-size:1000}") int chunkSize,
+                                 @Value("${approval.delegation.retention-minutes:1440}") long retentionMinutes) {
+        this.recordRepository = recordRepository;
+        this.inboxRepository = inboxRepository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.retentionMinutes = retentionMinutes;
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交批量委托，立即返回任务进度（后台执行）
+     */
+    public DelegationJobVO start(DelegationRequest request, Long operatorId) {
+        if (request.getFromUserId().equals(request.getToUserId())) {
+            throw new BusinessException("委托人和受托人不能是同一用户");
+        }
+        if (userRepository.selectById(request.getFromUserId()) == null) {
+            throw new ResourceNotFoundException("委托人不存在");
+        }
+        User toUser = userRepository.selectById(request.getToUserId());
+        if (toUser == null) {
+            throw new ResourceNotFoundException("受托人不存在");
+        }
+
+        purgeFinishedJobs();
+        boolean running = jobs.values().stream()
+                .anyMatch(job -> job.finishedAt == null && job.fromUserId.equals(request.getFromUserId()));
+        if (running) {
+            throw new BusinessException("该用户的批量委托正在执行");
+        }
+
+        long total = recordRepository.countDelegatable(request.getFromUserId(), request.getToUserId(),
+                request.getFlowId(), request.getTaskType());
+        DelegationJob job = new DelegationJob(UUID.randomUUID().toString(), request.getFromUserId(),
+                request.getToUserId(), total);
+        jobs.put(job.jobId, job);
+        log.info("开始批量委托，任务ID: {}, 操作人: {}, 委托人: {}, 受托人: {}, 待转交: {}",
+                job.jobId, operatorId, request.getFromUserId(), request.getToUserId(), total);
+
+        executor.execute(() -> run(job, request, toUser));
+        return job.toVO();
+    }
+
+    /**
+     * 查询批量委托进度
+     */
+    public DelegationJobVO getJob(String jobId) {
+        DelegationJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("批量委托任务不存在");
+        }
+        return job.toVO();
+    }
+
+    private void run(DelegationJob job, DelegationRequest request, User toUser) {
+        String comment = request.getComment() != null ? request.getComment() : "批量委托给" + toUser.getUsername();
+        long afterId = 0;
+        try {
+            while (true) {
+                List<Long> ids = recordRepository.selectDelegatableIds(request.getFromUserId(), toUser.getId(),
+                        request.getFlowId(), request.getTaskType(), afterId, chunkSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                int moved = moveChunk(ids, request.getFromUserId(), toUser, comment);
+                job.moved.addAndGet(moved);
+                job.skipped.addAndGet(ids.size() - moved);
+                afterId = ids.get(ids.size() - 1);
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+            }
+            job.finish("COMPLETED", null);
+            log.info("批量委托完成，任务ID: {}, 已转交: {}, 跳过: {}", job.jobId, job.moved.get(), job.skipped.get());
+        } catch (Exception e) {
+            job.finish("FAILED", e.getMessage());
+            log.error("批量委托失败，任务ID: {}, 已转交: {}", job.jobId, job.moved.get(), e);
+        }
+    }
+
+    /**
+     * 在一个事务内转交一块记录，死锁或锁超时时整块重试，返回实际转交的记录数
+     */
+    private int moveChunk(List<Long> ids, Long fromUserId, User toUser, String comment) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Integer moved = transactionTemplate.execute(status -> {
+                    // 审批时间精确到秒，同时作为本次转交的标记
+                    LocalDateTime transferTime = LocalDateTime.now().withNano(0);
+                    int updated = recordRepository.markTransferred(ids, fromUserId, toUser.getId(),
+                            toUser.getUsername(), comment, transferTime);
+                    if (updated == 0) {
+                        return 0;
+                    }
+                    recordRepository.insertDelegatedPending(ids, toUser.getId(), toUser.getUsername(), transferTime);
+                    List<Long> taskIds = recordRepository.selectTransferredTaskIds(ids, toUser.getId(), transferTime);
+                    inboxRepository.copyToApprover(fromUserId, toUser.getId(), taskIds);
+                    inboxRepository.deleteByApproverIdAndTaskIds(fromUserId, taskIds);
+                    for (Long taskId : taskIds) {
+                        eventPublisher.publishEvent(new TaskChangedEvent(taskId));
+                        eventPublisher.publishEvent(new InboxChangedEvent(InboxChangeType.ADDED, taskId, null,
+                                List.of(toUser.getId())));
+                        eventPublisher.publishEvent(new InboxChangedEvent(InboxChangeType.REMOVED, taskId, null,
+                                List.of(fromUserId)));
+                    }
+                    return updated;
+                });
+                return moved != null ? moved : 0;
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("批量委托遇到并发冲突，重试第{}次，记录ID: {}-{}", attempt, ids.get(0), ids.get(ids.size() - 1));
+            }
+        }
+    }
+
+    private void purgeFinishedJobs() {
+        LocalDateTime expireBefore = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(expireBefore));
+    }
+
+    /**
+     * 批量委托任务的执行状态
+     */
+    private static class DelegationJob {
+
+        private final String jobId;
+        private final Long fromUserId;
+        private final Long toUserId;
+        private final long total;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong moved = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private volatile String status = "RUNNING";
+        private volatile String message;
+        private volatile LocalDateTime finishedAt;
+
+        DelegationJob(String jobId, Long fromUserId, Long toUserId, long total) {
+            this.jobId = jobId;
+            this.fromUserId = fromUserId;
+            this.toUserId = toUserId;
+            this.total = total;
+        }
+
+        void finish(String status, String message) {
+            this.status = status;
+            this.message = message;
+            this.finishedAt = LocalDateTime.now();
+        }
+
+        DelegationJobVO toVO() {
+            long done = moved.get() + skipped.get();
+            DelegationJobVO vo = new DelegationJobVO();
+            vo.setJobId(jobId);
+            vo.setFromUserId(fromUserId);
+            vo.setToUserId(toUserId);
+            vo.setStatus(status);
+            vo.setTotal(total);
+            vo.setMoved(moved.get());
+            vo.setSkipped(skipped.get());
+            vo.setPercent(finishedAt != null || total == 0 ? 100 : (int) Math.min(99, done * 100 / total));
+            vo.setMessage(message);
+            vo.setStartedAt(startedAt);
+            vo.setFinishedAt(finishedAt);
+            return vo;
+        }
+    }
+}
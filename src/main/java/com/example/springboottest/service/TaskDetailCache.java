@@ -0,0 +1,148 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.DTO.TaskDetailVO;
+import com.example.springboottest.config.ClusterCacheManager;
+import com.example.springboottest.event.TaskChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * 任务详情缓存
+ * 按任务ID缓存与用户无关的详情部分（基本信息、审批流、节点、记录、当前待审批人），
+ * 收到 {@link TaskChangedEvent} 后在事务提交后剔除；启用集群缓存时注册到 {@link ClusterCacheManager}，
+ * 剔除同时广播到其他实例（否则其他实例在过期前按旧的状态、待审批人计算可审批、可撤回）。
+ * 每个任务ID对应一个剔除版本号（按哈希分槽）：加载前记下版本号，写回时版本号已变说明加载期间发生过剔除，
+ * 加载结果可能是旧数据，不写入缓存。命中率等指标以 cache.* 暴露在 actuator 上（cache=taskDetailCache）
+ */
+@Slf4j
+@Service
+public class TaskDetailCache {
+
+    private static final String CACHE_NAME = "taskDetailCache";
+    private static final int STAMP_SLOTS = 1024;
+
+    private final Cache<Long, TaskDetailVO> cache;
+    private final AtomicLongArray stamps = new AtomicLongArray(STAMP_SLOTS);
+    /**
+     * 剔除入口：未启用集群缓存时为提交后剔除的本地缓存
+     */
+    private org.springframework.cache.Cache evictor;
+
+    public TaskDetailCache(MeterRegistry meterRegistry,
+                           @Value("${task.detail.cache.maximum-size:10000}") long maximumSize,
+                           @Value("${task.detail.cache.expire-seconds:600}") long expireSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.evictor = new TransactionAwareCacheDecorator(new LocalCache());
+    }
+
+    /**
+     * 启用集群缓存时，剔除（事务中在提交后）广播到其他实例，其他实例收到后同样按版本号剔除
+     */
+    @Autowired(required = false)
+    public void setClusterCacheManager(ClusterCacheManager clusterCacheManager) {
+        this.evictor = clusterCacheManager.register(new LocalCache());
+    }
+
+    /**
+     * 获取任务详情，未命中时用 loader 加载（loader 抛出的异常原样抛出，不缓存）
+     */
+    public TaskDetailVO get(Long taskId, Function<Long, TaskDetailVO> loader) {
+        TaskDetailVO cached = cache.getIfPresent(taskId);
+        if (cached != null) {
+            return cached;
+        }
+        int slot = slot(taskId);
+        long stamp = stamps.get(slot);
+        TaskDetailVO loaded = loader.apply(taskId);
+        cache.asMap().compute(taskId, (key, current) -> stamps.get(slot) == stamp ? loaded : current);
+        return loaded;
+    }
+
+    /**
+     * 剔除任务详情缓存
+     */
+    public void invalidate(Long taskId) {
+        int slot = slot(taskId);
+        cache.asMap().compute(taskId, (key, current) -> {
+            stamps.incrementAndGet(slot);
+            return null;
+        });
+    }
+
+    /**
+     * 剔除全部任务详情缓存
+     */
+    public void invalidateAll() {
+        for (int i = 0; i < STAMP_SLOTS; i++) {
+            stamps.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    /**
+     * 任务变更提交后剔除（没有事务时立即剔除）
+     * 在事务内接收事件，由剔除入口注册提交后的剔除：集群缓存只能广播事务内发生的清除
+     */
+    @EventListener
+    public void onTaskChanged(TaskChangedEvent event) {
+        evictor.evict(event.getTaskId());
+        log.debug("剔除任务详情缓存，任务ID: {}", event.getTaskId());
+    }
+
+    private static int slot(Long taskId) {
+        return (int) (taskId ^ (taskId >>> 32)) & (STAMP_SLOTS - 1);
+    }
+
+    /**
+     * 以 Spring Cache 暴露本地缓存供剔除入口使用，剔除时同时递增版本号
+     */
+    private final class LocalCache extends CaffeineCache {
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        LocalCache() {
+            super(CACHE_NAME, (Cache) cache, false);
+        }
+
+        @Override
+        public void evict(Object key) {
+            TaskDetailCache.this.invalidate((Long) key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean present = cache.getIfPresent((Long) key) != null;
+            TaskDetailCache.this.invalidate((Long) key);
+            return present;
+        }
+
+        @Override
+        public void clear() {
+            invalidateAll();
+        }
+
+        @Override
+        public boolean invalidate() {
+            boolean notEmpty = cache.estimatedSize() > 0;
+            invalidateAll();
+            return notEmpty;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.DTO.TaskIndexMessage;
+import com.example.springboottest.config.ActiveMqConfig;
+import jakarta.jms.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.stereotype.Service;
+
+/**
+ * 搜索索引变更中继
+ * 索引变更发布到 ActiveMQ 主题，各实例（包括发布的实例）收到后更新本地索引，任一实例上的变更在所有实例可搜索
+ * （task.search.relay.enabled=false 时不创建，只更新本实例的索引，其他实例在重建前搜不到）
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "task.search.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class TaskIndexRelay implements DisposableBean {
+
+    private final CachingConnectionFactory cachingConnectionFactory;
+    private final JmsTemplate jmsTemplate;
+
+    public TaskIndexRelay(ConnectionFactory connectionFactory, MessageConverter jacksonJmsMessageConverter) {
+        this.cachingConnectionFactory = new CachingConnectionFactory(connectionFactory);
+        this.jmsTemplate = new JmsTemplate(cachingConnectionFactory);
+        this.jmsTemplate.setMessageConverter(jacksonJmsMessageConverter);
+        this.jmsTemplate.setPubSubDomain(true);
+    }
+
+    /**
+     * 发布索引变更到主题
+     */
+    public void send(TaskIndexMessage message) {
+        jmsTemplate.convertAndSend(ActiveMqConfig.TASK_INDEX_TOPIC, message);
+        log.debug("发布搜索索引变更，类型: {}, 任务ID: {}", message.getType(), message.getTaskId());
+    }
+
+    @Override
+    public void destroy() {
+        cachingConnectionFactory.destroy();
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.entity.IdSegment;
+import com.example.springboottest.exception.BusinessException;
+import com.example.springboottest.repository.IdSegmentRepository;
+import com.example.springboottest.repository.TaskRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 任务编号生成器
+ * 按天从 id_segment 表批量领取号段（biz_tag 为 TASKyyyyMMdd），编号在内存中用原子计数器发放。
+ * 当前号段消耗到一定比例时在后台预取下一个号段（双缓冲），跨天时切换到新的 biz_tag。
+ * 号段领取后未用完的编号（如重启）会被跳过，编号保证唯一递增但不保证连续
+ */
+@Slf4j
+@Service
+public class TaskNoGenerator {
+
+    private static final String PREFIX = "TASK";
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final IdSegmentRepository segmentRepository;
+    private final TaskRepository taskRepository;
+    private final TransactionTemplate requiresNew;
+    private final int step;
+    private final double prefetchRatio;
+
+    private final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "task-no-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile DailyBuffer buffer;
+
+    public TaskNoGenerator(IdSegmentRepository segmentRepository,
+                           TaskRepository taskRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${task.no.segment-step:1000}") int step,
+                           @Value("${task.no.prefetch-ratio:0.1}") double prefetchRatio) {
+        this.segmentRepository = segmentRepository;
+        this.taskRepository = taskRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.step = step;
+        this.prefetchRatio = prefetchRatio;
+    }
+
+    /**
+     * 生成任务编号：TASK + yyyyMMdd + 6位序号
+     */
+    public String nextTaskNo() {
+        String bizTag = PREFIX + LocalDate.now().format(DATE_FORMAT);
+        DailyBuffer current = buffer;
+        if (current == null || !current.bizTag.equals(bizTag)) {
+            current = rollover(bizTag);
+        }
+        return bizTag + String.format("%06d", current.next());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * 切换到新一天的号段缓冲
+     */
+    private synchronized DailyBuffer rollover(String bizTag) {
+        DailyBuffer current = buffer;
+        if (current != null && current.bizTag.equals(bizTag)) {
+            return current;
+        }
+        DailyBuffer next = new DailyBuffer(bizTag, lease(bizTag));
+        buffer = next;
+        log.info("任务编号切换到新号段，业务标识: {}", bizTag);
+        return next;
+    }
+
+    /**
+     * 在独立事务中领取号段，行锁只持有到本事务提交
+     */
+    private Segment lease(String bizTag) {
+        IdSegment segment = requiresNew.execute(status -> {
+            if (segmentRepository.advanceMaxId(bizTag) == 0) {
+                // 当天首次领取：从已有的最大编号续上，兼容切换前已生成的编号
+                segmentRepository.insertIgnore(bizTag, currentMaxSequence(bizTag), step);
+                segmentRepository.advanceMaxId(bizTag);
+            }
+            return segmentRepository.selectById(bizTag);
+        });
+        if (segment == null) {
+            throw new BusinessException("领取任务编号号段失败: " + bizTag);
+        }
+        long max = segment.getMaxId();
+        long start = max - segment.getStep() + 1;
+        log.debug("领取任务编号号段，业务标识: {}, 范围: [{}, {}]", bizTag, start, max);
+        return new Segment(start, max + 1, prefetchRatio);
+    }
+
+    private long currentMaxSequence(String bizTag) {
+        String maxTaskNo = taskRepository.getMaxTaskNoByPrefix(bizTag);
+        if (maxTaskNo == null || maxTaskNo.length() <= bizTag.length()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(maxTaskNo.substring(bizTag.length()));
+        } catch (NumberFormatException e) {
+            log.warn("解析任务编号序列失败: {}", maxTaskNo);
+            return 0;
+        }
+    }
+
+    /**
+     * 号段：[start, end) 区间，用原子计数器发放
+     */
+    private static final class Segment {
+
+        private final AtomicLong value;
+        private final long end;
+        private final long prefetchAt;
+
+        private Segment(long start, long end, double prefetchRatio) {
+            this.value = new AtomicLong(start);
+            this.end = end;
+            this.prefetchAt = start + (long) ((end - start) * prefetchRatio);
+        }
+    }
+
+    /**
+     * 某一天的双缓冲：当前号段 + 预取中的下一个号段
+     */
+    private final class DailyBuffer {
+
+        private final String bizTag;
+        private volatile Segment current;
+        private CompletableFuture<Segment> nextSegment;
+
+        private DailyBuffer(String bizTag, Segment first) {
+            this.bizTag = bizTag;
+            this.current = first;
+        }
+
+        private long next() {
+            while (true) {
+                Segment segment = current;
+                long value = segment.value.getAndIncrement();
+                if (value < segment.end) {
+                    if (value == segment.prefetchAt) {
+                        prefetch();
+                    }
+                    return value;
+                }
+                switchSegment(segment);
+            }
+        }
+
+        private synchronized void prefetch() {
+            if (nextSegment == null) {
+                nextSegment = CompletableFuture.supplyAsync(() -> lease(bizTag), prefetchExecutor);
+            }
+        }
+
+        /**
+         * 当前号段用尽：换上预取的号段，预取未发起或失败时同步领取
+         */
+        private synchronized void switchSegment(Segment exhausted) {
+            if (current != exhausted) {
+                return;
+            }
+            Segment next = null;
+            if (nextSegment != null) {
+                try {
+                    next = nextSegment.join();
+                } catch (Exception e) {
+                    log.warn("预取任务编号号段失败，改为同步领取，业务标识: {}", bizTag, e);
+                }
+                nextSegment = null;
+            }
+            current = next != null ? next : lease(bizTag);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.springboottest.service;
+
+import com.example.springboottest.DTO.TaskIndexMessage;
+import com.example.springboottest.config.ActiveMqConfig;
+import com.example.springboottest.entity.Task;
+import com.example.springboottest.event.TaskStatusChangedEvent;
+import com.example.springboottest.exception.BusinessException;
+import com.example.springboottest.repository.TaskRepository;
+import com.example.springboottest.util.InvertedIndex;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 任务搜索服务
+ * 在进程内维护任务标题和内容的倒排索引，任务创建提交后写入，状态变更提交后更新状态分面，归档后移除；
+ * 变更经 {@link TaskIndexRelay} 广播到所有实例（包括本实例），各实例收到后更新各自的索引。
+ * 启动时在后台按ID区间分块并行从数据库重建：有磁盘快照时只查询过滤字段，快照中已有的任务沿用其分词结果，
+ * 只对快照之后新增的任务查询标题内容并分词。重建期间的变更同时记入重放列表，重建完成后重放再切换。
+ * 索引有变更时定时写快照，关闭时再写一次
+ */
+@Slf4j
+@Service
+public class TaskSearchService {
+
+    private static final String UPSERT = "UPSERT";
+    private static final String REMOVE = "REMOVE";
+    private static final String STATUS = "STATUS";
+
+    private final TaskRepository taskRepository;
+    private final Path snapshotPath;
+    private final int chunkSize;
+    private final int parallelism;
+
+    private final Object mutationLock = new Object();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    /**
+     * 当前索引，null 表示尚未加载完成
+     */
+    private volatile InvertedIndex index;
+
+    /**
+     * 重建期间的变更，不在重建时为 null（由 mutationLock 保护）
+     */
+    private List<Consumer<InvertedIndex>> replay;
+
+    private volatile boolean dirty;
+
+    private TaskIndexRelay relay;
+
+    public TaskSearchService(TaskRepository taskRepository,
+                             @Value("${task.search.snapshot-path:data/task-search.snapshot}") String snapshotPath,
+                             @Value("${task.search.rebuild-chunk-size:10000}") int chunkSize,
+                             @Value("${task.search.rebuild-parallelism:4}") int parallelism) {
+        this.taskRepository = taskRepository;
+        this.snapshotPath = Path.of(snapshotPath);
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 启用中继时，索引变更经主题广播后再更新
+     */
+    @Autowired(required = false)
+    public void setRelay(TaskIndexRelay relay) {
+        this.relay = relay;
+    }
+
+    /**
+     * 启动后在后台加载索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        Thread thread = new Thread(() -> rebuild(true), "task-search-init");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 在后台从数据库完整重建索引（不使用快照），已在重建时返回 false
+     */
+    public boolean rebuildAsync() {
+        if (rebuilding.get()) {
+            return false;
+        }
+        Thread thread = new Thread(() -> rebuild(false), "task-search-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * 新建任务加入索引（在事务中调用时提交后生效）
+     */
+    public void add(Task task) {
+        TaskIndexMessage message = new TaskIndexMessage();
+        message.setType(UPSERT);
+        message.setTaskId(task.getId());
+        message.setStatus(task.getStatus());
+        message.setTaskType(task.getTaskType());
+        message.setCreatorId(task.getCreatorId());
+        message.setTitle(task.getTitle());
+        message.setContent(task.getContent());
+        afterCommit(() -> publish(message));
+    }
+
+    /**
+     * 从索引中移除任务（归档后调用）
+     */
+    public void remove(Collection<Long> taskIds) {
+        TaskIndexMessage message = new TaskIndexMessage();
+        message.setType(REMOVE);
+        message.setTaskIds(List.copyOf(taskIds));
+        afterCommit(() -> publish(message));
+    }
+
+    /**
+     * 任务状态变更提交后更新状态分面
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(TaskStatusChangedEvent event) {
+        TaskIndexMessage message = new TaskIndexMessage();
+        message.setType(STATUS);
+        message.setTaskId(event.getTaskId());
+        message.setStatus(event.getToStatus());
+        publish(message);
+    }
+
+    /**
+     * 接收广播的索引变更（包括本实例发出的）
+     */
+    @JmsListener(destination = ActiveMqConfig.TASK_INDEX_TOPIC, containerFactory = "topicListenerContainerFactory")
+    public void onRelayed(TaskIndexMessage message) {
+        if (relay == null) {
+            return;
+        }
+        apply(message);
+    }
+
+    /**
+     * 查询索引，索引尚未加载完成时抛出业务异常
+     */
+    public InvertedIndex.SearchResult search(String query, String status, String taskType, Long creatorId,
+                                             Long viewerId, long[] viewableIds, Long beforeId, int limit) {
+        InvertedIndex current = index;
+        if (current == null) {
+            throw new BusinessException("搜索索引正在加载，请稍后重试");
+        }
+        return current.search(query, status, taskType, creatorId, viewerId, viewableIds, beforeId, limit);
+    }
+
+    /**
+     * 索引有变更时定时写快照（默认每10分钟）
+     */
+    @Scheduled(fixedDelayString = "${task.search.snapshot-ms:600000}",
+            initialDelayString = "${task.search.snapshot-ms:600000}")
+    public void snapshot() {
+        InvertedIndex current = index;
+        if (current == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        long start = System.currentTimeMillis();
+        try {
+            current.writeSnapshot(snapshotPath, LocalDateTime.now());
+            log.info("搜索索引快照已保存，文档数: {}, 耗时: {}ms", current.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            dirty = true;
+            log.error("保存搜索索引快照失败，路径: {}", snapshotPath, e);
+        }
+    }
+
+    @PreDestroy
+    public void flush() {
+        snapshot();
+    }
+
+    private void rebuild(boolean useSnapshot) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            log.info("搜索索引正在重建，跳过本次");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        AtomicInteger sequence = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "task-search-rebuild-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            synchronized (mutationLock) {
+                replay = new ArrayList<>();
+            }
+            InvertedIndex.Snapshot snapshot = useSnapshot ? loadSnapshot() : null;
+            Map<Long, InvertedIndex.Doc> cached = snapshot != null ? snapshot.docs() : null;
+
+            // 按ID区间分块并行加载和分词，按区间顺序合并（ID递增，倒排表走末尾追加）
+            Long maxId = taskRepository.selectMaxId();
+            List<Future<List<InvertedIndex.Doc>>> chunks = new ArrayList<>();
+            for (long from = 0; maxId != null && from < maxId; from += chunkSize) {
+                long fromId = from;
+                long toId = Math.min(from + chunkSize, maxId);
+                chunks.add(pool.submit(() -> loadChunk(fromId, toId, cached)));
+            }
+            InvertedIndex rebuilt = new InvertedIndex();
+            for (Future<List<InvertedIndex.Doc>> chunk : chunks) {
+                rebuilt.addAll(chunk.get());
+            }
+
+            synchronized (mutationLock) {
+                replay.forEach(mutation -> mutation.accept(rebuilt));
+                replay = null;
+                index = rebuilt;
+                dirty = true;
+            }
+            log.info("搜索索引加载完成，文档数: {}, 使用快照: {}, 耗时: {}ms",
+                    rebuilt.size(), snapshot != null, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (mutationLock) {
+                replay = null;
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("搜索索引加载失败", e);
+        } finally {
+            pool.shutdownNow();
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 加载一个ID区间：有快照时只查过滤字段，快照中没有的任务再按ID查询标题内容
+     */
+    private List<InvertedIndex.Doc> loadChunk(long fromId, long toId, Map<Long, InvertedIndex.Doc> cached) {
+        List<Task> rows = taskRepository.selectForIndex(fromId, toId, cached == null);
+        if (cached == null) {
+            return rows.stream()
+                    .map(task -> InvertedIndex.Doc.of(task.getId(), task.getStatus(), task.getTaskType(),
+                            task.getCreatorId(), task.getTitle(), task.getContent()))
+                    .toList();
+        }
+
+        List<Long> missing = rows.stream()
+                .map(Task::getId)
+                .filter(id -> !cached.containsKey(id))
+                .toList();
+        Map<Long, Task> loaded = missing.isEmpty() ? Collections.emptyMap()
+                : taskRepository.selectBatchIds(missing).stream()
+                .collect(Collectors.toMap(Task::getId, Function.identity()));
+        List<InvertedIndex.Doc> docs = new ArrayList<>(rows.size());
+        for (Task row : rows) {
+            InvertedIndex.Doc doc = cached.get(row.getId());
+            if (doc != null) {
+                docs.add(doc.withFacets(row.getStatus(), row.getTaskType(), row.getCreatorId()));
+            } else {
+                Task task = loaded.get(row.getId());
+                if (task != null) {
+                    docs.add(InvertedIndex.Doc.of(task.getId(), task.getStatus(), task.getTaskType(),
+                            task.getCreatorId(), task.getTitle(), task.getContent()));
+                }
+            }
+        }
+        return docs;
+    }
+
+    private InvertedIndex.Snapshot loadSnapshot() {
+        try {
+            InvertedIndex.Snapshot snapshot = InvertedIndex.readSnapshot(snapshotPath);
+            if (snapshot != null) {
+                log.info("读取搜索索引快照，保存时间: {}, 文档数: {}", snapshot.savedAt(), snapshot.docs().size());
+            }
+            return snapshot;
+        } catch (Exception e) {
+            log.warn("读取搜索索引快照失败，从数据库完整重建，路径: {}", snapshotPath, e);
+            return null;
+        }
+    }
+
+    /**
+     * 广播索引变更，未启用中继或发送失败时只更新本实例的索引
+     */
+    private void publish(TaskIndexMessage message) {
+        if (relay != null) {
+            try {
+                relay.send(message);
+                return;
+            } catch (Exception e) {
+                log.warn("广播搜索索引变更失败，只更新本实例的索引，类型: {}, 任务ID: {}",
+                        message.getType(), message.getTaskId(), e);
+            }
+        }
+        apply(message);
+    }
+
+    private void apply(TaskIndexMessage message) {
+        switch (message.getType()) {
+            case UPSERT -> {
+                InvertedIndex.Doc doc = InvertedIndex.Doc.of(message.getTaskId(), message.getStatus(),
+                        message.getTaskType(), message.getCreatorId(), message.getTitle(), message.getContent());
+                mutate(current -> current.upsert(doc));
+            }
+            case REMOVE -> mutate(current -> message.getTaskIds().forEach(current::remove));
+            case STATUS -> mutate(current -> current.updateStatus(message.getTaskId(), message.getStatus()));
+            default -> log.warn("未知的搜索索引变更类型: {}", message.getType());
+        }
+    }
+
+    private void mutate(Consumer<InvertedIndex> mutation) {
+        synchronized (mutationLock) {
+            InvertedIndex current = index;
+            if (current != null) {
+                mutation.accept(current);
+            }
+            if (replay != null) {
+                replay.add(mutation);
+            }
+            dirty = true;
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
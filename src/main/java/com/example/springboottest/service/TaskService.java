@@ -1,22 +1,35 @@
 package com.example.springboottest.service;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.example.springboottest.DTO.*;
 import com.example.springboottest.entity.*;
 import com.example.springboottest.enums.*;
+import com.example.springboottest.event.TaskChangedEvent;
+import com.example.springboottest.event.TaskStatusChangedEvent;
 import com.example.springboottest.exception.BusinessException;
 import com.example.springboottest.exception.ResourceNotFoundException;
+import com.example.springboottest.exception.VersionConflictException;
 import com.example.springboottest.repository.*;
-import lombok.RequiredArgsConstructor;
+import com.example.springboottest.util.CursorUtil;
+import com.example.springboottest.util.InvertedIndex;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -24,15 +37,58 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class TaskService {
 
+    /**
+     * 游标分页单页最大条数
+     */
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     private final TaskRepository taskRepository;
-    private final TaskApprovalFlowRepository flowRepository;
-    private final TaskApprovalNodeRepository nodeRepository;
     private final TaskApprovalRecordRepository recordRepository;
     private final UserRepository userRepository;
-    private final UserRoleRepository userRoleRepository;
+    private final ApprovalFlowCache flowCache;
+    private final ApproverResolver approverResolver;
+    private final TaskNoGenerator taskNoGenerator;
+    private final ApprovalNodeService approvalNodeService;
+    private final ApproverInboxRepository inboxRepository;
+    private final TaskDetailCache taskDetailCache;
+    private final TaskArchiveService archiveService;
+    private final TaskSearchService searchService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Executor taskDetailExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public TaskService(TaskRepository taskRepository,
+                       TaskApprovalRecordRepository recordRepository,
+                       UserRepository userRepository,
+                       ApprovalFlowCache flowCache,
+                       ApproverResolver approverResolver,
+                       TaskNoGenerator taskNoGenerator,
+                       ApprovalNodeService approvalNodeService,
+                       ApproverInboxRepository inboxRepository,
+                       TaskDetailCache taskDetailCache,
+                       TaskArchiveService archiveService,
+                       TaskSearchService searchService,
+                       ApplicationEventPublisher eventPublisher,
+                       @Qualifier("taskDetailExecutor") Executor taskDetailExecutor,
+                       PlatformTransactionManager transactionManager) {
+        this.taskRepository = taskRepository;
+        this.recordRepository = recordRepository;
+        this.userRepository = userRepository;
+        this.flowCache = flowCache;
+        this.approverResolver = approverResolver;
+        this.taskNoGenerator = taskNoGenerator;
+        this.approvalNodeService = approvalNodeService;
+        this.inboxRepository = inboxRepository;
+        this.taskDetailCache = taskDetailCache;
+        this.archiveService = archiveService;
+        this.searchService = searchService;
+        this.eventPublisher = eventPublisher;
+        this.taskDetailExecutor = taskDetailExecutor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
 
     /**
      * 创建任务
@@ -48,13 +104,13 @@ public class TaskService {
         }
 
         // 2. 验证审批流是否存在
-        TaskApprovalFlow flow = flowRepository.selectById(request.getFlowId());
-        if (flow == null || flow.getStatus() != 1) {
+        CompiledFlow flow = flowCache.get(request.getFlowId());
+        if (flow == null || !flow.isEnabled()) {
             throw new BusinessException("审批流不存在或已禁用");
         }
 
         // 3. 生成任务编号
-        String taskNo = generateTaskNo();
+        String taskNo = taskNoGenerator.nextTaskNo();
 
         // 4. 创建任务实体
         Task task = new Task();
@@ -68,9 +124,13 @@ public class TaskService {
         task.setCreatorName(user.getUsername());
         task.setFlowId(flow.getId());
         task.setCurrentNodeOrder(0);
+        task.setVersion(0);
 
         // 5. 保存任务
         taskRepository.insert(task);
+        eventPublisher.publishEvent(new TaskStatusChangedEvent(task.getId(), task.getTaskType(),
+                task.getPriority(), null, task.getStatus()));
+        searchService.add(task);
 
         log.info("任务创建成功，任务编号: {}", taskNo);
 
@@ -103,42 +163,34 @@ public class TaskService {
         }
 
         // 4. 获取审批流配置
-        TaskApprovalFlow flow = flowRepository.selectById(task.getFlowId());
+        CompiledFlow flow = flowCache.get(task.getFlowId());
         if (flow == null) {
             throw new BusinessException("审批流配置不存在");
         }
 
         // 5. 获取第一个审批节点
-        TaskApprovalNode firstNode = nodeRepository.selectFirstNodeByFlowId(flow.getId());
+        CompiledFlow.Node firstNode = flow.getFirstNode();
         if (firstNode == null) {
             throw new BusinessException("审批流未配置审批节点");
         }
 
         // 6. 更新任务状态
+        String fromStatus = task.getStatus();
         task.setStatus(TaskStatus.PENDING.name());
         task.setCurrentNodeId(firstNode.getId());
         task.setCurrentNodeOrder(firstNode.getNodeOrder());
         task.setSubmittedAt(LocalDateTime.now());
-        taskRepository.updateById(task);
-
-        // 7. 创建待审批记录
-        List<Long> approverIds = getNodeApprovers(firstNode);
-        for (Long approverId : approverIds) {
-            User approver = userRepository.selectById(approverId);
-            if (approver != null) {
-                TaskApprovalRecord record = new TaskApprovalRecord();
-                record.setTaskId(task.getId());
-                record.setNodeId(firstNode.getId());
-                record.setNodeName(firstNode.getNodeName());
-                record.setNodeOrder(firstNode.getNodeOrder());
-                record.setApproverId(approverId);
-                record.setApproverName(approver.getUsername());
-                record.setAction(null);
-                record.setResult(ApprovalResult.PENDING.name());
-                recordRepository.insert(record);
-            }
+        if (taskRepository.updateById(task) == 0) {
+            throw new VersionConflictException("任务已被修改，请刷新后重试");
         }
 
+        // 7. 清除上次驳回留下的后续节点进度，创建待审批记录
+        approvalNodeService.resetAfter(task.getId(), firstNode.getNodeOrder());
+        approvalNodeService.enterNode(task, firstNode);
+        eventPublisher.publishEvent(new TaskChangedEvent(task.getId()));
+        eventPublisher.publishEvent(new TaskStatusChangedEvent(task.getId(), task.getTaskType(),
+                task.getPriority(), fromStatus, task.getStatus()));
+
         log.info("任务提交成功，任务编号: {}, 当前节点: {}", task.getTaskNo(), firstNode.getNodeName());
 
         return convertToVO(task, flow);
@@ -169,8 +221,11 @@ public class TaskService {
         }
 
         // 4. 更新任务状态
+        String fromStatus = task.getStatus();
         task.setStatus(TaskStatus.WITHDRAWN.name());
-        taskRepository.updateById(task);
+        if (taskRepository.updateById(task) == 0) {
+            throw new VersionConflictException("任务已被修改，请刷新后重试");
+        }
 
         // 5. 创建撤回记录
         User user = userRepository.selectById(userId);
@@ -186,31 +241,70 @@ public class TaskService {
         record.setApprovalTime(LocalDateTime.now());
         recordRepository.insert(record);
 
+        // 6. 清除节点进度
+        approvalNodeService.clear(task.getId());
+        eventPublisher.publishEvent(new TaskChangedEvent(task.getId()));
+        eventPublisher.publishEvent(new TaskStatusChangedEvent(task.getId(), task.getTaskType(),
+                task.getPriority(), fromStatus, task.getStatus()));
+
         log.info("任务撤回成功，任务编号: {}", task.getTaskNo());
 
-        TaskApprovalFlow flow = flowRepository.selectById(task.getFlowId());
+        CompiledFlow flow = flowCache.get(task.getFlowId());
         return convertToVO(task, flow);
     }
 
     /**
      * 获取任务详情
+     * 与用户无关的部分（基本信息、审批流、节点、记录、当前待审批人）走任务详情缓存，
+     * 当前用户能否审批、撤回在缓存结果的副本上计算
      */
-    @Transactional(readOnly = true)
     public TaskDetailVO getTaskDetail(Long taskId, Long userId) {
         log.info("获取任务详情，任务ID: {}, 用户ID: {}", taskId, userId);
 
-        // 1. 查询任务基本信息
-        Task task = taskRepository.selectById(taskId);
-        if (task == null) {
-            throw new ResourceNotFoundException("任务不存在");
+        TaskDetailVO cached = taskDetailCache.get(taskId, this::loadTaskDetail);
+
+        // 复制后设置当前用户的操作权限（缓存中的对象不修改）
+        TaskDetailVO detailVO = new TaskDetailVO();
+        BeanUtils.copyProperties(cached, detailVO);
+
+        // 判断当前用户是否可以审批
+        detailVO.setCanApprove(cached.getCurrentApprovers().contains(userId));
+
+        // 判断当前用户是否可以撤回
+        detailVO.setCanWithdraw(cached.getCreatorId().equals(userId) &&
+                TaskStatus.fromName(cached.getStatus()).canWithdraw());
+
+        return detailVO;
+    }
+
+    /**
+     * 加载任务详情中与用户无关的部分
+     * 审批记录只依赖任务ID，与任务查询同时发出；审批节点的审批人解析和姓名查询（一次批量查询）
+     * 在拿到审批流后与审批记录查询并发。各分支在任务详情线程池中各自以只读事务执行，
+     * 当前待审批人直接从审批记录中筛出，不再单独查询。热表中没有的任务再到归档表中查找
+     */
+    private TaskDetailVO loadTaskDetail(Long taskId) {
+        // 1. 审批记录与任务基本信息并发查询
+        CompletableFuture<List<TaskApprovalRecord>> recordsFuture =
+                supplyReadOnly(() -> recordRepository.selectByTaskId(taskId));
+        Task hotTask = readOnlyTransaction.execute(status -> taskRepository.selectById(taskId));
+        Task task = hotTask != null ? hotTask : archiveService.findTask(taskId);
+        if (hotTask == null) {
+            recordsFuture.cancel(false);
+            if (task == null) {
+                throw new ResourceNotFoundException("任务不存在");
+            }
+            recordsFuture = CompletableFuture.completedFuture(archiveService.findRecords(taskId));
         }
 
-        // 2. 查询审批流配置
-        TaskApprovalFlow flow = flowRepository.selectById(task.getFlowId());
-        List<TaskApprovalNode> nodes = nodeRepository.selectByFlowId(task.getFlowId());
+        // 2. 查询审批流配置，节点VO（含审批人姓名）与审批记录并发组装
+        CompiledFlow flow = flowCache.get(task.getFlowId());
+        List<CompiledFlow.Node> nodes = flow != null ? flow.getNodes() : Collections.emptyList();
+        CompletableFuture<List<ApprovalNodeVO>> nodesFuture = supplyReadOnly(() -> convertNodesToVO(nodes));
 
-        // 3. 查询所有审批记录
-        List<TaskApprovalRecord> records = recordRepository.selectByTaskId(taskId);
+        // 3. 等待审批记录和审批节点
+        List<TaskApprovalRecord> records = join(recordsFuture);
+        List<ApprovalNodeVO> nodeVOs = join(nodesFuture);
 
         // 4. 组装返回VO
         TaskDetailVO detailVO = new TaskDetailVO();
@@ -237,30 +331,25 @@ public class TaskService {
         // 设置审批流信息
         detailVO.setFlow(convertFlowToVO(flow));
 
-        // 设置审批节点信息
-        detailVO.setNodes(nodes.stream().map(this::convertNodeToVO).collect(Collectors.toList()));
+        // 设置审批节点信息（缓存共享，列表只读）
+        detailVO.setNodes(Collections.unmodifiableList(nodeVOs));
 
         // 设置审批记录
-        detailVO.setRecords(records.stream().map(this::convertRecordToVO).collect(Collectors.toList()));
+        detailVO.setRecords(records.stream()
+                .map(record -> convertRecordToVO(record, flow))
+                .collect(Collectors.toUnmodifiableList()));
 
-        // 设置当前待审批人
+        // 设置当前待审批人（当前节点上的待审批记录）
         if (task.getCurrentNodeId() != null) {
-            List<TaskApprovalRecord> pendingRecords = recordRepository.selectPendingByTaskIdAndNodeId(
-                    taskId, task.getCurrentNodeId());
-            detailVO.setCurrentApprovers(pendingRecords.stream()
+            detailVO.setCurrentApprovers(records.stream()
+                    .filter(record -> task.getCurrentNodeId().equals(record.getNodeId()))
+                    .filter(record -> ApprovalResult.PENDING.name().equals(record.getResult()))
                     .map(TaskApprovalRecord::getApproverId)
-                    .collect(Collectors.toList()));
+                    .collect(Collectors.toUnmodifiableList()));
         } else {
             detailVO.setCurrentApprovers(Collections.emptyList());
         }
 
-        // 判断当前用户是否可以审批
-        detailVO.setCanApprove(detailVO.getCurrentApprovers().contains(userId));
-
-        // 判断当前用户是否可以撤回
-        detailVO.setCanWithdraw(task.getCreatorId().equals(userId) &&
-                TaskStatus.fromName(task.getStatus()).canWithdraw());
-
         return detailVO;
     }
 
@@ -271,15 +360,11 @@ public class TaskService {
     public PageResult<TaskVO> getMyPendingTasks(Long userId, int page, int size) {
         log.info("获取待办任务列表，用户ID: {}, 页码: {}, 每页数量: {}", userId, page, size);
 
-        Page<Task> pageParam = new Page<>(page, size);
-        IPage<Task> pageResult = taskRepository.selectPendingTasksByApproverId(pageParam, userId);
+        // 从待办箱按索引分页，再按顺序批量加载任务
+        Page<ApproverInbox> pageParam = new Page<>(page, size);
+        IPage<ApproverInbox> pageResult = inboxRepository.selectPageByApproverId(pageParam, userId);
 
-        List<TaskVO> taskVOs = pageResult.getRecords().stream()
-                .map(task -> {
-                    TaskApprovalFlow flow = flowRepository.selectById(task.getFlowId());
-                    return convertToVO(task, flow);
-                })
-                .collect(Collectors.toList());
+        List<TaskVO> taskVOs = convertToVOs(loadInboxTasks(pageResult.getRecords()));
 
         return new PageResult<>(taskVOs, pageResult.getTotal(), page, size);
     }
@@ -294,12 +379,7 @@ public class TaskService {
         Page<Task> pageParam = new Page<>(page, size);
         IPage<Task> pageResult = taskRepository.selectPageByCreatorId(pageParam, userId);
 
-        List<TaskVO> taskVOs = pageResult.getRecords().stream()
-                .map(task -> {
-                    TaskApprovalFlow flow = flowRepository.selectById(task.getFlowId());
-                    return convertToVO(task, flow);
-                })
-                .collect(Collectors.toList());
+        List<TaskVO> taskVOs = convertToVOs(pageResult.getRecords());
 
         return new PageResult<>(taskVOs, pageResult.getTotal(), page, size);
     }
@@ -311,80 +391,238 @@ public class TaskService {
     public PageResult<TaskVO> getMyApprovedTasks(Long userId, int page, int size) {
         log.info("获取我审批过的任务列表，用户ID: {}, 页码: {}, 每页数量: {}", userId, page, size);
 
+        // 热表与归档表合并分页
         Page<Task> pageParam = new Page<>(page, size);
-        IPage<Task> pageResult = taskRepository.selectApprovedTasksByApproverId(pageParam, userId);
+        IPage<Task> pageResult = taskRepository.selectDecidedTasksWithArchive(pageParam, userId);
 
-        List<TaskVO> taskVOs = pageResult.getRecords().stream()
-                .map(task -> {
-                    TaskApprovalFlow flow = flowRepository.selectById(task.getFlowId());
-                    return convertToVO(task, flow);
-                })
-                .collect(Collectors.toList());
+        List<TaskVO> taskVOs = convertToVOs(pageResult.getRecords());
 
         return new PageResult<>(taskVOs, pageResult.getTotal(), page, size);
     }
 
     /**
-     * 生成任务编号
-     * 格式：TASK + 年月日 + 6位序列号
-     * 例如：TASK20250121000001
+     * 游标分页获取我的待办任务列表
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResult<TaskVO> getMyPendingTasks(Long userId, String cursor, int size, boolean withTotal) {
+        log.info("游标分页获取待办任务列表，用户ID: {}, 每页数量: {}", userId, size);
+
+        CursorUtil.Position position = CursorUtil.decode(cursor);
+        int limit = normalizeCursorSize(size);
+        List<ApproverInbox> entries = inboxRepository.selectByApproverIdAfter(userId,
+                position != null ? position.time() : null, position != null ? position.id() : null, limit + 1);
+        Long total = withTotal ? inboxRepository.selectCount(
+                new LambdaQueryWrapper<ApproverInbox>().eq(ApproverInbox::getApproverId, userId)) : null;
+        return buildCursorPage(loadInboxTasks(entries), limit, total);
+    }
+
+    /**
+     * 游标分页获取我创建的任务列表
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResult<TaskVO> getMyCreatedTasks(Long userId, String cursor, int size, boolean withTotal) {
+        log.info("游标分页获取我创建的任务列表，用户ID: {}, 每页数量: {}", userId, size);
+
+        CursorUtil.Position position = CursorUtil.decode(cursor);
+        int limit = normalizeCursorSize(size);
+        List<Task> tasks = taskRepository.selectCreatedAfter(userId,
+                position != null ? position.time() : null, position != null ? position.id() : null, limit + 1);
+        Long total = withTotal ? taskRepository.selectCount(
+                new LambdaQueryWrapper<Task>().eq(Task::getCreatorId, userId)) : null;
+        return buildCursorPage(tasks, limit, total);
+    }
+
+    /**
+     * 游标分页获取我审批过的任务列表
+     * 按本人对每个任务最近一次审批/驳回的 (approval_time, id) 排序，游标取自审批记录。
+     * 归档表只保存早于水位线的审批记录：热表已取满一页且最后一条晚于水位线时不再查询归档表，
+     * 否则两边各取 limit+1 条按 (approval_time, id) 归并
      */
-    private String generateTaskNo() {
-        String dateStr = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String prefix = "TASK" + dateStr;
-
-        // 查询今日最大序列号
-        String maxTaskNo = taskRepository.getMaxTaskNoByPrefix(prefix);
-
-        int sequence = 1;
-        if (maxTaskNo != null && maxTaskNo.length() >= prefix.length() + 6) {
-            String seqStr = maxTaskNo.substring(prefix.length());
-            try {
-                sequence = Integer.parseInt(seqStr) + 1;
-            } catch (NumberFormatException e) {
-                log.warn("解析任务编号序列失败: {}", maxTaskNo);
+    @Transactional(readOnly = true)
+    public CursorPageResult<TaskVO> getMyApprovedTasks(Long userId, String cursor, int size, boolean withTotal) {
+        log.info("游标分页获取我审批过的任务列表，用户ID: {}, 每页数量: {}", userId, size);
+
+        CursorUtil.Position position = CursorUtil.decode(cursor);
+        int limit = normalizeCursorSize(size);
+        LocalDateTime afterTime = position != null ? position.time() : null;
+        Long afterId = position != null ? position.id() : null;
+        List<TaskApprovalRecord> records = recordRepository.selectLatestDecisionsAfter(userId,
+                afterTime, afterId, limit + 1);
+
+        LocalDateTime watermark = archiveService.getArchivedDecisionWatermark();
+        boolean needArchive = watermark != null
+                && (records.size() <= limit || !records.get(limit).getApprovalTime().isAfter(watermark));
+        if (needArchive) {
+            records = mergeDecisions(records,
+                    archiveService.findLatestDecisionsAfter(userId, afterTime, afterId, limit + 1), limit + 1);
+        }
+
+        boolean hasMore = records.size() > limit;
+        if (hasMore) {
+            records = records.subList(0, limit);
+        }
+
+        // 按审批记录顺序批量加载任务（热表未命中的到归档表中查找）
+        List<Task> tasks = new ArrayList<>(records.size());
+        if (!records.isEmpty()) {
+            List<Long> taskIds = records.stream()
+                    .map(TaskApprovalRecord::getTaskId)
+                    .collect(Collectors.toList());
+            Map<Long, Task> taskMap = taskRepository.selectBatchIds(taskIds).stream()
+                    .collect(Collectors.toMap(Task::getId, task -> task));
+            if (taskMap.size() < taskIds.size()) {
+                archiveService.findTasks(taskIds.stream()
+                        .filter(id -> !taskMap.containsKey(id))
+                        .collect(Collectors.toList())
+                ).forEach(task -> taskMap.put(task.getId(), task));
+            }
+            for (TaskApprovalRecord record : records) {
+                Task task = taskMap.get(record.getTaskId());
+                if (task != null) {
+                    tasks.add(task);
+                }
             }
         }
 
-        return prefix + String.format("%06d", sequence);
+        TaskApprovalRecord last = hasMore ? records.get(records.size() - 1) : null;
+        String nextCursor = last != null ? CursorUtil.encode(last.getApprovalTime(), last.getId()) : null;
+        Long total = withTotal
+                ? recordRepository.countDecidedTasksByApproverId(userId) + archiveService.countDecidedTasks(userId)
+                : null;
+        return new CursorPageResult<>(convertToVOs(tasks), nextCursor, hasMore, limit, total);
     }
 
     /**
-     * 获取节点的审批人列表
+     * 按 (approval_time, id) 倒序归并热表和归档表的审批记录，最多取 limit 条
+     * （同一任务只会在其中一边，不需要去重）
      */
-    private List<Long> getNodeApprovers(TaskApprovalNode node) {
-        List<Long> approverIds = new ArrayList<>();
-
-        if (ApproverType.USER.name().equals(node.getApproverType())) {
-            // 指定用户审批
-            if (node.getApproverIds() != null && !node.getApproverIds().isEmpty()) {
-                String[] ids = node.getApproverIds().split(",");
-                for (String id : ids) {
-                    try {
-                        approverIds.add(Long.parseLong(id.trim()));
-                    } catch (NumberFormatException e) {
-                        log.warn("解析审批人ID失败: {}", id);
-                    }
-                }
+    private static List<TaskApprovalRecord> mergeDecisions(List<TaskApprovalRecord> hot,
+                                                           List<TaskApprovalRecord> archived, int limit) {
+        Comparator<TaskApprovalRecord> order = Comparator
+                .comparing(TaskApprovalRecord::getApprovalTime)
+                .thenComparing(TaskApprovalRecord::getId)
+                .reversed();
+        List<TaskApprovalRecord> merged = new ArrayList<>(Math.min(limit, hot.size() + archived.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < hot.size() || j < archived.size())) {
+            if (j >= archived.size() || (i < hot.size() && order.compare(hot.get(i), archived.get(j)) <= 0)) {
+                merged.add(hot.get(i++));
+            } else {
+                merged.add(archived.get(j++));
             }
-        } else if (ApproverType.ROLE.name().equals(node.getApproverType())) {
-            // 按角色审批
-            if (node.getApproverRoles() != null && !node.getApproverRoles().isEmpty()) {
-                String[] roles = node.getApproverRoles().split(",");
-                for (String roleCode : roles) {
-                    List<Long> userIds = userRoleRepository.selectUserIdsByRoleCode(roleCode.trim());
-                    approverIds.addAll(userIds);
-                }
+        }
+        return merged;
+    }
+
+    /**
+     * 按待办顺序批量加载任务
+     */
+    private List<Task> loadInboxTasks(List<ApproverInbox> entries) {
+        if (entries.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Task> taskMap = taskRepository.selectBatchIds(entries.stream()
+                .map(ApproverInbox::getTaskId)
+                .collect(Collectors.toList())
+        ).stream().collect(Collectors.toMap(Task::getId, task -> task));
+        List<Task> tasks = new ArrayList<>(entries.size());
+        for (ApproverInbox entry : entries) {
+            Task task = taskMap.get(entry.getTaskId());
+            if (task != null) {
+                tasks.add(task);
             }
         }
+        return tasks;
+    }
 
-        return approverIds.stream().distinct().collect(Collectors.toList());
+    /**
+     * 搜索任务
+     * 由搜索索引按关键词和过滤条件求出本页任务ID（ID倒序，游标取上一页最后一个任务），
+     * 再按ID批量查询任务；查询期间已归档的任务不返回。
+     * 非管理员只能搜到自己创建的任务和自己是审批人的任务
+     */
+    @Transactional(readOnly = true)
+    public TaskSearchResultVO searchTasks(String query, String status, String taskType, Long creatorId,
+                                          Long userId, boolean admin, String cursor, int size) {
+        log.info("搜索任务，用户ID: {}, 关键词: {}, 状态: {}, 任务类型: {}, 创建人ID: {}",
+                userId, query, status, taskType, creatorId);
+
+        Long afterId = CursorUtil.decodeId(cursor);
+        int limit = normalizeCursorSize(size);
+        Long viewerId = admin ? null : userId;
+        long[] viewableIds = admin ? null : recordRepository.selectTaskIdsByApproverId(userId).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        InvertedIndex.SearchResult result = searchService.search(query, status, taskType, creatorId,
+                viewerId, viewableIds, afterId, limit);
+
+        List<Task> tasks = Collections.emptyList();
+        if (!result.ids().isEmpty()) {
+            Map<Long, Task> taskMap = taskRepository.selectBatchIds(result.ids()).stream()
+                    .collect(Collectors.toMap(Task::getId, Function.identity()));
+            tasks = result.ids().stream()
+                    .map(taskMap::get)
+                    .filter(Objects::nonNull)
+                    .toList();
+        }
+
+        TaskSearchResultVO vo = new TaskSearchResultVO();
+        vo.setRecords(convertToVOs(tasks));
+        vo.setHasMore(result.hasMore());
+        if (result.hasMore()) {
+            // 搜索结果按ID翻页
+            vo.setNextCursor(CursorUtil.encodeId(result.ids().get(result.ids().size() - 1)));
+        }
+        vo.setSize(limit);
+        vo.setTotal(result.total());
+        vo.setStatusFacets(result.statusFacets());
+        vo.setTaskTypeFacets(result.taskTypeFacets());
+        return vo;
+    }
+
+    /**
+     * 组装按 (created_at, id) 排序的游标分页结果，tasks 多查一条用于判断是否还有下一页
+     */
+    private CursorPageResult<TaskVO> buildCursorPage(List<Task> tasks, int limit, Long total) {
+        boolean hasMore = tasks.size() > limit;
+        if (hasMore) {
+            tasks = tasks.subList(0, limit);
+        }
+        Task last = hasMore ? tasks.get(tasks.size() - 1) : null;
+        String nextCursor = last != null ? CursorUtil.encode(last.getCreatedAt(), last.getId()) : null;
+        return new CursorPageResult<>(convertToVOs(tasks), nextCursor, hasMore, limit, total);
+    }
+
+    private int normalizeCursorSize(int size) {
+        return Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+    }
+
+    /**
+     * 批量转换任务为VO
+     * 先汇总本页涉及的审批流ID，从审批流缓存批量取回（未命中部分各用一次IN查询加载），
+     * 当前节点名称直接取自编译后的审批流，保证列表接口的SQL条数与分页大小无关
+     */
+    private List<TaskVO> convertToVOs(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<Long> flowIds = tasks.stream()
+                .map(Task::getFlowId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, CompiledFlow> flowMap = flowCache.getAll(flowIds);
+
+        return tasks.stream()
+                .map(task -> convertToVO(task, flowMap.get(task.getFlowId())))
+                .collect(Collectors.toList());
     }
 
     /**
      * 转换任务为VO
      */
-    private TaskVO convertToVO(Task task, TaskApprovalFlow flow) {
+    private TaskVO convertToVO(Task task, CompiledFlow flow) {
         TaskVO vo = new TaskVO();
         vo.setId(task.getId());
         vo.setTaskNo(task.getTaskNo());
@@ -405,7 +643,7 @@ public class TaskService {
 
         // 设置当前节点名称
         if (task.getCurrentNodeId() != null) {
-            TaskApprovalNode currentNode = nodeRepository.selectById(task.getCurrentNodeId());
+            CompiledFlow.Node currentNode = flow != null ? flow.getNode(task.getCurrentNodeId()) : null;
             vo.setCurrentNodeName(currentNode != null ? currentNode.getNodeName() : "");
         }
 
@@ -415,7 +653,7 @@ public class TaskService {
     /**
      * 转换审批流为VO
      */
-    private TaskApprovalFlowVO convertFlowToVO(TaskApprovalFlow flow) {
+    private TaskApprovalFlowVO convertFlowToVO(CompiledFlow flow) {
         if (flow == null) {
             return null;
         }
@@ -432,10 +670,30 @@ public class TaskService {
         return vo;
     }
 
+    /**
+     * 转换审批节点为VO，所有节点的审批人姓名一次批量查询
+     */
+    private List<ApprovalNodeVO> convertNodesToVO(List<CompiledFlow.Node> nodes) {
+        Map<Long, List<Long>> approverIdsByNode = new HashMap<>();
+        Set<Long> approverIds = new HashSet<>();
+        for (CompiledFlow.Node node : nodes) {
+            List<Long> ids = approverResolver.resolve(node);
+            approverIdsByNode.put(node.getId(), ids);
+            approverIds.addAll(ids);
+        }
+        Map<Long, User> users = approverIds.isEmpty() ? Collections.emptyMap() :
+                userRepository.selectBatchIds(approverIds).stream()
+                        .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        return nodes.stream()
+                .map(node -> convertNodeToVO(node, approverIdsByNode.get(node.getId()), users))
+                .collect(Collectors.toList());
+    }
+
     /**
      * 转换审批节点为VO
      */
-    private ApprovalNodeVO convertNodeToVO(TaskApprovalNode node) {
+    private ApprovalNodeVO convertNodeToVO(CompiledFlow.Node node, List<Long> approverIds, Map<Long, User> users) {
         ApprovalNodeVO vo = new ApprovalNodeVO();
         vo.setId(node.getId());
         vo.setNodeCode(node.getNodeCode());
@@ -444,24 +702,44 @@ public class TaskService {
         vo.setApprovalType(node.getApprovalType());
         vo.setApprovalTypeText(ApprovalType.fromName(node.getApprovalType()).getDisplayName());
 
-        // 设置审批人名称列表
-        List<Long> approverIds = getNodeApprovers(node);
+        // 设置审批人名称列表（保持审批人配置顺序）
         List<String> approverNames = approverIds.stream()
-                .map(id -> {
-                    User user = userRepository.selectById(id);
-                    return user != null ? user.getUsername() : "";
-                })
-                .filter(name -> !name.isEmpty())
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .map(User::getUsername)
+                .filter(name -> name != null && !name.isEmpty())
                 .collect(Collectors.toList());
         vo.setApproverNames(approverNames);
 
         return vo;
     }
 
+    /**
+     * 在任务详情线程池中以只读事务执行查询
+     */
+    private <T> CompletableFuture<T> supplyReadOnly(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> readOnlyTransaction.execute(status -> query.get()),
+                taskDetailExecutor);
+    }
+
+    /**
+     * 等待并发查询结果，查询中抛出的异常原样抛出
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
     /**
      * 转换审批记录为VO
      */
-    private ApprovalRecordVO convertRecordToVO(TaskApprovalRecord record) {
+    private ApprovalRecordVO convertRecordToVO(TaskApprovalRecord record, CompiledFlow flow) {
         ApprovalRecordVO vo = new ApprovalRecordVO();
         vo.setId(record.getId());
         vo.setNodeName(record.getNodeName());
@@ -477,7 +755,7 @@ public class TaskService {
 
         // 设置驳回节点名称
         if (record.getRejectToNodeId() != null) {
-            TaskApprovalNode rejectNode = nodeRepository.selectById(record.getRejectToNodeId());
+            CompiledFlow.Node rejectNode = flow != null ? flow.getNode(record.getRejectToNodeId()) : null;
             vo.setRejectToNodeName(rejectNode != null ? rejectNode.getNodeName() : "");
         }
 
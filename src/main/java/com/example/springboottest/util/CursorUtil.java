@@ -0,0 +1,71 @@
+package com.example.springboottest.util;
+
+import com.example.springboottest.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 游标分页令牌工具类
+ * 令牌为 (排序时间, 主键) 或只有主键（按主键翻页时）的 Base64 编码，对客户端不透明
+ */
+public final class CursorUtil {
+
+    private static final char SEPARATOR = '|';
+
+    private CursorUtil() {
+    }
+
+    /**
+     * 游标位置：上一页最后一行的排序时间和主键
+     */
+    public record Position(LocalDateTime time, Long id) {
+    }
+
+    /**
+     * 编码游标
+     */
+    public static String encode(LocalDateTime time, Long id) {
+        String raw = time + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标，为空表示第一页（返回 null）
+     */
+    public static Position decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            return new Position(LocalDateTime.parse(raw.substring(0, index)), Long.parseLong(raw.substring(index + 1)));
+        } catch (RuntimeException e) {
+            throw new BusinessException("无效的分页游标");
+        }
+    }
+
+    /**
+     * 编码只按主键翻页的游标
+     */
+    public static String encodeId(Long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码只按主键翻页的游标，为空表示第一页（返回 null）
+     */
+    public static Long decodeId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new BusinessException("无效的分页游标");
+        }
+    }
+}
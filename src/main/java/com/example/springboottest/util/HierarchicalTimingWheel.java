@@ -0,0 +1,172 @@
+package com.example.springboottest.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分层时间轮
+ * 第0层每格 tickMs，每往上一层格宽放大 wheelSize 倍，上层按需创建，可容纳任意远的到期时间。
+ * 每个到期项只占一个链表节点（固定内存），添加、到期均为 O(1)；
+ * 时钟推进到上层格子边界时，该格中的项被重新放入下层，直至落入第0层到期。
+ * 所有操作由 synchronized 保护：通常由单个驱动线程推进时钟，其他线程添加到期项
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final List<Level<T>> levels = new ArrayList<>();
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMs 必须大于0，wheelSize 至少为2");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        levels.add(new Level<>(tickMs, wheelSize, startMs));
+    }
+
+    /**
+     * 添加到期项
+     *
+     * @return false 表示已到期（未加入时间轮），调用方应立即处理
+     */
+    public synchronized boolean add(T payload, long expirationMs) {
+        Entry<T> entry = new Entry<>(payload, expirationMs);
+        if (!insert(entry)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * 推进时钟到 nowMs，返回期间到期的项
+     */
+    public synchronized List<T> advanceClock(long nowMs) {
+        List<T> expired = new ArrayList<>();
+        Level<T> root = levels.get(0);
+        while (root.currentTime + tickMs <= nowMs) {
+            long time = root.currentTime + tickMs;
+
+            // 先推进所有跨过格子边界的层，上层格子中的项下放
+            int top = 0;
+            for (int i = 0; i < levels.size(); i++) {
+                Level<T> level = levels.get(i);
+                if (time % level.tickMs == 0 || i == 0) {
+                    level.currentTime = time - (time % level.tickMs);
+                    top = i;
+                } else {
+                    break;
+                }
+            }
+            for (int i = top; i >= 1; i--) {
+                Entry<T> head = levels.get(i).drain(time);
+                reinsert(head, expired);
+            }
+
+            // 第0层当前格中的项全部到期
+            Entry<T> head = root.drain(time);
+            for (Entry<T> entry = head; entry != null; entry = entry.next) {
+                expired.add(entry.payload);
+                size--;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * 时间轮中待到期的项数
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private void reinsert(Entry<T> head, List<T> expired) {
+        Entry<T> entry = head;
+        while (entry != null) {
+            Entry<T> next = entry.next;
+            entry.next = null;
+            if (!insert(entry)) {
+                expired.add(entry.payload);
+                size--;
+            }
+            entry = next;
+        }
+    }
+
+    /**
+     * 放入能容纳该到期时间的最低层
+     */
+    private boolean insert(Entry<T> entry) {
+        Level<T> root = levels.get(0);
+        if (entry.expirationMs < root.currentTime + tickMs) {
+            return false;
+        }
+        int index = 0;
+        while (true) {
+            Level<T> level = levels.get(index);
+            if (entry.expirationMs < level.currentTime + level.interval) {
+                level.push(entry);
+                return true;
+            }
+            index++;
+            if (index == levels.size()) {
+                long upperTick = level.interval;
+                long start = root.currentTime - (root.currentTime % upperTick);
+                levels.add(new Level<>(upperTick, wheelSize, start));
+            }
+        }
+    }
+
+    /**
+     * 到期项（单向链表节点）
+     */
+    private static final class Entry<T> {
+
+        private final T payload;
+        private final long expirationMs;
+        private Entry<T> next;
+
+        private Entry(T payload, long expirationMs) {
+            this.payload = payload;
+            this.expirationMs = expirationMs;
+        }
+    }
+
+    /**
+     * 时间轮的一层
+     */
+    private static final class Level<T> {
+
+        private final long tickMs;
+        private final long interval;
+        private final Object[] buckets;
+        private long currentTime;
+
+        private Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.interval = tickMs * wheelSize;
+            this.buckets = new Object[wheelSize];
+            this.currentTime = startMs - (startMs % tickMs);
+        }
+
+        private void push(Entry<T> entry) {
+            int index = (int) ((entry.expirationMs / tickMs) % buckets.length);
+            entry.next = bucket(index);
+            buckets[index] = entry;
+        }
+
+        private Entry<T> drain(long time) {
+            int index = (int) ((time / tickMs) % buckets.length);
+            Entry<T> head = bucket(index);
+            buckets[index] = null;
+            return head;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Entry<T> bucket(int index) {
+            return (Entry<T>) buckets[index];
+        }
+    }
+}
@@ -0,0 +1,595 @@
+package com.example.springboottest.util;
+
+import com.example.springboottest.exception.BusinessException;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 任务倒排索引
+ * 每个词对应一个按文档ID升序的倒排表，词典用 TreeMap 保存以支持前缀查询；
+ * 状态、任务类型、创建人各自维护倒排表作为过滤条件和分面统计。
+ * 查询语法：空格分隔的词取交集，OR 分隔的子句取并集，词前加 - 表示排除，词尾加 * 表示前缀匹配；
+ * 单个汉字按前缀匹配（分词时单字只作为二元组的首字或段末单字出现）。
+ * 结果按文档ID倒序，以上一页最后一个ID为游标翻页。读写由读写锁保护
+ */
+public class InvertedIndex {
+
+    private static final int SNAPSHOT_MAGIC = 0x54534958;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final int MAX_QUERY_TOKENS = 16;
+    private static final String OR = "OR";
+
+    private final TreeMap<String, PostingList> terms = new TreeMap<>();
+    private final Map<String, PostingList> statusPostings = new HashMap<>();
+    private final Map<String, PostingList> typePostings = new HashMap<>();
+    private final Map<Long, PostingList> creatorPostings = new HashMap<>();
+    private final PostingList all = new PostingList();
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 写入或替换文档
+     */
+    public void upsert(Doc doc) {
+        lock.writeLock().lock();
+        try {
+            Doc previous = docs.get(doc.id());
+            if (previous != null) {
+                unlink(previous);
+            }
+            link(doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按ID升序批量追加文档（重建索引用，ID已存在时替换）
+     */
+    public void addAll(List<Doc> batch) {
+        lock.writeLock().lock();
+        try {
+            for (Doc doc : batch) {
+                Doc previous = docs.get(doc.id());
+                if (previous != null) {
+                    unlink(previous);
+                }
+                link(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档，不存在时忽略
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Doc previous = docs.get(id);
+            if (previous != null) {
+                unlink(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 更新文档状态，不存在时忽略
+     */
+    public void updateStatus(long id, String status) {
+        lock.writeLock().lock();
+        try {
+            Doc previous = docs.get(id);
+            if (previous != null && !Objects.equals(previous.status(), status)) {
+                unlink(previous);
+                link(previous.withFacets(status, previous.taskType(), previous.creatorId()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Doc get(long id) {
+        lock.readLock().lock();
+        try {
+            return docs.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询
+     *
+     * @param query     查询语句，为空时匹配全部
+     * @param status    状态过滤，可为空
+     * @param taskType  任务类型过滤，可为空
+     * @param creatorId 创建人过滤，可为空
+     * @param viewerId  可见范围：只返回该用户创建的或ID在 viewableIds 中的文档，为空表示不限制
+     * @param viewableIds 除自己创建的之外可见的文档ID（升序），viewerId 为空时忽略
+     * @param beforeId  游标：只返回ID小于该值的文档，为空表示第一页
+     * @param limit     每页条数
+     */
+    public SearchResult search(String query, String status, String taskType, Long creatorId,
+                               Long viewerId, long[] viewableIds, Long beforeId, int limit) {
+        List<Clause> clauses = parse(query);
+        lock.readLock().lock();
+        try {
+            long[] matched = evaluate(clauses);
+            if (status != null) {
+                matched = intersect(matched, toArray(statusPostings.get(status)));
+            }
+            if (taskType != null) {
+                matched = intersect(matched, toArray(typePostings.get(taskType)));
+            }
+            if (creatorId != null) {
+                matched = intersect(matched, toArray(creatorPostings.get(creatorId)));
+            }
+            if (viewerId != null) {
+                matched = intersect(matched, union(toArray(creatorPostings.get(viewerId)), viewableIds));
+            }
+
+            Map<String, Long> statusFacets = facets(matched, statusPostings);
+            Map<String, Long> typeFacets = facets(matched, typePostings);
+
+            // 从游标位置向前（ID倒序）取 limit+1 条
+            int end = matched.length;
+            if (beforeId != null) {
+                int pos = Arrays.binarySearch(matched, beforeId);
+                end = pos >= 0 ? pos : -pos - 1;
+            }
+            List<Long> ids = new ArrayList<>(Math.min(limit, end));
+            for (int i = end - 1; i >= 0 && ids.size() < limit; i--) {
+                ids.add(matched[i]);
+            }
+            boolean hasMore = end > ids.size();
+            return new SearchResult(ids, matched.length, hasMore, statusFacets, typeFacets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 写入快照：先写临时文件再原子替换，写文件时不持有锁
+     */
+    public void writeSnapshot(Path path, LocalDateTime savedAt) throws IOException {
+        List<Doc> copy;
+        lock.readLock().lock();
+        try {
+            copy = new ArrayList<>(docs.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+        copy.sort(Comparator.comparingLong(Doc::id));
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(temp))))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeUTF(savedAt.toString());
+            out.writeInt(copy.size());
+            for (Doc doc : copy) {
+                out.writeLong(doc.id());
+                out.writeUTF(doc.status());
+                out.writeUTF(doc.taskType() != null ? doc.taskType() : "");
+                out.writeLong(doc.creatorId() != null ? doc.creatorId() : -1L);
+                out.writeInt(doc.terms().length);
+                for (String term : doc.terms()) {
+                    out.writeUTF(term);
+                }
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取快照，文件不存在时返回 null
+     */
+    public static Snapshot readSnapshot(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(path))))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("搜索索引快照格式不正确: " + path);
+            }
+            LocalDateTime savedAt = LocalDateTime.parse(in.readUTF());
+            int count = in.readInt();
+            Map<Long, Doc> loaded = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                String status = in.readUTF();
+                String taskType = in.readUTF();
+                long creatorId = in.readLong();
+                String[] docTerms = new String[in.readInt()];
+                for (int j = 0; j < docTerms.length; j++) {
+                    docTerms[j] = in.readUTF().intern();
+                }
+                loaded.put(id, new Doc(id, status, taskType.isEmpty() ? null : taskType,
+                        creatorId >= 0 ? creatorId : null, docTerms));
+            }
+            return new Snapshot(savedAt, loaded);
+        }
+    }
+
+    private void link(Doc doc) {
+        docs.put(doc.id(), doc);
+        all.add(doc.id());
+        for (String term : doc.terms()) {
+            terms.computeIfAbsent(term, k -> new PostingList()).add(doc.id());
+        }
+        statusPostings.computeIfAbsent(doc.status(), k -> new PostingList()).add(doc.id());
+        if (doc.taskType() != null) {
+            typePostings.computeIfAbsent(doc.taskType(), k -> new PostingList()).add(doc.id());
+        }
+        if (doc.creatorId() != null) {
+            creatorPostings.computeIfAbsent(doc.creatorId(), k -> new PostingList()).add(doc.id());
+        }
+    }
+
+    private void unlink(Doc doc) {
+        docs.remove(doc.id());
+        all.remove(doc.id());
+        for (String term : doc.terms()) {
+            removeFrom(terms, term, doc.id());
+        }
+        removeFrom(statusPostings, doc.status(), doc.id());
+        if (doc.taskType() != null) {
+            removeFrom(typePostings, doc.taskType(), doc.id());
+        }
+        if (doc.creatorId() != null) {
+            removeFrom(creatorPostings, doc.creatorId(), doc.id());
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, PostingList> postings, K key, long id) {
+        PostingList list = postings.get(key);
+        if (list != null && list.remove(id) && list.size == 0) {
+            postings.remove(key);
+        }
+    }
+
+    // ==================== 查询解析与求值 ====================
+
+    /**
+     * 解析查询语句，空查询返回空列表（匹配全部）
+     */
+    private static List<Clause> parse(String query) {
+        List<Clause> clauses = new ArrayList<>();
+        if (query == null || query.isBlank()) {
+            return clauses;
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw new BusinessException("搜索条件过长");
+        }
+        String[] parts = query.trim().split("\\s+");
+        if (parts.length > MAX_QUERY_TOKENS) {
+            throw new BusinessException("搜索条件过多，最多" + MAX_QUERY_TOKENS + "个");
+        }
+
+        Clause clause = new Clause(new ArrayList<>(), new ArrayList<>());
+        for (String part : parts) {
+            if (OR.equals(part)) {
+                if (!clause.isEmpty()) {
+                    clauses.add(clause);
+                }
+                clause = new Clause(new ArrayList<>(), new ArrayList<>());
+                continue;
+            }
+            boolean exclude = part.startsWith("-");
+            boolean prefix = part.endsWith("*");
+            String text = part.substring(exclude ? 1 : 0, Math.max(exclude ? 1 : 0, part.length() - (prefix ? 1 : 0)));
+            Token token = toToken(text, prefix);
+            if (token != null) {
+                (exclude ? clause.exclude() : clause.include()).add(token);
+            }
+        }
+        if (!clause.isEmpty()) {
+            clauses.add(clause);
+        }
+        if (clauses.isEmpty()) {
+            throw new BusinessException("搜索条件无有效关键词");
+        }
+        return clauses;
+    }
+
+    /**
+     * 把一个查询词切成索引词：汉字段取二元组（去掉段末单字），单个汉字和带 * 的末尾词按前缀匹配
+     */
+    private static Token toToken(String text, boolean prefix) {
+        List<List<String>> segments = SearchTokenizer.segments(text);
+        if (segments.isEmpty()) {
+            return null;
+        }
+        List<String> exact = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            List<String> segment = segments.get(i);
+            boolean last = i == segments.size() - 1;
+            String first = segment.get(0);
+            boolean cjk = SearchTokenizer.isCjk(first.codePointAt(0));
+            if (cjk && segment.size() == 1) {
+                prefixes.add(first);
+                continue;
+            }
+            List<String> segmentTerms = cjk ? segment.subList(0, segment.size() - 1) : segment;
+            for (int j = 0; j < segmentTerms.size(); j++) {
+                boolean lastTerm = last && j == segmentTerms.size() - 1;
+                (prefix && lastTerm ? prefixes : exact).add(segmentTerms.get(j));
+            }
+        }
+        return new Token(exact, prefixes);
+    }
+
+    /**
+     * 求值：子句取并集，子句内包含的词取交集再减去排除的词
+     */
+    private long[] evaluate(List<Clause> clauses) {
+        if (clauses.isEmpty()) {
+            return all.toArray();
+        }
+        long[] result = null;
+        for (Clause clause : clauses) {
+            long[] matched = null;
+            for (Token token : clause.include()) {
+                matched = matched == null ? match(token) : intersect(matched, match(token));
+                if (matched.length == 0) {
+                    break;
+                }
+            }
+            if (matched == null) {
+                matched = all.toArray();
+            }
+            for (Token token : clause.exclude()) {
+                if (matched.length == 0) {
+                    break;
+                }
+                matched = subtract(matched, match(token));
+            }
+            result = result == null ? matched : union(result, matched);
+        }
+        return result;
+    }
+
+    private long[] match(Token token) {
+        long[] matched = null;
+        for (String term : token.exact()) {
+            long[] ids = toArray(terms.get(term));
+            matched = matched == null ? ids : intersect(matched, ids);
+            if (matched.length == 0) {
+                return matched;
+            }
+        }
+        for (String prefix : token.prefixes()) {
+            long[] ids = matchPrefix(prefix);
+            matched = matched == null ? ids : intersect(matched, ids);
+            if (matched.length == 0) {
+                return matched;
+            }
+        }
+        return matched != null ? matched : new long[0];
+    }
+
+    private long[] matchPrefix(String prefix) {
+        SortedMap<String, PostingList> range = terms.subMap(prefix, prefix + Character.MAX_VALUE);
+        if (range.size() == 1) {
+            return range.values().iterator().next().toArray();
+        }
+        int total = 0;
+        for (PostingList list : range.values()) {
+            total += list.size;
+        }
+        long[] merged = new long[total];
+        int pos = 0;
+        for (PostingList list : range.values()) {
+            System.arraycopy(list.ids, 0, merged, pos, list.size);
+            pos += list.size;
+        }
+        Arrays.sort(merged);
+        return distinct(merged);
+    }
+
+    private static Map<String, Long> facets(long[] matched, Map<String, PostingList> postings) {
+        Map<String, Long> counts = new TreeMap<>();
+        postings.forEach((key, list) -> {
+            long count = intersectCount(matched, list);
+            if (count > 0) {
+                counts.put(key, count);
+            }
+        });
+        return counts;
+    }
+
+    // ==================== 有序数组运算 ====================
+
+    private static long[] toArray(PostingList list) {
+        return list != null ? list.toArray() : new long[0];
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] out = new long[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static long intersectCount(long[] a, PostingList list) {
+        long[] b = list.ids;
+        int i = 0, j = 0;
+        long n = 0;
+        while (i < a.length && j < list.size) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                n++;
+                i++;
+                j++;
+            }
+        }
+        return n;
+    }
+
+    private static long[] union(long[] a, long[] b) {
+        long[] out = new long[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                out[n++] = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                out[n++] = b[j++];
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static long[] subtract(long[] a, long[] b) {
+        long[] out = new long[a.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length) {
+            if (j >= b.length || a[i] < b[j]) {
+                out[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static long[] distinct(long[] sorted) {
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (n == 0 || sorted[n - 1] != sorted[i]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, n);
+    }
+
+    // ==================== 数据结构 ====================
+
+    /**
+     * 倒排表：升序的文档ID数组，新文档ID递增，通常走末尾追加
+     */
+    private static final class PostingList {
+
+        private long[] ids = new long[2];
+        private int size;
+
+        void add(long id) {
+            int pos;
+            if (size == 0 || ids[size - 1] < id) {
+                pos = size;
+            } else {
+                pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) {
+                    return;
+                }
+                pos = -pos - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    /**
+     * 索引文档：只保存过滤字段和分词结果，不保存原文
+     */
+    public record Doc(long id, String status, String taskType, Long creatorId, String[] terms) {
+
+        public static Doc of(long id, String status, String taskType, Long creatorId, String title, String content) {
+            return new Doc(id, status, taskType, creatorId, SearchTokenizer.tokenize(title, content).toArray(new String[0]));
+        }
+
+        public Doc withFacets(String status, String taskType, Long creatorId) {
+            return new Doc(id, status, taskType, creatorId, terms);
+        }
+    }
+
+    /**
+     * 查询结果：本页文档ID（倒序）、命中总数、是否还有下一页、按状态和任务类型的命中数
+     */
+    public record SearchResult(List<Long> ids, long total, boolean hasMore,
+                               Map<String, Long> statusFacets, Map<String, Long> taskTypeFacets) {
+    }
+
+    /**
+     * 快照内容
+     */
+    public record Snapshot(LocalDateTime savedAt, Map<Long, Doc> docs) {
+    }
+
+    private record Token(List<String> exact, List<String> prefixes) {
+    }
+
+    private record Clause(List<Token> include, List<Token> exclude) {
+
+        boolean isEmpty() {
+            return include.isEmpty() && exclude.isEmpty();
+        }
+    }
+}
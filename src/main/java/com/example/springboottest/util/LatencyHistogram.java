@@ -0,0 +1,146 @@
+package com.example.springboottest.util;
+
+/**
+ * 耗时直方图（HDR 风格的对数-线性分桶）
+ * 小于 2 * SUB_BUCKETS 的值每个值一个桶（精确），更大的值每个2的幂区间再均分为 SUB_BUCKETS 个桶，
+ * 相对误差不超过 1 / SUB_BUCKETS；每个桶同时记录样本数和耗时总和，均值是精确值。
+ * 桶序号稳定，可直接作为持久化的键，不同实例、不同时段的直方图按桶相加即可合并。
+ * 非线程安全，由调用方保证同一时刻只有一个线程写入
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 桶总数：覆盖 [0, Long.MAX_VALUE]
+     */
+    public static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private final long[] sums = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long totalSum;
+
+    /**
+     * 记录一个样本，负值按0计
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        add(bucketOf(v), 1, v);
+    }
+
+    /**
+     * 向指定桶累加样本数和耗时总和
+     */
+    public void add(int bucket, long count, long sum) {
+        counts[bucket] += count;
+        sums[bucket] += sum;
+        totalCount += count;
+        totalSum += sum;
+    }
+
+    /**
+     * 把另一个直方图合并进来
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (other.counts[i] != 0) {
+                add(i, other.counts[i], other.sums[i]);
+            }
+        }
+    }
+
+    /**
+     * 复制当前直方图
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.merge(this);
+        return copy;
+    }
+
+    /**
+     * 遍历非空桶
+     */
+    public void forEachBucket(BucketConsumer consumer) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts[i] != 0) {
+                consumer.accept(i, counts[i], sums[i]);
+            }
+        }
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public long getSum() {
+        return totalSum;
+    }
+
+    public boolean isEmpty() {
+        return totalCount == 0;
+    }
+
+    /**
+     * 平均值，无样本时为0
+     */
+    public double getMean() {
+        return totalCount == 0 ? 0 : (double) totalSum / totalCount;
+    }
+
+    /**
+     * 百分位值（取所在桶的上界），无样本时为0
+     *
+     * @param percentile 0-100
+     */
+    public long valueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * 值所在的桶序号
+     */
+    public static int bucketOf(long value) {
+        if (value < SUB_BUCKETS << 1) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int octave = msb - SUB_BUCKET_BITS + 1;
+        int sub = (int) (value >>> (msb - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return octave * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * 桶内最大的值
+     */
+    public static long highestValueOf(int bucket) {
+        int octave = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        if (octave <= 1) {
+            return bucket;
+        }
+        long next = (long) (SUB_BUCKETS + sub + 1) << (octave - 1);
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+
+    /**
+     * 非空桶回调
+     */
+    @FunctionalInterface
+    public interface BucketConsumer {
+        void accept(int bucket, long count, long sum);
+    }
+}
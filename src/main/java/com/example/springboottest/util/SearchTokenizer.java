@@ -0,0 +1,98 @@
+package com.example.springboottest.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 搜索分词工具类
+ * 字母数字连续段转小写后作为一个词；中日韩文字连续段切成相邻两字的二元组，并额外保留段末单字，
+ * 这样任意单字都是某个词的前缀（单字查询按前缀匹配即可覆盖）
+ */
+public final class SearchTokenizer {
+
+    /**
+     * 单个词的最大长度，超出部分截断
+     */
+    private static final int MAX_TERM_LENGTH = 32;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 对文档文本分词，返回去重后的词
+     */
+    public static Set<String> tokenize(String... texts) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String text : texts) {
+            if (text != null) {
+                for (List<String> segment : segments(text)) {
+                    terms.addAll(segment);
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 对查询词分词，按原文中的连续段返回，每段内的词顺序与原文一致
+     */
+    public static List<List<String>> segments(String text) {
+        List<List<String>> segments = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        StringBuilder cjk = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            int codePoint = text.codePointAt(i);
+            if (isCjk(codePoint)) {
+                flushWord(word, segments);
+                cjk.appendCodePoint(codePoint);
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                flushCjk(cjk, segments);
+                word.appendCodePoint(Character.toLowerCase(codePoint));
+            } else {
+                flushWord(word, segments);
+                flushCjk(cjk, segments);
+            }
+            i += Character.charCount(codePoint);
+        }
+        flushWord(word, segments);
+        flushCjk(cjk, segments);
+        return segments;
+    }
+
+    /**
+     * 是否中日韩文字
+     */
+    public static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static void flushWord(StringBuilder word, List<List<String>> segments) {
+        if (word.length() > 0) {
+            String term = word.length() > MAX_TERM_LENGTH ? word.substring(0, MAX_TERM_LENGTH) : word.toString();
+            segments.add(List.of(term.toLowerCase(Locale.ROOT)));
+            word.setLength(0);
+        }
+    }
+
+    private static void flushCjk(StringBuilder cjk, List<List<String>> segments) {
+        if (cjk.length() == 0) {
+            return;
+        }
+        int[] codePoints = cjk.codePoints().toArray();
+        List<String> terms = new ArrayList<>(codePoints.length);
+        for (int i = 0; i + 1 < codePoints.length; i++) {
+            terms.add(new String(codePoints, i, 2));
+        }
+        terms.add(new String(codePoints, codePoints.length - 1, 1));
+        segments.add(terms);
+        cjk.setLength(0);
+    }
+}
@@ -121,6 +121,24 @@ CREATE TABLE IF NOT EXISTS dict_item (
     CONSTRAINT fk_dict_item_dict FOREIGN KEY (dict_id) REFERENCES dict(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='字典项表';
 
+-- 创建字典变更日志表（version 即字典版本号，由 dict_version 计数器分配，增量同步用，只保留最近的日志）
+CREATE TABLE IF NOT EXISTS dict_change_log (
+    version BIGINT PRIMARY KEY COMMENT '字典版本号',
+    dict_id BIGINT NOT NULL COMMENT '字典ID',
+    dict_code VARCHAR(50) NOT NULL COMMENT '变更时的字典编码',
+    item_id BIGINT COMMENT '字典项ID（字典本身变更时为空）',
+    change_type VARCHAR(20) NOT NULL COMMENT '变更类型',
+    create_time DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '变更时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='字典变更日志表';
+
+-- 创建字典版本计数器表（单行，变更事务内加行锁递增，版本号按提交顺序分配）
+CREATE TABLE IF NOT EXISTS dict_version (
+    id TINYINT PRIMARY KEY COMMENT '固定为1',
+    version BIGINT NOT NULL COMMENT '已分配的最大字典版本号'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='字典版本计数器表';
+
+INSERT IGNORE INTO dict_version (id, version) SELECT 1, COALESCE(MAX(version), 0) FROM dict_change_log;
+
 -- 插入测试字典数据
 INSERT INTO dict (dict_code, dict_name, description, status, create_by, update_by) VALUES
 ('user_status', '用户状态', '用户账户状态字典', 1, 1, 1),
@@ -46,11 +46,13 @@ CREATE TABLE IF NOT EXISTS `tasks` (
   `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   `submitted_at` TIMESTAMP NULL COMMENT '提交时间',
   `completed_at` TIMESTAMP NULL COMMENT '完成时间',
+  `version` INT NOT NULL DEFAULT 0 COMMENT '版本号(乐观锁)',
   INDEX `idx_task_no` (`task_no`),
   INDEX `idx_status` (`status`),
   INDEX `idx_creator` (`creator_id`),
   INDEX `idx_flow_id` (`flow_id`),
   INDEX `idx_created_at` (`created_at`),
+  INDEX `idx_creator_created` (`creator_id`, `created_at`, `id`) COMMENT '我创建的任务游标分页',
   CONSTRAINT `fk_tasks_creator` FOREIGN KEY (`creator_id`) REFERENCES `users` (`id`) ON DELETE RESTRICT
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='任务表';
 
@@ -113,14 +115,122 @@ CREATE TABLE IF NOT EXISTS `task_approval_records` (
   INDEX `idx_approver_id` (`approver_id`),
   INDEX `idx_result` (`result`),
   INDEX `idx_approval_time` (`approval_time`),
+  INDEX `idx_approver_time` (`approver_id`, `approval_time`, `id`) COMMENT '已审批任务游标分页（按时间倒序扫描，结果在定位后过滤）',
+  INDEX `idx_task_approver_result` (`task_id`, `approver_id`, `result`) COMMENT '待办判断/最近审批去重',
   CONSTRAINT `fk_records_task` FOREIGN KEY (`task_id`) REFERENCES `tasks` (`id`) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='审批记录表';
 
+-- 7. 号段表（任务编号等序列按号段批量领取）
+CREATE TABLE IF NOT EXISTS `id_segment` (
+  `biz_tag` VARCHAR(64) NOT NULL PRIMARY KEY COMMENT '业务标识(TASK20250121)',
+  `max_id` BIGINT NOT NULL DEFAULT 0 COMMENT '已分配的最大序号',
+  `step` INT NOT NULL DEFAULT 1000 COMMENT '每次领取的号段长度',
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='号段表';
+
+-- 8. 任务节点审批进度表（会签/或签完成判断）
+CREATE TABLE IF NOT EXISTS `task_node_progress` (
+  `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键',
+  `task_id` BIGINT NOT NULL COMMENT '任务ID',
+  `node_id` BIGINT NOT NULL COMMENT '审批节点ID',
+  `node_order` INT NOT NULL COMMENT '节点顺序',
+  `required_count` INT NOT NULL COMMENT '需要通过的人数：或签为1，会签为审批人数',
+  `approved_count` INT NOT NULL DEFAULT 0 COMMENT '已通过人数',
+  `completed` TINYINT NOT NULL DEFAULT 0 COMMENT '是否完成：1-是，0-否',
+  `entered_at` TIMESTAMP NULL COMMENT '进入节点时间',
+  `deadline_at` TIMESTAMP NULL COMMENT '节点超时时间（按节点 timeout_hours 计算）',
+  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  UNIQUE KEY `uk_task_node` (`task_id`, `node_id`),
+  INDEX `idx_completed_deadline` (`completed`, `deadline_at`, `id`) COMMENT '超时调度增量加载',
+  CONSTRAINT `fk_progress_task` FOREIGN KEY (`task_id`) REFERENCES `tasks` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='任务节点审批进度表';
+
+-- 9. 审批人待办箱（我的待办读模型，与审批记录同事务维护）
+CREATE TABLE IF NOT EXISTS `approver_inbox` (
+  `id` BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键',
+  `approver_id` BIGINT NOT NULL COMMENT '审批人ID',
+  `task_id` BIGINT NOT NULL COMMENT '任务ID',
+  `node_id` BIGINT NOT NULL COMMENT '当前审批节点ID',
+  `priority` TINYINT COMMENT '任务优先级',
+  `task_created_at` TIMESTAMP NULL COMMENT '任务创建时间（排序键）',
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '进入待办时间',
+  UNIQUE KEY `uk_approver_task` (`approver_id`, `task_id`),
+  INDEX `idx_approver_created` (`approver_id`, `task_created_at`, `task_id`) COMMENT '待办列表覆盖索引',
+  INDEX `idx_task_id` (`task_id`),
+  CONSTRAINT `fk_inbox_task` FOREIGN KEY (`task_id`) REFERENCES `tasks` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='审批人待办箱';
+
+-- 10. 任务归档表（结束超过保留天数的任务，结构同 tasks，保留原ID）
+CREATE TABLE IF NOT EXISTS `tasks_archive` (
+  `id` BIGINT NOT NULL PRIMARY KEY COMMENT '任务ID',
+  `task_no` VARCHAR(50) NOT NULL COMMENT '任务编号',
+  `title` VARCHAR(200) NOT NULL COMMENT '任务标题',
+  `content` TEXT COMMENT '任务内容',
+  `task_type` VARCHAR(50) COMMENT '任务类型',
+  `priority` TINYINT COMMENT '优先级',
+  `status` VARCHAR(30) NOT NULL COMMENT '任务状态',
+  `current_node_id` BIGINT COMMENT '当前审批节点ID',
+  `current_node_order` INT COMMENT '当前节点顺序',
+  `creator_id` BIGINT NOT NULL COMMENT '创建人ID',
+  `creator_name` VARCHAR(100) COMMENT '创建人姓名',
+  `flow_id` BIGINT COMMENT '关联的审批流ID',
+  `created_at` TIMESTAMP NULL COMMENT '创建时间',
+  `updated_at` TIMESTAMP NULL COMMENT '更新时间',
+  `submitted_at` TIMESTAMP NULL COMMENT '提交时间',
+  `completed_at` TIMESTAMP NULL COMMENT '完成时间',
+  `version` INT NOT NULL DEFAULT 0 COMMENT '版本号',
+  `archived_at` TIMESTAMP NULL COMMENT '归档时间',
+  INDEX `idx_task_no` (`task_no`),
+  INDEX `idx_creator_created` (`creator_id`, `created_at`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='任务归档表';
+
+-- 11. 审批记录归档表（随任务一起归档，结构同 task_approval_records）
+CREATE TABLE IF NOT EXISTS `task_approval_records_archive` (
+  `id` BIGINT NOT NULL PRIMARY KEY COMMENT '记录ID',
+  `task_id` BIGINT NOT NULL COMMENT '任务ID',
+  `node_id` BIGINT NOT NULL COMMENT '审批节点ID',
+  `node_name` VARCHAR(100) COMMENT '节点名称',
+  `node_order` INT COMMENT '节点顺序',
+  `approver_id` BIGINT NOT NULL COMMENT '审批人ID',
+  `approver_name` VARCHAR(100) COMMENT '审批人姓名',
+  `action` VARCHAR(20) NOT NULL COMMENT '操作',
+  `result` VARCHAR(20) COMMENT '结果',
+  `comment` VARCHAR(1000) COMMENT '审批意见',
+  `reject_to_node_id` BIGINT COMMENT '驳回到的节点ID',
+  `transfer_to_user_id` BIGINT COMMENT '转交给的用户ID',
+  `transfer_to_user_name` VARCHAR(100) COMMENT '转交给的用户姓名',
+  `approval_time` TIMESTAMP NULL COMMENT '审批时间',
+  `created_at` TIMESTAMP NULL COMMENT '创建时间',
+  INDEX `idx_task_id` (`task_id`),
+  INDEX `idx_approval_time` (`approval_time`),
+  INDEX `idx_approver_time` (`approver_id`, `approval_time`, `id`) COMMENT '已审批任务游标分页（按时间倒序扫描，结果在定位后过滤）'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='审批记录归档表';
+
+-- 12. 审批节点耗时直方图表（审批/驳回耗时按桶定时累加，供节点耗时统计查询）
+CREATE TABLE IF NOT EXISTS `approval_node_latency` (
+  `flow_id` BIGINT NOT NULL COMMENT '审批流ID',
+  `node_id` BIGINT NOT NULL COMMENT '审批节点ID',
+  `bucket` INT NOT NULL COMMENT '直方图桶序号',
+  `sample_count` BIGINT NOT NULL DEFAULT 0 COMMENT '样本数',
+  `total_ms` BIGINT NOT NULL DEFAULT 0 COMMENT '耗时总和(毫秒)',
+  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`flow_id`, `node_id`, `bucket`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='审批节点耗时直方图表';
+
+-- 13. 定时任务锁表（多实例部署时同一定时任务只由持有租约的实例执行）
+CREATE TABLE IF NOT EXISTS `job_lock` (
+  `job_name` VARCHAR(64) NOT NULL PRIMARY KEY COMMENT '任务名',
+  `owner` VARCHAR(64) NOT NULL DEFAULT '' COMMENT '持有租约的实例',
+  `locked_until` DATETIME NOT NULL COMMENT '租约到期时间',
+  `updated_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='定时任务锁表';
+
 -- ================================================
 -- 初始化数据
 -- ================================================
 
--- 7. 初始化角色数据
+-- 14. 初始化角色数据
 INSERT INTO `roles` (`role_code`, `role_name`, `description`, `status`) VALUES
 ('ROLE_SECTION_CHIEF', '科长', '科级领导', 1),
 ('ROLE_DEPARTMENT_HEAD', '处长', '处级领导', 1),
@@ -129,14 +239,14 @@ INSERT INTO `roles` (`role_code`, `role_name`, `description`, `status`) VALUES
 ('ROLE_USER', '普通用户', '普通用户', 1)
 ON DUPLICATE KEY UPDATE role_name = VALUES(role_name);
 
--- 8. 初始化审批流模板
+-- 15. 初始化审批流模板
 INSERT INTO `task_approval_flows` (`flow_code`, `flow_name`, `description`, `task_type`, `status`, `version`) VALUES
 ('FLOW_STANDARD', '标准三级审批流', '科长→处长→局长', 'STANDARD', 1, 1),
 ('FLOW_URGENT', '紧急两级审批流', '处长→局长', 'URGENT', 1, 1),
 ('FLOW_SIMPLE', '简易单级审批流', '处长审批', 'SIMPLE', 1, 1)
 ON DUPLICATE KEY UPDATE flow_name = VALUES(flow_name);
 
--- 9. 标准三级审批流节点配置
+-- 16. 标准三级审批流节点配置
 INSERT INTO `task_approval_nodes` (`flow_id`, `node_code`, `node_name`, `node_order`, `approval_type`, `approver_type`, `approver_roles`, `timeout_hours`)
 SELECT id, 'NODE_SECTION', '科长审批', 1, 'OR_SIGN', 'ROLE', 'ROLE_SECTION_CHIEF', 24 FROM `task_approval_flows` WHERE flow_code = 'FLOW_STANDARD'
 ON DUPLICATE KEY UPDATE node_name = VALUES(node_name);
@@ -149,7 +259,7 @@ INSERT INTO `task_approval_nodes` (`flow_id`, `node_code`, `node_name`, `node_or
 SELECT id, 'NODE_BUREAU', '局长审批', 3, 'COUNTERSIGN', 'ROLE', 'ROLE_BUREAU_CHIEF', 72 FROM `task_approval_flows` WHERE flow_code = 'FLOW_STANDARD'
 ON DUPLICATE KEY UPDATE node_name = VALUES(node_name);
 
--- 10. 紧急两级审批流节点配置
+-- 17. 紧急两级审批流节点配置
 INSERT INTO `task_approval_nodes` (`flow_id`, `node_code`, `node_name`, `node_order`, `approval_type`, `approver_type`, `approver_roles`, `timeout_hours`)
 SELECT id, 'NODE_DEPARTMENT', '处长审批', 1, 'OR_SIGN', 'ROLE', 'ROLE_DEPARTMENT_HEAD', 12 FROM `task_approval_flows` WHERE flow_code = 'FLOW_URGENT'
 ON DUPLICATE KEY UPDATE node_name = VALUES(node_name);
@@ -158,11 +268,17 @@ INSERT INTO `task_approval_nodes` (`flow_id`, `node_code`, `node_name`, `node_or
 SELECT id, 'NODE_BUREAU', '局长审批', 2, 'OR_SIGN', 'ROLE', 'ROLE_BUREAU_CHIEF', 24 FROM `task_approval_flows` WHERE flow_code = 'FLOW_URGENT'
 ON DUPLICATE KEY UPDATE node_name = VALUES(node_name);
 
--- 11. 简易单级审批流节点配置
+-- 18. 简易单级审批流节点配置
 INSERT INTO `task_approval_nodes` (`flow_id`, `node_code`, `node_name`, `node_order`, `approval_type`, `approver_type`, `approver_roles`, `timeout_hours`)
 SELECT id, 'NODE_DEPARTMENT', '处长审批', 1, 'OR_SIGN', 'ROLE', 'ROLE_DEPARTMENT_HEAD', 48 FROM `task_approval_flows` WHERE flow_code = 'FLOW_SIMPLE'
 ON DUPLICATE KEY UPDATE node_name = VALUES(node_name);
 
+-- 19. 回填审批人待办箱（已有数据升级时执行，也可调用 POST /api/tasks/inbox/rebuild）
+INSERT IGNORE INTO `approver_inbox` (`approver_id`, `task_id`, `node_id`, `priority`, `task_created_at`)
+SELECT r.approver_id, t.id, t.current_node_id, t.priority, t.created_at
+FROM `task_approval_records` r INNER JOIN `tasks` t ON t.id = r.task_id
+WHERE r.result = 'PENDING' AND t.status IN ('PENDING', 'IN_PROGRESS') AND r.node_id = t.current_node_id;
+
 -- ================================================
 -- 完成
 -- ================================================
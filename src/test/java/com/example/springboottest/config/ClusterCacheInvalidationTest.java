@@ -0,0 +1,263 @@
+package com.example.springboottest.config;
+
+import com.example.springboottest.DTO.TaskDetailVO;
+import com.example.springboottest.event.CacheInvalidatedEvent;
+import com.example.springboottest.event.TaskChangedEvent;
+import com.example.springboottest.service.CacheInvalidationListener;
+import com.example.springboottest.service.TaskDetailCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 集群缓存失效测试（内嵌 ActiveMQ，vm:// 传输）
+ * 两个应用上下文模拟两个实例，连接同一个内嵌 Broker，校验清除在另一实例生效、收到的失效不再广播、
+ * 事务中的清除在提交后才广播、任务详情缓存的剔除同样广播
+ */
+public class ClusterCacheInvalidationTest {
+
+    private static final String BROKER_NAME = "cluster-cache-test";
+
+    private BrokerService broker;
+    private AnnotationConfigApplicationContext nodeA;
+    private AnnotationConfigApplicationContext nodeB;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName(BROKER_NAME);
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.setUseShutdownHook(false);
+        broker.start();
+        broker.waitUntilStarted();
+
+        nodeA = startNode();
+        nodeB = startNode();
+        // 等待两个实例的主题订阅建立（非持久订阅，建立前发布的消息收不到）
+        ActiveMQTopic topic = new ActiveMQTopic(ActiveMqConfig.CACHE_INVALIDATION_TOPIC);
+        awaitTrue(() -> broker.getDestination(topic).getConsumers().size() >= 2);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        nodeA.close();
+        nodeB.close();
+        broker.stop();
+        broker.waitUntilStopped();
+    }
+
+    /**
+     * 实例A清除的键在实例B同样被清除（键类型保持一致），其他键保留；B发布本地事件
+     */
+    @Test
+    public void testEvictPropagatesToOtherNode() throws Exception {
+        Cache cacheA = cache(nodeA, "dictCache");
+        Cache cacheB = cache(nodeB, "dictCache");
+        cacheA.put(1L, "a");
+        cacheB.put(1L, "b");
+        cacheB.put("code_gender", "gender");
+        cacheB.put(2L, "keep");
+
+        cacheA.evict(1L);
+        cacheA.evict("code_gender");
+
+        awaitTrue(() -> cacheB.get(1L) == null && cacheB.get("code_gender") == null);
+        assertEquals("keep", cacheB.get(2L).get());
+        assertNull(cacheA.get(1L));
+        awaitTrue(() -> !events(nodeB).isEmpty());
+        assertTrue(events(nodeB).get(0).getCacheNames().contains("dictCache"));
+        assertTrue(events(nodeA).isEmpty(), "实例不应处理自己发出的消息");
+    }
+
+    /**
+     * 整体清空广播到其他实例；收到消息的实例在事件中清除缓存不会再广播回来
+     */
+    @Test
+    public void testClearPropagatesWithoutEcho() throws Exception {
+        Cache cacheA = cache(nodeA, "deviceTypeCache");
+        Cache cacheB = cache(nodeB, "deviceTypeCache");
+        cacheA.put("router", "a");
+        cacheB.put("router", "b");
+        cacheB.put("switch", "b");
+        nodeB.getBean(EventRecorder.class).evictOnEvent = true;
+
+        cacheA.clear();
+
+        awaitTrue(() -> cacheB.get("router") == null && cacheB.get("switch") == null);
+        awaitTrue(() -> !events(nodeB).isEmpty());
+
+        // B 在事件中清除的键若被广播，A 会收到事件；等待一段时间确认没有回声
+        cacheA.put("router", "a2");
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertTrue(events(nodeA).isEmpty(), "收到的失效不应再次广播");
+        assertEquals("a2", cacheA.get("router").get());
+    }
+
+    /**
+     * 事务中的清除在提交后才广播；回滚时不广播
+     */
+    @Test
+    public void testEvictInTransactionPropagatesAfterCommit() throws Exception {
+        Cache cacheA = cache(nodeA, "deviceTypeCache");
+        Cache cacheB = cache(nodeB, "deviceTypeCache");
+        cacheB.put("router", "b");
+        cacheB.put("switch", "b");
+        cacheB.put("hub", "b");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(
+                new SimpleDriverDataSource(new org.h2.Driver(), "jdbc:h2:mem:cluster_cache_tx")));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            cacheA.evict("router");
+            sleepQuietly(300);
+            assertEquals("b", cacheB.get("router").get(), "提交前不应广播");
+            // 提交前本实例按旧数据重新缓存，提交后应再次清除
+            cacheA.put("router", "stale");
+            // 提交后的回调中清除（如字典快照重新加载）同样广播
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cacheA.evict("hub");
+                }
+            });
+        });
+        awaitTrue(() -> cacheB.get("router") == null && cacheB.get("hub") == null);
+        assertNull(cacheA.get("router"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            cacheA.evict("switch");
+            status.setRollbackOnly();
+        });
+        TimeUnit.MILLISECONDS.sleep(300);
+        assertEquals("b", cacheB.get("switch").get(), "回滚后不应广播");
+    }
+
+    /**
+     * 任务详情缓存注册到集群缓存：一个实例剔除后其他实例重新加载
+     */
+    @Test
+    public void testTaskDetailEvictPropagatesToOtherNode() throws Exception {
+        TaskDetailCache detailA = nodeA.getBean(TaskDetailCache.class);
+        TaskDetailCache detailB = nodeB.getBean(TaskDetailCache.class);
+        AtomicInteger loads = new AtomicInteger();
+        Function<Long, TaskDetailVO> loader = taskId -> {
+            loads.incrementAndGet();
+            return new TaskDetailVO();
+        };
+        detailB.get(1L, loader);
+        detailB.get(2L, loader);
+        detailB.get(1L, loader);
+        assertEquals(2, loads.get());
+
+        detailA.onTaskChanged(new TaskChangedEvent(1L));
+
+        awaitTrue(() -> {
+            detailB.get(1L, loader);
+            return loads.get() == 3;
+        });
+        detailB.get(2L, loader);
+        assertEquals(3, loads.get(), "未变更的任务不应剔除");
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private AnnotationConfigApplicationContext startNode() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "spring.activemq.broker-url", "vm://" + BROKER_NAME + "?create=false",
+                "spring.activemq.user", "",
+                "spring.activemq.password", "",
+                "spring.cache.caffeine.spec", "maximumSize=100")));
+        context.register(NodeConfig.class);
+        context.refresh();
+        return context;
+    }
+
+    private static Cache cache(AnnotationConfigApplicationContext node, String name) {
+        return node.getBean(ClusterCacheManager.class).getCache(name);
+    }
+
+    private static List<CacheInvalidatedEvent> events(AnnotationConfigApplicationContext node) {
+        return node.getBean(EventRecorder.class).events;
+    }
+
+    private static void awaitTrue(Condition condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.call()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+    }
+
+    private interface Condition {
+        boolean call() throws Exception;
+    }
+
+    /**
+     * 记录本实例收到的失效事件，可在事件中清除缓存（模拟字典快照重新加载时的清除）
+     */
+    static class EventRecorder {
+
+        private final List<CacheInvalidatedEvent> events = new CopyOnWriteArrayList<>();
+        private final ClusterCacheManager cacheManager;
+        private volatile boolean evictOnEvent;
+
+        EventRecorder(ClusterCacheManager cacheManager) {
+            this.cacheManager = cacheManager;
+        }
+
+        @EventListener
+        public void onInvalidated(CacheInvalidatedEvent event) {
+            events.add(event);
+            if (evictOnEvent) {
+                cacheManager.getCache("deviceTypeCache").evict("router");
+            }
+        }
+    }
+
+    @Configuration
+    @Import({ActiveMqConfig.class, ClusterCacheConfig.class, CacheInvalidationListener.class, TaskDetailCache.class})
+    static class NodeConfig {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public EventRecorder eventRecorder(ClusterCacheManager cacheManager) {
+            return new EventRecorder(cacheManager);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.springboottest.service;
+
+import com.baomidou.mybatisplus.core.config.GlobalConfig;
+import com.baomidou.mybatisplus.core.handlers.MetaObjectHandler;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.example.springboottest.DTO.DictItemRequest;
+import com.example.springboottest.DTO.DictItemResponse;
+import com.example.springboottest.DTO.DictRequest;
+import com.example.springboottest.config.MybatisPlusConfig;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 字典缓存命中率测试（H2）
+ * 字典项变更只清除所属字典的缓存：读写混合负载下命中率保持在高位，变更后读到的总是新数据
+ */
+@SpringJUnitConfig(DictCacheHitRatioTest.Config.class)
+public class DictCacheHitRatioTest {
+
+    private static final int DICTS = 50;
+    private static final int ITEMS_PER_DICT = 5;
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 20000;
+
+    @Autowired
+    private DictService dictService;
+    @Autowired
+    private DictionarySnapshot dictionarySnapshot;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> dictIds = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate.update("DELETE FROM dict_item");
+        jdbcTemplate.update("DELETE FROM dict");
+        dictIds.clear();
+        for (int i = 0; i < DICTS; i++) {
+            DictRequest request = new DictRequest();
+            request.setDictCode(code(i));
+            request.setDictName("字典" + i);
+            Long dictId = dictService.createDict(request);
+            dictIds.add(dictId);
+            for (int j = 0; j < ITEMS_PER_DICT; j++) {
+                dictService.createDictItem(itemRequest(dictId, "v" + j, "标签" + j));
+            }
+        }
+        dictionarySnapshot.reload();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    /**
+     * 8个线程读写混合（1%为字典项修改），两个缓存的综合命中率不低于90%，结束后缓存内容与数据库一致
+     */
+    @Test
+    public void testMixedLoadKeepsHighHitRatio() throws Exception {
+        for (int i = 0; i < DICTS; i++) {
+            readAll(i);
+        }
+        CacheStats dictBefore = stats("dictCache");
+        CacheStats itemBefore = stats("dictItemCache");
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int op = 0; op < OPERATIONS / THREADS; op++) {
+                        int index = random.nextInt(DICTS);
+                        if (random.nextInt(100) == 0) {
+                            updateFirstItemLabel(index, "标签-" + random.nextInt(1000));
+                        } else {
+                            readAll(index);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        CacheStats dict = stats("dictCache").minus(dictBefore);
+        CacheStats item = stats("dictItemCache").minus(itemBefore);
+        long hits = dict.hitCount() + item.hitCount();
+        long requests = dict.requestCount() + item.requestCount();
+        double hitRatio = (double) hits / requests;
+        assertTrue(hitRatio >= 0.9, "命中率过低: " + hitRatio);
+
+        for (int i = 0; i < DICTS; i++) {
+            String label = jdbcTemplate.queryForObject(
+                    "SELECT item_label FROM dict_item WHERE dict_id = ? AND item_value = 'v0'",
+                    String.class, dictIds.get(i));
+            assertEquals(label, dictService.getDictItemsByCode(code(i)).get(0).getItemLabel());
+            assertEquals(label, dictService.getDictByCode(code(i)).getItems().get(0).getItemLabel());
+            assertEquals(label, dictService.getDictById(dictIds.get(i)).getItems().get(0).getItemLabel());
+        }
+    }
+
+    /**
+     * 修改字典项只清除所属字典的缓存，dictItemCache 同样被清除
+     */
+    @Test
+    public void testItemUpdateEvictsOnlyOwningDict() {
+        readAll(0);
+        readAll(1);
+
+        updateFirstItemLabel(0, "新标签");
+
+        assertNull(nativeCache("dictCache").getIfPresent(dictIds.get(0)));
+        assertNull(nativeCache("dictCache").getIfPresent("code_" + code(0)));
+        assertNull(nativeCache("dictItemCache").getIfPresent(code(0)));
+        assertNotNull(nativeCache("dictCache").getIfPresent(dictIds.get(1)));
+        assertNotNull(nativeCache("dictCache").getIfPresent("code_" + code(1)));
+        assertNotNull(nativeCache("dictItemCache").getIfPresent(code(1)));
+        assertEquals("新标签", dictService.getDictItemsByCode(code(0)).get(0).getItemLabel());
+    }
+
+    /**
+     * 修改字典编码后旧编码的缓存被清除
+     */
+    @Test
+    public void testCodeChangeEvictsOldCode() {
+        readAll(0);
+
+        DictRequest request = new DictRequest();
+        request.setDictCode("renamed");
+        request.setDictName("字典0");
+        dictService.updateDict(dictIds.get(0), request);
+
+        assertThrows(RuntimeException.class, () -> dictService.getDictByCode(code(0)));
+        assertThrows(RuntimeException.class, () -> dictService.getDictItemsByCode(code(0)));
+        assertEquals(ITEMS_PER_DICT, dictService.getDictItemsByCode("renamed").size());
+        assertEquals("renamed", dictService.getDictById(dictIds.get(0)).getDictCode());
+    }
+
+    private void readAll(int index) {
+        dictService.getDictByCode(code(index));
+        dictService.getDictById(dictIds.get(index));
+        dictService.getDictItemsByCode(code(index));
+    }
+
+    private void updateFirstItemLabel(int index, String label) {
+        Long dictId = dictIds.get(index);
+        Long itemId = jdbcTemplate.queryForObject(
+                "SELECT id FROM dict_item WHERE dict_id = ? AND item_value = 'v0'", Long.class, dictId);
+        DictItemResponse item = dictService.getDictItemById(itemId);
+        DictItemRequest request = itemRequest(dictId, item.getItemValue(), label);
+        request.setItemSort(item.getItemSort());
+        dictService.updateDictItem(itemId, request);
+    }
+
+    private static DictItemRequest itemRequest(Long dictId, String value, String label) {
+        DictItemRequest request = new DictItemRequest();
+        request.setDictId(dictId);
+        request.setItemValue(value);
+        request.setItemLabel(label);
+        return request;
+    }
+
+    private static String code(int index) {
+        return "dict_" + index;
+    }
+
+    private CacheStats stats(String name) {
+        return nativeCache(name).stats();
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache(String name) {
+        return ((CaffeineCache) cacheManager.getCache(name)).getNativeCache();
+    }
+
+    @Configuration
+    @EnableCaching
+    @EnableTransactionManagement
+    @Import({MybatisPlusConfig.class, DictService.class, DictionarySnapshot.class})
+    static class Config {
+
+        @Bean
+        public DataSource dataSource() {
+            SimpleDriverDataSource dataSource = new SimpleDriverDataSource();
+            dataSource.setDriverClass(org.h2.Driver.class);
+            dataSource.setUrl("jdbc:h2:mem:dict_cache;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+            new ResourceDatabasePopulator(new ClassPathResource("sql/dict_h2.sql")).execute(dataSource);
+            return dataSource;
+        }
+
+        @Bean
+        public SqlSessionFactory sqlSessionFactory(DataSource dataSource, MybatisPlusInterceptor interceptor,
+                                                   MetaObjectHandler metaObjectHandler) throws Exception {
+            MybatisSqlSessionFactoryBean factory = new MybatisSqlSessionFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setPlugins(interceptor);
+            GlobalConfig globalConfig = new GlobalConfig();
+            globalConfig.setMetaObjectHandler(metaObjectHandler);
+            factory.setGlobalConfig(globalConfig);
+            return factory.getObject();
+        }
+
+        @Bean
+        public CacheManager cacheManager() {
+            CaffeineCacheManager cacheManager = new CaffeineCacheManager("dictCache", "dictItemCache");
+            cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(1000).recordStats());
+            return cacheManager;
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.springboottest.service;
+
+import com.baomidou.mybatisplus.core.config.GlobalConfig;
+import com.baomidou.mybatisplus.core.handlers.MetaObjectHandler;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.example.springboottest.DTO.DictItemRequest;
+import com.example.springboottest.DTO.DictItemResponse;
+import com.example.springboottest.DTO.DictRequest;
+import com.example.springboottest.config.ActiveMqConfig;
+import com.example.springboottest.config.ClusterCacheConfig;
+import com.example.springboottest.config.MybatisPlusConfig;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 字典集群同步测试（H2 + 内嵌 ActiveMQ）
+ * 两个应用上下文模拟两个实例，共用同一个 H2 库：一个实例经 DictService 修改字典项，另一实例的缓存和快照随之更新
+ */
+public class DictClusterSyncTest {
+
+    private static final String BROKER_NAME = "dict-cluster-test";
+
+    private BrokerService broker;
+    private AnnotationConfigApplicationContext nodeA;
+    private AnnotationConfigApplicationContext nodeB;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName(BROKER_NAME);
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.setUseShutdownHook(false);
+        broker.start();
+        broker.waitUntilStarted();
+
+        nodeA = startNode();
+        nodeB = startNode();
+        ActiveMQTopic topic = new ActiveMQTopic(ActiveMqConfig.CACHE_INVALIDATION_TOPIC);
+        awaitTrue(() -> broker.getDestination(topic).getConsumers().size() >= 2);
+
+        JdbcTemplate jdbcTemplate = nodeA.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("DELETE FROM dict_item");
+        jdbcTemplate.update("DELETE FROM dict");
+        jdbcTemplate.update("DELETE FROM dict_change_log");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        nodeA.close();
+        nodeB.close();
+        broker.stop();
+        broker.waitUntilStopped();
+    }
+
+    /**
+     * 实例A修改字典项（变更只在提交后的快照重新加载中清除缓存），实例B的缓存和快照在提交后更新
+     */
+    @Test
+    public void testItemUpdatePropagatesToOtherNode() throws Exception {
+        DictService serviceA = nodeA.getBean(DictService.class);
+        DictService serviceB = nodeB.getBean(DictService.class);
+        DictRequest dictRequest = new DictRequest();
+        dictRequest.setDictCode("gender");
+        dictRequest.setDictName("性别");
+        Long dictId = serviceA.createDict(dictRequest);
+        Long itemId = serviceA.createDictItem(itemRequest(dictId, "1", "男"));
+
+        awaitTrue(() -> firstLabelIs(serviceB, "男"));
+        long versionBefore = nodeB.getBean(DictionarySnapshot.class).getVersion();
+
+        DictItemResponse item = serviceA.getDictItemById(itemId);
+        DictItemRequest update = itemRequest(dictId, item.getItemValue(), "男性");
+        update.setItemSort(item.getItemSort());
+        serviceA.updateDictItem(itemId, update);
+
+        awaitTrue(() -> firstLabelIs(serviceB, "男性"));
+        assertEquals("男性", serviceB.getDictByCode("gender").getItems().get(0).getItemLabel());
+        // 失效消息先清除缓存再重新加载快照，版本号稍后更新
+        awaitTrue(() -> nodeB.getBean(DictionarySnapshot.class).getVersion() > versionBefore);
+    }
+
+    private AnnotationConfigApplicationContext startNode() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "spring.activemq.broker-url", "vm://" + BROKER_NAME + "?create=false",
+                "spring.activemq.user", "",
+                "spring.activemq.password", "",
+                "spring.cache.caffeine.spec", "maximumSize=1000")));
+        context.register(NodeConfig.class);
+        context.refresh();
+        return context;
+    }
+
+    private static boolean firstLabelIs(DictService service, String label) {
+        List<DictItemResponse> items = service.getDictItemsByCode("gender");
+        return !items.isEmpty() && label.equals(items.get(0).getItemLabel());
+    }
+
+    private static DictItemRequest itemRequest(Long dictId, String value, String label) {
+        DictItemRequest request = new DictItemRequest();
+        request.setDictId(dictId);
+        request.setItemValue(value);
+        request.setItemLabel(label);
+        return request;
+    }
+
+    private static void awaitTrue(Condition condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.call()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+    }
+
+    private interface Condition {
+        boolean call() throws Exception;
+    }
+
+    @Configuration
+    @EnableCaching
+    @EnableTransactionManagement
+    @Import({ActiveMqConfig.class, ClusterCacheConfig.class, CacheInvalidationListener.class,
+            MybatisPlusConfig.class, DictService.class, DictionarySnapshot.class})
+    static class NodeConfig {
+
+        @Bean
+        public DataSource dataSource() {
+            SimpleDriverDataSource dataSource = new SimpleDriverDataSource();
+            dataSource.setDriverClass(org.h2.Driver.class);
+            dataSource.setUrl("jdbc:h2:mem:dict_cluster;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+            new ResourceDatabasePopulator(new ClassPathResource("sql/dict_h2.sql")).execute(dataSource);
+            return dataSource;
+        }
+
+        @Bean
+        public SqlSessionFactory sqlSessionFactory(DataSource dataSource, MybatisPlusInterceptor interceptor,
+                                                   MetaObjectHandler metaObjectHandler) throws Exception {
+            MybatisSqlSessionFactoryBean factory = new MybatisSqlSessionFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setPlugins(interceptor);
+            GlobalConfig globalConfig = new GlobalConfig();
+            globalConfig.setMetaObjectHandler(metaObjectHandler);
+            factory.setGlobalConfig(globalConfig);
+            return factory.getObject();
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+    }
+}
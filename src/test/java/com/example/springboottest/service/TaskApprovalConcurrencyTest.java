@@ -0,0 +1,224 @@
+package com.example.springboottest.service;
+
+import com.baomidou.mybatisplus.core.config.GlobalConfig;
+import com.baomidou.mybatisplus.core.handlers.MetaObjectHandler;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.example.springboottest.DTO.ApproveRequest;
+import com.example.springboottest.config.MybatisPlusConfig;
+import com.example.springboottest.entity.Task;
+import com.example.springboottest.enums.ApprovalType;
+import com.example.springboottest.enums.TaskStatus;
+import com.example.springboottest.exception.BusinessException;
+import com.example.springboottest.repository.TaskRepository;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 任务审批并发测试（H2）
+ * 50个线程同时审批同一任务，校验任务只推进一次、下一节点的待审批记录不重复
+ */
+@SpringJUnitConfig(TaskApprovalConcurrencyTest.Config.class)
+public class TaskApprovalConcurrencyTest {
+
+    private static final int THREADS = 50;
+    private static final long NEXT_APPROVER_ID = THREADS + 1;
+
+    @Autowired
+    private TaskApprovalService approvalService;
+    @Autowired
+    private ApprovalNodeService approvalNodeService;
+    @Autowired
+    private ApprovalFlowCache flowCache;
+    @Autowired
+    private TaskRepository taskRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 或签：第一个完成节点的审批人推进任务，其他人版本冲突后重试，发现已无审批权限
+     */
+    @Test
+    public void testConcurrentOrSignApprovalsAdvanceOnce() throws Exception {
+        Task task = submitTask(ApprovalType.OR_SIGN);
+
+        List<Throwable> failures = approveConcurrently(task.getId());
+
+        assertEquals(THREADS - 1, failures.size());
+        for (Throwable failure : failures) {
+            assertTrue(failure instanceof BusinessException, "非预期异常: " + failure);
+        }
+        assertAdvancedToSecondNode(task.getId());
+    }
+
+    /**
+     * 会签：全部审批人都审批成功，最后一人推进任务
+     */
+    @Test
+    public void testConcurrentCountersignApprovalsAllSucceed() throws Exception {
+        Task task = submitTask(ApprovalType.COUNTERSIGN);
+
+        List<Throwable> failures = approveConcurrently(task.getId());
+
+        assertTrue(failures.isEmpty(), "审批失败: " + failures);
+        assertAdvancedToSecondNode(task.getId());
+        assertEquals(THREADS, jdbcTemplate.queryForObject(
+                "SELECT approved_count FROM task_node_progress WHERE task_id = ? AND node_order = 1",
+                Integer.class, task.getId()));
+    }
+
+    /**
+     * 50个审批人同时审批，返回失败的异常
+     */
+    private List<Throwable> approveConcurrently(Long taskId) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long approverId = 1; approverId <= THREADS; approverId++) {
+                long userId = approverId;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ApproveRequest request = new ApproveRequest();
+                    request.setTaskId(taskId);
+                    request.setComment("同意");
+                    return approvalService.approve(request, userId);
+                }));
+            }
+            start.countDown();
+
+            List<Throwable> failures = new ArrayList<>();
+            for (Future<?> future : futures) {
+                try {
+                    future.get(60, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                }
+            }
+            return failures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void assertAdvancedToSecondNode(Long taskId) {
+        Map<String, Object> task = jdbcTemplate.queryForMap(
+                "SELECT status, current_node_order, version FROM tasks WHERE id = ?", taskId);
+        assertEquals(TaskStatus.IN_PROGRESS.name(), task.get("status"));
+        assertEquals(2, ((Number) task.get("current_node_order")).intValue());
+
+        // 第二节点只有一条待审批记录、一条待办
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM task_approval_records WHERE task_id = ? AND node_order = 2",
+                Integer.class, taskId));
+        assertEquals(List.of(NEXT_APPROVER_ID), jdbcTemplate.queryForList(
+                "SELECT approver_id FROM approver_inbox WHERE task_id = ?", Long.class, taskId));
+    }
+
+    /**
+     * 创建两级审批流（第一级50个审批人）和任务，并提交到第一级
+     */
+    private Task submitTask(ApprovalType firstNodeType) {
+        String flowCode = "FLOW_" + firstNodeType.name() + "_" + System.nanoTime();
+        jdbcTemplate.update("INSERT INTO task_approval_flows (flow_code, flow_name, status) VALUES (?, ?, 1)",
+                flowCode, "并发测试审批流");
+        Long flowId = jdbcTemplate.queryForObject(
+                "SELECT id FROM task_approval_flows WHERE flow_code = ?", Long.class, flowCode);
+        String firstApprovers = LongStream.rangeClosed(1, THREADS)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","));
+        jdbcTemplate.update("INSERT INTO task_approval_nodes (flow_id, node_code, node_name, node_order, " +
+                "approval_type, approver_type, approver_ids) VALUES (?, 'NODE_1', '一级审批', 1, ?, 'USER', ?)",
+                flowId, firstNodeType.name(), firstApprovers);
+        jdbcTemplate.update("INSERT INTO task_approval_nodes (flow_id, node_code, node_name, node_order, " +
+                "approval_type, approver_type, approver_ids) VALUES (?, 'NODE_2', '二级审批', 2, 'OR_SIGN', 'USER', ?)",
+                flowId, String.valueOf(NEXT_APPROVER_ID));
+
+        CompiledFlow flow = flowCache.get(flowId);
+        CompiledFlow.Node firstNode = flow.getFirstNode();
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Task task = new Task();
+            task.setTaskNo(flowCode);
+            task.setTitle("并发审批");
+            task.setPriority(2);
+            task.setStatus(TaskStatus.PENDING.name());
+            task.setCreatorId(NEXT_APPROVER_ID + 1);
+            task.setFlowId(flowId);
+            task.setCurrentNodeId(firstNode.getId());
+            task.setCurrentNodeOrder(firstNode.getNodeOrder());
+            task.setVersion(0);
+            taskRepository.insert(task);
+            approvalNodeService.enterNode(task, firstNode);
+            return task;
+        });
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    @Import({MybatisPlusConfig.class, TaskApprovalService.class, ApprovalNodeService.class,
+            ApproverInboxService.class, ApproverResolver.class, ApprovalFlowCache.class})
+    static class Config {
+
+        @Bean
+        public DataSource dataSource() {
+            SimpleDriverDataSource dataSource = new SimpleDriverDataSource();
+            dataSource.setDriverClass(org.h2.Driver.class);
+            dataSource.setUrl("jdbc:h2:mem:approval_concurrency;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                    + "LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1");
+            new ResourceDatabasePopulator(new ClassPathResource("sql/task_approval_h2.sql")).execute(dataSource);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            for (long id = 1; id <= NEXT_APPROVER_ID + 1; id++) {
+                jdbcTemplate.update("INSERT INTO users (id, username, status) VALUES (?, ?, 1)", id, "user" + id);
+            }
+            return dataSource;
+        }
+
+        @Bean
+        public SqlSessionFactory sqlSessionFactory(DataSource dataSource, MybatisPlusInterceptor interceptor,
+                                                   MetaObjectHandler metaObjectHandler) throws Exception {
+            MybatisSqlSessionFactoryBean factory = new MybatisSqlSessionFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setPlugins(interceptor);
+            GlobalConfig globalConfig = new GlobalConfig();
+            globalConfig.setMetaObjectHandler(metaObjectHandler);
+            factory.setGlobalConfig(globalConfig);
+            return factory.getObject();
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.springboottest.service;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.example.springboottest.DTO.PageResult;
+import com.example.springboottest.DTO.TaskDetailVO;
+import com.example.springboottest.DTO.TaskVO;
+import com.example.springboottest.entity.ApproverInbox;
+import com.example.springboottest.entity.Task;
+import com.example.springboottest.entity.TaskApprovalFlow;
+import com.example.springboottest.entity.TaskApprovalNode;
+import com.example.springboottest.entity.TaskApprovalRecord;
+import com.example.springboottest.entity.User;
+import com.example.springboottest.enums.ApprovalResult;
+import com.example.springboottest.enums.ApprovalType;
+import com.example.springboottest.enums.ApproverType;
+import com.example.springboottest.enums.TaskStatus;
+import com.example.springboottest.event.TaskChangedEvent;
+import com.example.springboottest.repository.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 任务服务测试
+ * 校验列表接口的SQL条数与分页大小无关（审批流缓存冷启动时也是如此），任务详情的SQL条数与审批人数无关
+ */
+@ExtendWith(MockitoExtension.class)
+public class TaskServiceTest {
+
+    private static final Long USER_ID = 1L;
+
+    @Mock
+    private TaskRepository taskRepository;
+    @Mock
+    private TaskApprovalFlowRepository flowRepository;
+    @Mock
+    private TaskApprovalNodeRepository nodeRepository;
+    @Mock
+    private TaskApprovalRecordRepository recordRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private UserRoleRepository userRoleRepository;
+    @Mock
+    private RoleRepository roleRepository;
+    @Mock
+    private TaskNoGenerator taskNoGenerator;
+    @Mock
+    private ApprovalNodeService approvalNodeService;
+    @Mock
+    private ApproverInboxRepository inboxRepository;
+    @Mock
+    private TaskArchiveService archiveService;
+    @Mock
+    private TaskSearchService searchService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private TaskDetailCache taskDetailCache;
+    private TaskService taskService;
+
+    @BeforeEach
+    public void setUp() {
+        ApprovalFlowCache flowCache = new ApprovalFlowCache(flowRepository, nodeRepository, 1000, 3600);
+        ApproverResolver approverResolver = new ApproverResolver(userRoleRepository, roleRepository, 600);
+        taskDetailCache = new TaskDetailCache(new SimpleMeterRegistry(), 1000, 600);
+        taskService = new TaskService(taskRepository, recordRepository, userRepository,
+                flowCache, approverResolver, taskNoGenerator, approvalNodeService, inboxRepository,
+                taskDetailCache, archiveService, searchService, eventPublisher,
+                Runnable::run, transactionManager);
+    }
+
+    /**
+     * 我创建的任务：无论分页多大，都只有 1 次分页查询 + 审批流、节点各 1 次批量查询
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    public void testCreatedTasksUseConstantStatements(int size) {
+        List<Task> tasks = buildTasks(size);
+        when(taskRepository.selectPageByCreatorId(any(), eq(USER_ID))).thenReturn(pageOf(tasks));
+        stubBatchLookups();
+
+        PageResult<TaskVO> result = taskService.getMyCreatedTasks(USER_ID, 1, size);
+
+        assertPageAssembled(result, size);
+        assertConstantStatements(3);
+    }
+
+    /**
+     * 我的待办任务：待办箱分页 1 次 + 任务批量查询 1 次 + 审批流、节点各 1 次
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    public void testPendingTasksUseConstantStatements(int size) {
+        List<Task> tasks = buildTasks(size);
+        when(inboxRepository.selectPageByApproverId(any(), eq(USER_ID))).thenReturn(inboxPageOf(tasks));
+        when(taskRepository.selectBatchIds(anyCollection())).thenReturn(tasks);
+        stubBatchLookups();
+
+        PageResult<TaskVO> result = taskService.getMyPendingTasks(USER_ID, 1, size);
+
+        assertPageAssembled(result, size);
+        assertConstantStatements(4);
+    }
+
+    /**
+     * 我审批过的任务
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    public void testApprovedTasksUseConstantStatements(int size) {
+        List<Task> tasks = buildTasks(size);
+        when(taskRepository.selectDecidedTasksWithArchive(any(), eq(USER_ID))).thenReturn(pageOf(tasks));
+        stubBatchLookups();
+
+        PageResult<TaskVO> result = taskService.getMyApprovedTasks(USER_ID, 1, size);
+
+        assertPageAssembled(result, size);
+        assertConstantStatements(3);
+    }
+
+    /**
+     * 审批流缓存预热后，列表接口只剩分页查询本身
+     */
+    @Test
+    public void testWarmFlowCacheSkipsFlowQueries() {
+        List<Task> tasks = buildTasks(20);
+        when(taskRepository.selectPageByCreatorId(any(), eq(USER_ID))).thenReturn(pageOf(tasks));
+        stubBatchLookups();
+
+        taskService.getMyCreatedTasks(USER_ID, 1, 20);
+        clearInvocations(taskRepository, flowRepository, nodeRepository);
+        PageResult<TaskVO> result = taskService.getMyCreatedTasks(USER_ID, 1, 20);
+
+        assertPageAssembled(result, 20);
+        verifyNoInteractions(flowRepository, nodeRepository);
+        verify(taskRepository, times(1)).selectPageByCreatorId(any(), eq(USER_ID));
+    }
+
+    /**
+     * 任务详情：审批人姓名一次批量查询，当前待审批人从审批记录中筛出
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    public void testTaskDetailBatchesApproverLookup(int approvers) {
+        Task task = buildTasks(1).get(0);
+        task.setFlowId(1L);
+        task.setCurrentNodeId(101L);
+        when(taskRepository.selectById(task.getId())).thenReturn(task);
+        TaskApprovalFlow flow = new TaskApprovalFlow();
+        flow.setId(1L);
+        flow.setFlowName("审批流1");
+        when(flowRepository.selectById(1L)).thenReturn(flow);
+
+        List<TaskApprovalNode> nodes = new ArrayList<>();
+        List<User> users = new ArrayList<>();
+        List<TaskApprovalRecord> records = new ArrayList<>();
+        for (int order = 1; order <= 3; order++) {
+            TaskApprovalNode node = new TaskApprovalNode();
+            node.setId(100L + order);
+            node.setFlowId(1L);
+            node.setNodeOrder(order);
+            node.setNodeName("节点" + node.getId());
+            node.setApprovalType(ApprovalType.COUNTERSIGN.name());
+            node.setApproverType(ApproverType.USER.name());
+            List<String> ids = new ArrayList<>();
+            for (long i = 1; i <= approvers; i++) {
+                long approverId = order * 1000L + i;
+                ids.add(String.valueOf(approverId));
+                User user = new User();
+                user.setId(approverId);
+                user.setUsername("user" + approverId);
+                users.add(user);
+            }
+            node.setApproverIds(String.join(",", ids));
+            nodes.add(node);
+        }
+        for (long i = 1; i <= approvers; i++) {
+            TaskApprovalRecord record = new TaskApprovalRecord();
+            record.setId(i);
+            record.setTaskId(task.getId());
+            record.setNodeId(101L);
+            record.setNodeOrder(1);
+            record.setApproverId(1000L + i);
+            record.setResult(ApprovalResult.PENDING.name());
+            records.add(record);
+        }
+        when(nodeRepository.selectByFlowId(1L)).thenReturn(nodes);
+        when(userRepository.selectBatchIds(anyCollection())).thenReturn(users);
+        when(recordRepository.selectByTaskId(task.getId())).thenReturn(records);
+
+        TaskDetailVO detail = taskService.getTaskDetail(task.getId(), 1001L);
+
+        assertEquals(3, detail.getNodes().size());
+        assertEquals(approvers, detail.getNodes().get(2).getApproverNames().size());
+        assertEquals("user3001", detail.getNodes().get(2).getApproverNames().get(0));
+        assertEquals(approvers, detail.getCurrentApprovers().size());
+        assertEquals(approvers, detail.getRecords().size());
+        assertTrue(detail.getCanApprove());
+        verify(userRepository, times(1)).selectBatchIds(anyCollection());
+        verify(userRepository, never()).selectById(any());
+        verify(recordRepository, only()).selectByTaskId(task.getId());
+    }
+
+    /**
+     * 任务详情缓存：再次读取不访问数据库，权限按当前用户计算；任务变更后重新加载
+     */
+    @Test
+    public void testTaskDetailServedFromCacheUntilChanged() {
+        Task task = buildTasks(1).get(0);
+        when(taskRepository.selectById(task.getId())).thenReturn(task);
+        when(recordRepository.selectByTaskId(task.getId())).thenReturn(new ArrayList<>());
+
+        TaskDetailVO creatorView = taskService.getTaskDetail(task.getId(), USER_ID);
+        TaskDetailVO otherView = taskService.getTaskDetail(task.getId(), 2L);
+
+        assertTrue(creatorView.getCanWithdraw());
+        assertFalse(otherView.getCanWithdraw());
+        verify(taskRepository, times(1)).selectById(task.getId());
+
+        // 没有事务时事件监听立即执行
+        doAnswer(invocation -> {
+            taskDetailCache.onTaskChanged(invocation.getArgument(0));
+            return null;
+        }).when(eventPublisher).publishEvent(any(TaskChangedEvent.class));
+        when(taskRepository.updateById(task)).thenReturn(1);
+        taskService.withdrawTask(task.getId(), USER_ID, "撤回");
+        TaskDetailVO reloaded = taskService.getTaskDetail(task.getId(), USER_ID);
+
+        assertEquals(TaskStatus.WITHDRAWN.name(), reloaded.getStatus());
+        assertFalse(reloaded.getCanWithdraw());
+        verify(recordRepository, times(2)).selectByTaskId(task.getId());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubBatchLookups() {
+        when(flowRepository.selectBatchIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<?> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> {
+                TaskApprovalFlow flow = new TaskApprovalFlow();
+                flow.setId((Long) id);
+                flow.setFlowName("审批流" + id);
+                return flow;
+            }).collect(Collectors.toList());
+        });
+        when(nodeRepository.selectList(any(Wrapper.class))).thenAnswer(invocation -> {
+            List<TaskApprovalNode> nodes = new ArrayList<>();
+            for (long flowId = 1; flowId <= 3; flowId++) {
+                for (int order = 1; order <= 3; order++) {
+                    TaskApprovalNode node = new TaskApprovalNode();
+                    node.setId(flowId * 100 + order);
+                    node.setFlowId(flowId);
+                    node.setNodeOrder(order);
+                    node.setNodeName("节点" + node.getId());
+                    nodes.add(node);
+                }
+            }
+            return nodes;
+        });
+    }
+
+    private void assertPageAssembled(PageResult<TaskVO> result, int size) {
+        assertEquals(size, result.getRecords().size());
+        for (TaskVO vo : result.getRecords()) {
+            assertEquals("审批流" + vo.getFlowId(), vo.getFlowName());
+            assertEquals("节点" + (vo.getFlowId() * 100 + vo.getId() % 3 + 1), vo.getCurrentNodeName());
+        }
+    }
+
+    private void assertConstantStatements(int expected) {
+        verify(flowRepository, times(1)).selectBatchIds(anyCollection());
+        verify(nodeRepository, times(1)).selectList(any(Wrapper.class));
+        verify(flowRepository, never()).selectById(anyLong());
+        verify(nodeRepository, never()).selectById(anyLong());
+
+        int statements = mockingDetails(taskRepository).getInvocations().size()
+                + mockingDetails(flowRepository).getInvocations().size()
+                + mockingDetails(nodeRepository).getInvocations().size()
+                + mockingDetails(recordRepository).getInvocations().size()
+                + mockingDetails(userRepository).getInvocations().size()
+                + mockingDetails(userRoleRepository).getInvocations().size()
+                + mockingDetails(inboxRepository).getInvocations().size();
+        assertEquals(expected, statements);
+    }
+
+    private Page<Task> pageOf(List<Task> tasks) {
+        Page<Task> page = new Page<>(1, tasks.size());
+        page.setRecords(tasks);
+        page.setTotal(tasks.size());
+        return page;
+    }
+
+    private Page<ApproverInbox> inboxPageOf(List<Task> tasks) {
+        Page<ApproverInbox> page = new Page<>(1, tasks.size());
+        page.setRecords(tasks.stream().map(task -> {
+            ApproverInbox entry = new ApproverInbox();
+            entry.setApproverId(USER_ID);
+            entry.setTaskId(task.getId());
+            entry.setNodeId(task.getCurrentNodeId());
+            return entry;
+        }).collect(Collectors.toList()));
+        page.setTotal(tasks.size());
+        return page;
+    }
+
+    private List<Task> buildTasks(int size) {
+        List<Task> tasks = new ArrayList<>();
+        for (long i = 1; i <= size; i++) {
+            Task task = new Task();
+            task.setId(i);
+            task.setTaskNo("TASK20250121" + String.format("%06d", i));
+            task.setTitle("任务" + i);
+            task.setStatus(TaskStatus.PENDING.name());
+            task.setPriority(2);
+            task.setCreatorId(USER_ID);
+            task.setFlowId(i % 3 + 1);
+            task.setCurrentNodeId(task.getFlowId() * 100 + i % 3 + 1);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
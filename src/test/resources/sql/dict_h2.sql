@@ -0,0 +1,47 @@
+-- ================================================
+-- 字典测试库（H2，MySQL 兼容模式）
+-- 与 src/main/resources/sql/init.sql 中的表结构保持一致（省略注释和非唯一索引）
+-- ================================================
+
+CREATE TABLE IF NOT EXISTS dict (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  dict_code VARCHAR(50) NOT NULL UNIQUE,
+  dict_name VARCHAR(100) NOT NULL,
+  description VARCHAR(500),
+  status TINYINT NOT NULL DEFAULT 1,
+  create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  create_by BIGINT,
+  update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  update_by BIGINT
+);
+
+CREATE TABLE IF NOT EXISTS dict_item (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  dict_id BIGINT NOT NULL,
+  item_label VARCHAR(100) NOT NULL,
+  item_value VARCHAR(100) NOT NULL,
+  item_sort INT NOT NULL DEFAULT 0,
+  status TINYINT NOT NULL DEFAULT 1,
+  description VARCHAR(500),
+  create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  create_by BIGINT,
+  update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  update_by BIGINT,
+  CONSTRAINT fk_dict_item_dict FOREIGN KEY (dict_id) REFERENCES dict(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS dict_change_log (
+  version BIGINT PRIMARY KEY,
+  dict_id BIGINT NOT NULL,
+  dict_code VARCHAR(50) NOT NULL,
+  item_id BIGINT,
+  change_type VARCHAR(20) NOT NULL,
+  create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS dict_version (
+  id TINYINT PRIMARY KEY,
+  version BIGINT NOT NULL
+);
+
+INSERT IGNORE INTO dict_version (id, version) VALUES (1, 0);
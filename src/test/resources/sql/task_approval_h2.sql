@@ -0,0 +1,126 @@
+-- ================================================
+-- 审批流测试库（H2，MySQL 兼容模式）
+-- 与 src/main/resources/sql/task_approval_flow_init.sql 中的表结构保持一致（省略注释和非唯一索引）
+-- ================================================
+
+CREATE TABLE IF NOT EXISTS users (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  username VARCHAR(100) NOT NULL,
+  gender TINYINT,
+  password VARCHAR(200),
+  email VARCHAR(200),
+  status TINYINT DEFAULT 1,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS roles (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  role_code VARCHAR(50) NOT NULL UNIQUE,
+  role_name VARCHAR(100) NOT NULL,
+  description VARCHAR(500),
+  status TINYINT DEFAULT 1,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS user_roles (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  user_id BIGINT NOT NULL,
+  role_id BIGINT NOT NULL,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE (user_id, role_id)
+);
+
+CREATE TABLE IF NOT EXISTS tasks (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  task_no VARCHAR(50) NOT NULL UNIQUE,
+  title VARCHAR(200) NOT NULL,
+  content TEXT,
+  task_type VARCHAR(50),
+  priority TINYINT DEFAULT 1,
+  status VARCHAR(30) NOT NULL DEFAULT 'DRAFT',
+  current_node_id BIGINT,
+  current_node_order INT DEFAULT 0,
+  creator_id BIGINT NOT NULL,
+  creator_name VARCHAR(100),
+  flow_id BIGINT,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  submitted_at TIMESTAMP NULL,
+  completed_at TIMESTAMP NULL,
+  version INT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS task_approval_flows (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  flow_code VARCHAR(50) NOT NULL UNIQUE,
+  flow_name VARCHAR(100) NOT NULL,
+  description VARCHAR(500),
+  task_type VARCHAR(50),
+  status TINYINT DEFAULT 1,
+  version INT DEFAULT 1,
+  created_by BIGINT,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS task_approval_nodes (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  flow_id BIGINT NOT NULL,
+  node_code VARCHAR(50) NOT NULL,
+  node_name VARCHAR(100) NOT NULL,
+  node_order INT NOT NULL,
+  approval_type VARCHAR(20) NOT NULL,
+  approver_type VARCHAR(20) NOT NULL,
+  approver_ids VARCHAR(500),
+  approver_roles VARCHAR(500),
+  auto_pass TINYINT DEFAULT 0,
+  timeout_hours INT,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE (flow_id, node_order)
+);
+
+CREATE TABLE IF NOT EXISTS task_approval_records (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  task_id BIGINT NOT NULL,
+  node_id BIGINT NOT NULL,
+  node_name VARCHAR(100),
+  node_order INT,
+  approver_id BIGINT NOT NULL,
+  approver_name VARCHAR(100),
+  action VARCHAR(20),
+  result VARCHAR(20),
+  comment VARCHAR(1000),
+  reject_to_node_id BIGINT,
+  transfer_to_user_id BIGINT,
+  transfer_to_user_name VARCHAR(100),
+  approval_time TIMESTAMP NULL,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS task_node_progress (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  task_id BIGINT NOT NULL,
+  node_id BIGINT NOT NULL,
+  node_order INT NOT NULL,
+  required_count INT NOT NULL,
+  approved_count INT NOT NULL DEFAULT 0,
+  completed TINYINT NOT NULL DEFAULT 0,
+  entered_at TIMESTAMP NULL,
+  deadline_at TIMESTAMP NULL,
+  updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE (task_id, node_id)
+);
+
+CREATE TABLE IF NOT EXISTS approver_inbox (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  approver_id BIGINT NOT NULL,
+  task_id BIGINT NOT NULL,
+  node_id BIGINT NOT NULL,
+  priority TINYINT,
+  task_created_at TIMESTAMP NULL,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE (approver_id, task_id)
+);